@@ -0,0 +1,123 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import splendor.benchmarks.HotPaths;
+
+// Positions and operations measured by the benchmarks (see splendor.benchmarks.HotPaths)
+// A position is reached by playing from the game set up with the seed, with moves drawn from the same source of
+// randomness: a card is bought 3 times out of 4 when one can be, so that the game moves on as it does between agents.
+// Once the phase is reached, play goes on until the player to move has moves of every type to measure
+public class HotPathWorkload implements HotPaths {
+    // The opening and the midgame start after a number of moves, and the endgame once a player has enough points
+    private static final int OPENING_MOVES = 4;
+    private static final int MIDGAME_MOVES = 24;
+    private static final int ENDGAME_POINTS = 10;
+
+    // Weights of the minimax agents of the command line
+    private static final ArrayList<Double> WEIGHTS =
+            new ArrayList<>(Arrays.asList(20000.0, 10000.0, 300.0, -300.0, 200.0, 0.0, 10.0, 10.0, 10.0, 0.0));
+
+    private final MinimaxAgent agent = new MinimaxAgent(3, 0, 0, WEIGHTS);
+    private final int[] moves = new int[MoveEncoding.MAX_MOVES];
+
+    private GameState position;
+    private MinimaxAgent searchAgent;
+    private long seed;
+
+    // First move of each type available in the position, in the order of Move.Type
+    private final int[] movesByType = new int[Move.Type.values().length];
+
+    @Override
+    public void setUp(String phase, long seed, int plyNumber) {
+        if(!phase.equals("opening") && !phase.equals("midgame") && !phase.equals("endgame"))
+            throw new IllegalArgumentException("Unknown phase " + phase);
+
+        this.seed = seed;
+        SplittableRandom random = new SplittableRandom(seed);
+        position = null;
+        while(position == null)
+            position = playToPhase(phase, random);
+
+        Arrays.fill(movesByType, MoveEncoding.NONE);
+        for(int i = agent.getAvailableMoves(position, moves) - 1; i >= 0; i --)
+            movesByType[MoveEncoding.getType(moves[i]).ordinal()] = moves[i];
+
+        searchAgent = plyNumber > 0 ? new MinimaxAgent(plyNumber, 0, 0, WEIGHTS) : null;
+    }
+
+    @Override
+    public Object copyState() {
+        return new GameState(position);
+    }
+
+    @Override
+    public Object handleBuyCardMove() {
+        return new GameState(position).handleMove(movesByType[Move.Type.buyCard.ordinal()]);
+    }
+
+    @Override
+    public Object handleReserveCardMove() {
+        return new GameState(position).handleMove(movesByType[Move.Type.reserveCard.ordinal()]);
+    }
+
+    @Override
+    public Object handleTakeTokensMove() {
+        return new GameState(position).handleMove(movesByType[Move.Type.takeTokens.ordinal()]);
+    }
+
+    @Override
+    public int getAvailableMoves() {
+        return agent.getAvailableMoves(position, moves);
+    }
+
+    @Override
+    public double linearHeuristic() {
+        return agent.linearHeuristic(position, position.getPlayerToMove());
+    }
+
+    @Override
+    public Object minimaxSearch() {
+        // The search samples the outcomes of chance nodes: reseeding it makes every call search the same tree
+        searchAgent.setSeed(seed);
+        return searchAgent.generateMove(new GameState(position));
+    }
+
+    // Plays a game set up with the random source until the phase is reached and the player to move has moves of every
+    // type, and returns the position, or null if the game ends first
+    private GameState playToPhase(String phase, SplittableRandom random) {
+        GameState state = new GameState(random);
+        for(int numberPlayed = 0; !state.isGameOver(); numberPlayed ++) {
+            int numberMoves = agent.getAvailableMoves(state, moves);
+            if(numberMoves == 0)
+                return null;
+            if(isInPhase(phase, state, numberPlayed) && hasEveryMoveType(numberMoves))
+                return state;
+
+            // Buy moves are generated first
+            int numberBuyMoves = 0;
+            while(numberBuyMoves < numberMoves && MoveEncoding.getType(moves[numberBuyMoves]) == Move.Type.buyCard)
+                numberBuyMoves ++;
+            if(numberBuyMoves > 0 && random.nextInt(4) != 0)
+                state.handleMove(moves[random.nextInt(numberBuyMoves)]);
+            else
+                state.handleMove(moves[random.nextInt(numberMoves)]);
+        }
+        return null;
+    }
+
+    private static boolean isInPhase(String phase, GameState state, int numberPlayed) {
+        return switch(phase) {
+            case "opening" -> numberPlayed >= OPENING_MOVES;
+            case "midgame" -> numberPlayed >= MIDGAME_MOVES;
+            default -> Math.max(state.getPlayer1Score(), state.getPlayer2Score()) >= ENDGAME_POINTS;
+        };
+    }
+
+    private boolean hasEveryMoveType(int numberMoves) {
+        int types = 0;
+        for(int i = 0; i < numberMoves; i ++)
+            types |= 1 << MoveEncoding.getType(moves[i]).ordinal();
+        return types == (1 << Move.Type.values().length) - 1;
+    }
+}
@@ -0,0 +1,68 @@
+package splendor.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Time of the operations search repeats at every node, on an opening, a midgame and an endgame position
+// The handle benchmarks apply the move to a copy of the position, so copyState is their baseline
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HotPathBenchmark {
+    @Param({"opening", "midgame", "endgame"})
+    public String phase;
+
+    @Param({"1"})
+    public long seed;
+
+    private HotPaths hotPaths;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        hotPaths = HotPaths.load(phase, seed, 0);
+    }
+
+    @Benchmark
+    public Object copyState() {
+        return hotPaths.copyState();
+    }
+
+    @Benchmark
+    public Object handleBuyCardMove() {
+        return hotPaths.handleBuyCardMove();
+    }
+
+    @Benchmark
+    public Object handleReserveCardMove() {
+        return hotPaths.handleReserveCardMove();
+    }
+
+    @Benchmark
+    public Object handleTakeTokensMove() {
+        return hotPaths.handleTakeTokensMove();
+    }
+
+    @Benchmark
+    public int getAvailableMoves() {
+        return hotPaths.getAvailableMoves();
+    }
+
+    @Benchmark
+    public double linearHeuristic() {
+        return hotPaths.linearHeuristic();
+    }
+}
@@ -0,0 +1,36 @@
+package splendor.benchmarks;
+
+// Operations measured by the benchmarks, on the position set up by setUp()
+// The game classes are in the default package, which classes of a named package cannot refer to, and JMH does not
+// accept benchmarks in the default package. HotPathWorkload implements this interface in the default package, and
+// the benchmarks load it by name
+public interface HotPaths {
+    // Sets up the position reached in the given phase of the game set up with the seed: opening, midgame or endgame
+    // The same phase and seed always give the same position. plyNumber is the depth of minimaxSearch()
+    void setUp(String phase, long seed, int plyNumber);
+
+    // Returns a copy of the position
+    Object copyState();
+
+    // Apply a move of each type to a copy of the position, so that each includes the time of copyState()
+    Object handleBuyCardMove();
+
+    Object handleReserveCardMove();
+
+    Object handleTakeTokensMove();
+
+    // Returns the number of moves available in the position
+    int getAvailableMoves();
+
+    // Returns the value of the position for the player to move, as MinimaxAgent evaluates its leaves
+    double linearHeuristic();
+
+    // Returns the move MinimaxAgent chooses in the position, searching a fixed number of plies
+    Object minimaxSearch();
+
+    static HotPaths load(String phase, long seed, int plyNumber) throws ReflectiveOperationException {
+        HotPaths hotPaths = (HotPaths) Class.forName("HotPathWorkload").getDeclaredConstructor().newInstance();
+        hotPaths.setUp(phase, seed, plyNumber);
+        return hotPaths;
+    }
+}
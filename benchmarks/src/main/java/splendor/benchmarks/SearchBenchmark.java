@@ -0,0 +1,45 @@
+package splendor.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Time of a whole fixed-depth minimax search, with the settings of the 3- and 5-ply agents of the command line
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SearchBenchmark {
+    @Param({"opening", "midgame", "endgame"})
+    public String phase;
+
+    @Param({"1"})
+    public long seed;
+
+    @Param({"3", "5"})
+    public int plyNumber;
+
+    private HotPaths hotPaths;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        hotPaths = HotPaths.load(phase, seed, plyNumber);
+    }
+
+    @Benchmark
+    public Object minimaxSearch() {
+        return hotPaths.minimaxSearch();
+    }
+}
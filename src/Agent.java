@@ -1,9 +1,27 @@
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.SplittableRandom;
 
 abstract class Agent {
+    // Source of the random choices of the agent, such as the moves of a random agent or the outcomes sampled by search
+    protected SplittableRandom random = new SplittableRandom();
+
+    // Number of reserve slots, which come first once the slots of ProgressIndices are rotated (see
+    // addAvailableBuyCardMoves())
+    private static final int RESERVE_SLOTS = ProgressIndices.SLOTS - ProgressIndices.RESERVE_SLOT;
+
     public abstract Move generateMove(GameState state);
 
+    /**
+     * @param seed - seed of the random choices of the agent
+     *
+     * A seeded agent searching on a single thread without a time budget makes the same moves from the same states
+     * on every run
+     */
+    public void setSeed(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
     /**
      * @param state - game state at some point in the game
      * @return array of available moves the player can make at the given state
@@ -16,283 +34,105 @@ abstract class Agent {
         return resultArray;
     }
 
+    /**
+     * @param state - game state at some point in the game
+     * @param moveBuffer - array of at least MoveEncoding.MAX_MOVES elements, in which the moves are written as
+     * MoveEncoding codes
+     * @return number of available moves for the given state, written at the start of moveBuffer in the same order as
+     * getAvailableMoves(state) lists them
+     */
+    public int getAvailableMoves(final GameState state, final int[] moveBuffer) {
+        int numberMoves = addAvailableBuyCardMoves(state, moveBuffer, 0);
+        numberMoves = addAvailableReserveCardMoves(state, moveBuffer, numberMoves);
+
+        int firstTakeTokensMove = numberMoves;
+        numberMoves = addAvailableTakeTokensMoves(state, moveBuffer, numberMoves);
+        for(int i = firstTakeTokensMove; i < numberMoves; i ++)
+            moveBuffer[i] = MoveEncoding.encodeTakeTokens(state.getPlayerToMove(), moveBuffer[i]);
+
+        return numberMoves;
+    }
+
     /**
      * @param state - game state at some point in the game
      * @return array of available TakeTokensMoves for the given state
      */
     public ArrayList<TakeTokensMove> getAvailableTakeTokensMoves(final GameState state) {
+        int[] moveBuffer = new int[TokenPatterns.MAX_MOVES];
+        int numberMoves = getAvailableTakeTokensMoves(state, moveBuffer);
+
+        ArrayList<TakeTokensMove> moveList = new ArrayList<>(numberMoves);
+        for(int i = 0; i < numberMoves; i ++)
+            moveList.add(TokenPatterns.toMove(state.getPlayerToMove(), moveBuffer[i]));
+        return moveList;
+    }
+
+    /**
+     * @param state - game state at some point in the game
+     * @param moveBuffer - array of at least TokenPatterns.MAX_MOVES elements, in which the moves are written as
+     * TokenPatterns codes
+     * @return number of available TakeTokensMoves for the given state, written at the start of moveBuffer
+     *
+     * The moves are generated from the table of token patterns, without allocating: a take pattern is available if the
+     * supply holds its tokens, and a return pattern if the player holds its tokens after taking
+     */
+    public int getAvailableTakeTokensMoves(final GameState state, final int[] moveBuffer) {
+        return addAvailableTakeTokensMoves(state, moveBuffer, 0);
+    }
+
+    /**
+     * Writes the available TakeTokensMoves to moveBuffer as TokenPatterns codes, starting at numberMoves
+     * @return number of moves in moveBuffer after adding the moves
+     */
+    private int addAvailableTakeTokensMoves(final GameState state, final int[] moveBuffer, int numberMoves) {
         int player = state.getPlayerToMove();
-        int[] playerTokens = new int[6];
-        if(player == 1)
-            playerTokens = state.getPlayer1Tokens();
-        if(player == 2)
-            playerTokens = state.getPlayer2Tokens();
+        int[] playerTokens = player == 1 ? state.getPlayer1Tokens() : state.getPlayer2Tokens();
         int[] supplyTokens = state.getSupplyTokens();
-        ArrayList<TakeTokensMove> moveList = new ArrayList<>();
 
-        // Generate all possibilities for taking tokens
+        int numberPlayerTokens = 0;
+        for(int i = 0; i < 6; i ++)
+            numberPlayerTokens += playerTokens[i];
+
+        // Piles with at least one token, and piles with enough tokens to take 2
+        int availablePiles = 0, fullPiles = 0;
+        for(int i = 0; i < 5; i ++) {
+            if(supplyTokens[i] >= 1)
+                availablePiles |= 1 << i;
+            if(supplyTokens[i] >= 4)
+                fullPiles |= 1 << i;
+        }
 
         // Generate moves taking 2 identical tokens
-        for(int i = 0; i < supplyTokens.length - 1; i ++) {
-            // Need pile to have at least 4 tokens
-            if(supplyTokens[i] >= 4) {
-                int[] tokensToTake = {0, 0, 0, 0, 0};
-                tokensToTake[i] = 2;
-                int[] tokensToReturn = {0, 0, 0, 0, 0};
-
-                // Need to return tokens
-                if(Arrays.stream(playerTokens).sum() + 2 > 10) {
-                    // Need to return at most 2 tokens
-                    int numTokensToReturn = Arrays.stream(playerTokens).sum() + 2 - 10;
-
-                    if(numTokensToReturn == 1) {
-                        // Return a single token
-                        for(int j = 0; j < playerTokens.length - 1; j ++)
-                            if(playerTokens[j] + tokensToTake[j] >= 1) {
-                                tokensToReturn[j] = 1;
-                                moveList.add(new TakeTokensMove(player, tokensToTake, tokensToReturn));
-                                tokensToReturn[j] = 0;
-                            }
-                    }
-                    else {
-                        // Return two identical tokens
-                        for(int j = 0; j < playerTokens.length - 1; j ++)
-                            if(playerTokens[j] + tokensToTake[j] >= 2) {
-                                tokensToReturn[j] = 2;
-                                moveList.add(new TakeTokensMove(player, tokensToTake, tokensToReturn));
-                                tokensToReturn[j] = 0;
-                            }
-
-                        // Return two different tokens
-                        for(int j = 0; j < playerTokens.length - 2; j ++)
-                            if(playerTokens[j] + tokensToTake[j] >= 1)
-                                for(int k = j + 1; k < playerTokens.length - 1; k ++)
-                                    if(playerTokens[k] + tokensToTake[k] >= 1) {
-                                        tokensToReturn[j] = 1;
-                                        tokensToReturn[k] = 1;
-                                        moveList.add(new TakeTokensMove(player, tokensToTake, tokensToReturn));
-                                        tokensToReturn[j] = 0;
-                                        tokensToReturn[k] = 0;
-                                    }
-                    }
-                }
-                // No returns needed
-                else {
-                    moveList.add(new TakeTokensMove(player, tokensToTake, tokensToReturn));
-                }
+        for(int i = 0; i < 5; i ++)
+            if((fullPiles & 1 << i) != 0)
+                numberMoves = addTakeTokensMoves(TokenPatterns.TAKE_TWO_IDENTICAL + i, playerTokens, numberPlayerTokens,
+                        moveBuffer, numberMoves);
+
+        // Generate moves taking 3 different tokens, or fewer if less than 3 piles are available
+        int first, last;
+        switch(Integer.bitCount(availablePiles)) {
+            case 1 -> {
+                first = TokenPatterns.TAKE_ONE;
+                last = TokenPatterns.TAKE_TWO_DIFFERENT;
+            }
+            case 2 -> {
+                first = TokenPatterns.TAKE_TWO_DIFFERENT;
+                last = TokenPatterns.TAKE_THREE_DIFFERENT;
+            }
+            default -> {
+                first = TokenPatterns.TAKE_THREE_DIFFERENT;
+                last = TokenPatterns.TAKE_NONE;
             }
         }
-
-        // Generate moves taking 3 (or fewer) different tokens
-
-        // Count available supply piles
-        int availableSupplyPiles = 0;
-        for (int i = 0; i < supplyTokens.length - 1; i++)
-            if (supplyTokens[i] > 0)
-                availableSupplyPiles++;
-
-        // Need special case for 1 available supply pile
-        if(availableSupplyPiles == 1) {
-            for(int i = 0; i < supplyTokens.length - 1; i ++)
-                if(supplyTokens[i] >= 1) {
-                    int[] tokensToTake = {0, 0, 0, 0, 0};
-                    tokensToTake[i] = 1;
-                    int[] tokensToReturn = {0, 0, 0, 0, 0};
-
-                    // Need to return tokens
-                    if(Arrays.stream(playerTokens).sum() + 1 > 10) {
-                        // Need to return a single token
-                        for(int j = 0; j < playerTokens.length - 1; j ++)
-                            if(playerTokens[j] + tokensToTake[j] >= 1) {
-                                tokensToReturn[j] = 1;
-                                moveList.add(new TakeTokensMove(player, tokensToTake, tokensToReturn));
-                                tokensToReturn[j] = 0;
-                            }
-                    }
-                    // No returns needed
-                    else {
-                        moveList.add(new TakeTokensMove(player, tokensToTake, tokensToReturn));
-                    }
-
-                    // Break loop, as all moves for this case will have now been added
-                    break;
-                }
-        }
-        // Need special case for 2 available supply piles
-        else if(availableSupplyPiles == 2) {
-            for(int i = 0; i < supplyTokens.length - 2; i ++)
-                if(supplyTokens[i] >= 1)
-                    for(int j = i + 1; j < supplyTokens.length - 1; j ++)
-                        if(supplyTokens[j] >= 1) {
-                            int[] tokensToTake = {0, 0, 0, 0, 0};
-                            tokensToTake[i] = 1;
-                            tokensToTake[j] = 1;
-                            int[] tokensToReturn = {0, 0, 0, 0, 0};
-
-                            // Need to return tokens
-                            if(Arrays.stream(playerTokens).sum() + 2 > 10) {
-                                // Need to return at most 2 tokens
-                                int numTokensToReturn = Arrays.stream(playerTokens).sum() + 2 - 10;
-
-                                if(numTokensToReturn == 1) {
-                                    // Return a single token
-                                    for(int k = 0; k < playerTokens.length - 1; k ++)
-                                        if(playerTokens[k] + tokensToTake[k] >= 1) {
-                                            tokensToReturn[k] = 1;
-                                            moveList.add(new TakeTokensMove(player, tokensToTake, tokensToReturn));
-                                            tokensToReturn[k] = 0;
-                                        }
-                                }
-                                else {
-                                    // Return two identical tokens
-                                    for(int k = 0; k < playerTokens.length - 1; k ++)
-                                        if(playerTokens[k] + tokensToTake[k] >= 2) {
-                                            tokensToReturn[k] = 2;
-                                            moveList.add(new TakeTokensMove(player, tokensToTake, tokensToReturn));
-                                            tokensToReturn[k] = 0;
-                                        }
-
-                                    // Return two different tokens
-                                    for(int k = 0; k < playerTokens.length - 2; k ++)
-                                        if(playerTokens[k] + tokensToTake[k] >= 1)
-                                            for(int t = k + 1; t < playerTokens.length - 1; t ++)
-                                                if(playerTokens[t] + tokensToTake[t] >= 1) {
-                                                    tokensToReturn[k] = 1;
-                                                    tokensToReturn[t] = 1;
-                                                    moveList.add(new TakeTokensMove(player, tokensToTake, tokensToReturn));
-                                                    tokensToReturn[k] = 0;
-                                                    tokensToReturn[t] = 0;
-                                                }
-                                }
-                            }
-                            // No returns needed
-                            else {
-                                moveList.add(new TakeTokensMove(player, tokensToTake, tokensToReturn));
-                            }
-
-                            // Break both loops, as all moves for this case will have been added
-                            i = supplyTokens.length;
-                            break;
-                        }
-        }
-        // Base case - 3 or more available supply piles
-        else {
-            for(int i = 0; i < supplyTokens.length - 3; i ++)
-                if(supplyTokens[i] >= 1)
-                    for(int j = i + 1; j < supplyTokens.length - 2; j ++)
-                        if(supplyTokens[j] >= 1)
-                            for(int k = j + 1; k < supplyTokens.length - 1; k ++)
-                                if(supplyTokens[k] >= 1) {
-                                    int[] tokensToTake = {0, 0, 0, 0, 0};
-                                    tokensToTake[i] = 1;
-                                    tokensToTake[j] = 1;
-                                    tokensToTake[k] = 1;
-                                    int[] tokensToReturn = {0, 0, 0, 0, 0};
-
-                                    // Need to return tokens
-                                    if(Arrays.stream(playerTokens).sum() + 3 > 10) {
-                                        // Need to return at most 3 tokens
-                                        int numTokensToReturn = Arrays.stream(playerTokens).sum() + 3 - 10;
-
-                                        if(numTokensToReturn == 1) {
-                                            // Return a single token
-                                            for(int t = 0; t < playerTokens.length - 1; t ++)
-                                                if(playerTokens[t] + tokensToTake[t] >= 1) {
-                                                    tokensToReturn[t] = 1;
-                                                    moveList.add(new TakeTokensMove(player, tokensToTake, tokensToReturn));
-                                                    tokensToReturn[t] = 0;
-                                                }
-                                        }
-                                        else if(numTokensToReturn == 2) {
-                                            // Return two identical tokens
-                                            for(int t = 0; t < playerTokens.length - 1; t ++)
-                                                if(playerTokens[t] + tokensToTake[t] >= 2) {
-                                                    tokensToReturn[t] = 2;
-                                                    moveList.add(new TakeTokensMove(player, tokensToTake, tokensToReturn));
-                                                    tokensToReturn[t] = 0;
-                                                }
-
-                                            // Return two different tokens
-                                            for(int t = 0; t < playerTokens.length - 2; t ++)
-                                                if(playerTokens[t] + tokensToTake[t] >= 1)
-                                                    for(int u = t + 1; u < playerTokens.length - 1; u ++)
-                                                        if(playerTokens[u] + tokensToTake[u] >= 1) {
-                                                            tokensToReturn[t] = 1;
-                                                            tokensToReturn[u] = 1;
-                                                            moveList.add(new TakeTokensMove(player, tokensToTake, tokensToReturn));
-                                                            tokensToReturn[t] = 0;
-                                                            tokensToReturn[u] = 0;
-                                                        }
-                                        }
-                                        else {
-                                            // Return three identical tokens
-                                            for(int t = 0; t < playerTokens.length - 1; t ++)
-                                                if(playerTokens[t] + tokensToTake[t] >= 3) {
-                                                    tokensToReturn[t] = 3;
-                                                    moveList.add(new TakeTokensMove(player, tokensToTake, tokensToReturn));
-                                                    tokensToReturn[t] = 0;
-                                                }
-
-                                            // Return two tokens of one type and one of another type
-                                            for(int t = 0; t < playerTokens.length - 2; t ++) {
-                                                if(playerTokens[t] + tokensToTake[t] >= 1) {
-                                                    for(int u = t + 1; u < playerTokens.length - 1; u ++)
-                                                        if(playerTokens[u] + tokensToTake[u] >= 2) {
-                                                            tokensToReturn[t] = 1;
-                                                            tokensToReturn[u] = 2;
-                                                            moveList.add(new TakeTokensMove(player, tokensToTake, tokensToReturn));
-                                                            tokensToReturn[t] = 0;
-                                                            tokensToReturn[u] = 0;
-                                                        }
-                                                }
-                                                if(playerTokens[t] + tokensToTake[t] >= 2) {
-                                                    for(int u = t + 1; u < playerTokens.length - 1; u ++)
-                                                        if(playerTokens[u] + tokensToTake[u] >= 1) {
-                                                            tokensToReturn[t] = 2;
-                                                            tokensToReturn[u] = 1;
-                                                            moveList.add(new TakeTokensMove(player, tokensToTake, tokensToReturn));
-                                                            tokensToReturn[t] = 0;
-                                                            tokensToReturn[u] = 0;
-                                                        }
-
-                                                }
-                                            }
-
-                                            // Return three different tokens
-                                            for(int t = 0; t < playerTokens.length - 3; t ++)
-                                                if(playerTokens[t] + tokensToTake[t] >= 1)
-                                                    for(int u = t + 1; u < playerTokens.length - 2; u ++)
-                                                        if(playerTokens[u] + tokensToTake[u] >= 1)
-                                                            for(int v = u + 1; v < playerTokens.length - 1; v ++)
-                                                                if(playerTokens[v] + tokensToTake[v] >= 1) {
-                                                                    tokensToReturn[t] = 1;
-                                                                    tokensToReturn[u] = 1;
-                                                                    tokensToReturn[v] = 1;
-                                                                    moveList.add(new TakeTokensMove(player, tokensToTake, tokensToReturn));
-                                                                    tokensToReturn[t] = 0;
-                                                                    tokensToReturn[u] = 0;
-                                                                    tokensToReturn[v] = 0;
-                                                                }
-                                        }
-
-                                    }
-                                    // No returns needed
-                                    else {
-                                        moveList.add(new TakeTokensMove(player, tokensToTake, tokensToReturn));
-                                    }
-                                }
-
-        }
+        for(int take = first; take < last; take ++)
+            if((TokenPatterns.getTakeMask(take) & ~availablePiles) == 0)
+                numberMoves = addTakeTokensMoves(take, playerTokens, numberPlayerTokens, moveBuffer, numberMoves);
 
         // Exception case - player has no available moves but opponent does, forcing player to take 0 tokens
-        if(state.playerHasNoValidMoves(player) && !state.isGameOver()) {
-            int[] tokensToTake = {0, 0, 0, 0, 0};
-            int[] tokensToReturn = {0, 0, 0, 0, 0};
-            moveList.add(new TakeTokensMove(player, tokensToTake, tokensToReturn));
-        }
+        if(state.playerHasNoValidMoves(player) && !state.isGameOver())
+            moveBuffer[numberMoves ++] = TokenPatterns.encode(TokenPatterns.TAKE_NONE, TokenPatterns.RETURN_NONE);
 
-        // Remove moves leading to identical states
-        return removeIdenticalTakeTokensMoves(state, moveList);
+        return numberMoves;
     }
 
     /**
@@ -300,189 +140,201 @@ abstract class Agent {
      * @return array of available ReserveCardMoves for the given state
      */
     public ArrayList<ReserveCardMove> getAvailableReserveCardMoves(final GameState state) {
-        ArrayList<ReserveCardMove> resultArray = new ArrayList<>();
+        int[] moveBuffer = new int[MoveEncoding.MAX_MOVES];
+        int numberMoves = addAvailableReserveCardMoves(state, moveBuffer, 0);
+
+        ArrayList<ReserveCardMove> resultArray = new ArrayList<>(numberMoves);
+        for(int i = 0; i < numberMoves; i ++)
+            resultArray.add((ReserveCardMove) MoveEncoding.toMove(moveBuffer[i]));
+        return resultArray;
+    }
+
+    /**
+     * @param state - game state at some point in the game
+     * @return array of available BuyCardMoves for the given state
+     */
+    public ArrayList<BuyCardMove> getAvailableBuyCardMoves(final GameState state) {
+        int[] moveBuffer = new int[MoveEncoding.MAX_MOVES];
+        int numberMoves = addAvailableBuyCardMoves(state, moveBuffer, 0);
+
+        ArrayList<BuyCardMove> movesList = new ArrayList<>(numberMoves);
+        for(int i = 0; i < numberMoves; i ++)
+            movesList.add((BuyCardMove) MoveEncoding.toMove(moveBuffer[i]));
+        return movesList;
+    }
+
+    /**
+     * Writes the available ReserveCardMoves to moveBuffer as MoveEncoding codes, starting at numberMoves
+     * @return number of moves in moveBuffer after adding the moves
+     */
+    private int addAvailableReserveCardMoves(final GameState state, final int[] moveBuffer, int numberMoves) {
         int player = state.getPlayerToMove();
 
         // Check if reserve limit has been reached
         if((player == 1 && state.getPlayer1Reserve().size() < 3) || (player == 2 && state.getPlayer2Reserve().size() < 3)) {
             // Check if returning tokens is needed
-            int[] tokensToReturn = {0, 0, 0, 0, 0};
+            int[] playerTokens = player == 1 ? state.getPlayer1Tokens() : state.getPlayer2Tokens();
             boolean needToReturn = false;
             if(state.getSupplyTokens()[5] > 0)
-                if((player == 1 && Arrays.stream(state.getPlayer1Tokens()).sum() >= 10)
-                        || (player == 2 && Arrays.stream(state.getPlayer2Tokens()).sum() >= 10))
+                if(Arrays.stream(playerTokens).sum() >= 10)
                     needToReturn = true;
 
             if(needToReturn) {
                 // Go through all possibilities for returning the token, and through all cards for each case
-                int[] playerColoredTokens = {0, 0, 0, 0, 0};
-                if(player == 1) {
-                    for(int i = 0; i < state.getPlayer1Tokens().length - 1; i ++)
-                        playerColoredTokens[i] = state.getPlayer1Tokens()[i];
-
-                }
-                else {
-                    for(int i = 0; i < state.getPlayer2Tokens().length - 1; i ++)
-                        playerColoredTokens[i] = state.getPlayer2Tokens()[i];
-
-                }
-
-                for(int i = 0; i < playerColoredTokens.length - 1; i ++)
-                    if(playerColoredTokens[i] > 0) {
-                        tokensToReturn[i] = 1;
-
-                        // Go through all tiers and cards, including blind reserve
-                        for(int j = 0; j < state.getTier1Market().size(); j ++)
-                            resultArray.add(new ReserveCardMove(player, j, 1, tokensToReturn));
-                        if(!state.getTier1Deck().isEmpty())
-                            resultArray.add(new ReserveCardMove(player, 4, 1, tokensToReturn));
-
-                        for(int j = 0; j < state.getTier2Market().size(); j ++)
-                            resultArray.add(new ReserveCardMove(player, j, 2, tokensToReturn));
-                        if(!state.getTier2Deck().isEmpty())
-                            resultArray.add(new ReserveCardMove(player, 4, 2, tokensToReturn));
-
-                        for(int j = 0; j < state.getTier3Market().size(); j ++)
-                            resultArray.add(new ReserveCardMove(player, j, 3, tokensToReturn));
-                        if(!state.getTier3Deck().isEmpty())
-                            resultArray.add(new ReserveCardMove(player, 4, 3, tokensToReturn));
-
-                        tokensToReturn[i] = 0;
-                    }
-            }
-            else {
-                // Go through all tiers and cards, including blind reserve
-                for(int i = 0; i < state.getTier1Market().size(); i ++)
-                    resultArray.add(new ReserveCardMove(player, i, 1, tokensToReturn));
-                if(!state.getTier1Deck().isEmpty())
-                    resultArray.add(new ReserveCardMove(player, 4, 1, tokensToReturn));
-
-                for(int i = 0; i < state.getTier2Market().size(); i ++)
-                    resultArray.add(new ReserveCardMove(player, i, 2, tokensToReturn));
-                if(!state.getTier2Deck().isEmpty())
-                    resultArray.add(new ReserveCardMove(player, 4, 2, tokensToReturn));
-
-                for(int i = 0; i < state.getTier3Market().size(); i ++)
-                    resultArray.add(new ReserveCardMove(player, i, 3, tokensToReturn));
-                if(!state.getTier3Deck().isEmpty())
-                    resultArray.add(new ReserveCardMove(player, 4, 3, tokensToReturn));
+                for(int i = 0; i < 4; i ++)
+                    if(playerTokens[i] > 0)
+                        numberMoves = addReserveCardMoves(state, player, TokenPatterns.RETURN_FIRST[1] + i,
+                                moveBuffer, numberMoves);
             }
+            else
+                numberMoves = addReserveCardMoves(state, player, TokenPatterns.RETURN_NONE, moveBuffer, numberMoves);
         }
 
-        return resultArray;
+        return numberMoves;
     }
 
     /**
-     * @param state - game state at some point in the game
-     * @return array of available ReserveCardMoves for the given state
+     * Writes the moves reserving each card of the market and each top card of the decks while returning the tokens
+     * of the return pattern to moveBuffer, starting at numberMoves
+     * @return number of moves in moveBuffer after adding the moves
      */
-    public ArrayList<BuyCardMove> getAvailableBuyCardMoves(final GameState state) {
-        ArrayList<BuyCardMove> movesList = new ArrayList<>();
+    private int addReserveCardMoves(final GameState state, int player, int returnPattern, final int[] moveBuffer,
+                                    int numberMoves) {
+        // Go through all tiers and cards, including blind reserve
+        for(int i = 0; i < state.getTier1Market().size(); i ++)
+            moveBuffer[numberMoves ++] = MoveEncoding.encodeReserveCard(player, 1, i, returnPattern);
+        if(!state.getTier1Deck().isEmpty())
+            moveBuffer[numberMoves ++] = MoveEncoding.encodeReserveCard(player, 1, 4, returnPattern);
+
+        for(int i = 0; i < state.getTier2Market().size(); i ++)
+            moveBuffer[numberMoves ++] = MoveEncoding.encodeReserveCard(player, 2, i, returnPattern);
+        if(!state.getTier2Deck().isEmpty())
+            moveBuffer[numberMoves ++] = MoveEncoding.encodeReserveCard(player, 2, 4, returnPattern);
+
+        for(int i = 0; i < state.getTier3Market().size(); i ++)
+            moveBuffer[numberMoves ++] = MoveEncoding.encodeReserveCard(player, 3, i, returnPattern);
+        if(!state.getTier3Deck().isEmpty())
+            moveBuffer[numberMoves ++] = MoveEncoding.encodeReserveCard(player, 3, 4, returnPattern);
+
+        return numberMoves;
+    }
+
+    /**
+     * Writes the available BuyCardMoves to moveBuffer as MoveEncoding codes, starting at numberMoves
+     * @return number of moves in moveBuffer after adding the moves
+     *
+     * The moves are read from the slots the player can afford, which the state keeps up to date (see
+     * ProgressIndices), and from the nobles a card of each bonus color would attract, without checking each move. A
+     * purchase must choose a noble if it attracts any, so a card attracting no noble gives a single move, and a card
+     * attracting nobles gives one move per noble. The moves are written in the order of the nobles (none first), then
+     * of the cards: reserve first, then market by tier
+     */
+    private int addAvailableBuyCardMoves(final GameState state, final int[] moveBuffer, int numberMoves) {
+        if(state.isGameOver())
+            return numberMoves;
         int player = state.getPlayerToMove();
-        int[] playerCards = new int[5];
-
-        if (player == 1) {
-            for (int i = 0; i < state.getPlayer1Cards().length; i++)
-                playerCards[i] = state.getPlayer1Cards()[i];
-        } else if (player == 2) {
-            for (int i = 0; i < state.getPlayer2Cards().length; i++)
-                playerCards[i] = state.getPlayer2Cards()[i];
+        int gold = (player == 1 ? state.getPlayer1Tokens() : state.getPlayer2Tokens())[5];
+        ProgressIndices indices = state.getProgressIndices();
+
+        // Rotate the slots so that the reserve slots come first
+        int affordableSlots = indices.getAffordableSlots(player, gold);
+        affordableSlots = (affordableSlots >>> ProgressIndices.RESERVE_SLOT | affordableSlots << RESERVE_SLOTS) &
+                (1 << ProgressIndices.SLOTS) - 1;
+        if(affordableSlots == 0)
+            return numberMoves;
+
+        int nobleTriggers = state.getNobleTriggers(player);
+        int noNobleSlots = 0, nobleSlots = 0;
+        for(int slots = affordableSlots; slots != 0; slots &= slots - 1) {
+            int bit = slots & -slots;
+            if(getSlotNobles(indices, player, nobleTriggers, bit) == 0)
+                noNobleSlots |= bit;
+            else
+                nobleSlots |= bit;
         }
 
-        // Only check moves attracting nobles if player has 3 piles larger than 2 cards, or 2 piles larger than 3 cards
-        int numStacks2Cards = 0, numStacks3Cards = 0;
-        for (int playerCard : playerCards) {
-            if (playerCard >= 3) {
-                numStacks3Cards++;
-                numStacks2Cards++;
-            } else if (playerCard >= 2) {
-                numStacks2Cards++;
+        numberMoves = addBuyCardMoves(player, noNobleSlots, -1, moveBuffer, numberMoves);
+        for(int nobleIndex = 0; nobleIndex < state.getNoblesMarket().size() && nobleSlots != 0; nobleIndex ++) {
+            int slotsAttracting = 0;
+            for(int slots = nobleSlots; slots != 0; slots &= slots - 1) {
+                int bit = slots & -slots;
+                if((getSlotNobles(indices, player, nobleTriggers, bit) & 1 << nobleIndex) != 0)
+                    slotsAttracting |= bit;
             }
+            numberMoves = addBuyCardMoves(player, slotsAttracting, nobleIndex, moveBuffer, numberMoves);
         }
 
-        for (int nobleIndex = -1; nobleIndex < state.getNoblesMarket().size(); nobleIndex ++) {
-            if (nobleIndex < 0 || (numStacks2Cards >= 3 || numStacks3Cards >= 2)) {
-                for (int tier = 0; tier <= 3; tier++) {
-                    int numberTierCards = 0;
-                    if (tier == 0) {
-                        if (player == 1)
-                            numberTierCards = state.getPlayer1Reserve().size();
-                        else if (player == 2)
-                            numberTierCards = state.getPlayer2Reserve().size();
-                    } else if (tier == 1)
-                        numberTierCards = state.getTier1Market().size();
-                    else if (tier == 2)
-                        numberTierCards = state.getTier2Market().size();
-                    else
-                        numberTierCards = state.getTier3Market().size();
-
-                    for (int cardIndex = 0; cardIndex < numberTierCards; cardIndex++) {
-                        BuyCardMove newMove = new BuyCardMove(player, tier, cardIndex, nobleIndex);
-                        if (state.buyCardMoveIsValid(newMove))
-                            movesList.add(newMove);
-                    }
-                }
-            }
-        }
+        return numberMoves;
+    }
 
-        return movesList;
+    /**
+     * @param bit - bit of a slot in the rotated slots of addAvailableBuyCardMoves()
+     * @return the nobles the player would attract by buying the card in the slot, one bit per index in the nobles
+     * market
+     */
+    private static int getSlotNobles(final ProgressIndices indices, int player, int nobleTriggers, int bit) {
+        int slot = toSlot(bit);
+        return nobleTriggers >>> 5 * indices.getBonusColor(player, slot) & 0x1F;
     }
 
     /**
-     * @param movesList - array of available moves generated
-     * @return processed array, where multiple moves leading to the same game state are reduced to a single move
-     * In some cases, multiple take tokens moves leading to the same state will be generated.
-     * This is often the case with moves where there is a need to return card.
-     * This function takes an array of generated TakeTokensMove items, and only keeps one move for each resulting state,
-     * returning the resulting array
+     * Writes the moves buying the cards in the rotated slots of addAvailableBuyCardMoves() and choosing the noble to
+     * moveBuffer, starting at numberMoves
+     * @return number of moves in moveBuffer after adding the moves
      */
-    private ArrayList<TakeTokensMove> removeIdenticalTakeTokensMoves(final GameState state, ArrayList<TakeTokensMove> movesList) {
-        ArrayList<int[]> uniquePlayerTokensArrays = new ArrayList<>();
-        int[] playerTokens = {0, 0, 0, 0, 0, 0};
-        if (state.getPlayerToMove() == 1) {
-            for(int i = 0; i < state.getPlayer1Tokens().length; i ++)
-                playerTokens[i] = state.getPlayer1Tokens()[i];
+    private static int addBuyCardMoves(int player, int slots, int nobleIndex, final int[] moveBuffer,
+                                       int numberMoves) {
+        for(; slots != 0; slots &= slots - 1) {
+            int slot = toSlot(slots & -slots);
+            if(slot >= ProgressIndices.RESERVE_SLOT)
+                moveBuffer[numberMoves ++] = MoveEncoding.encodeBuyCard(player, 0, slot - ProgressIndices.RESERVE_SLOT,
+                        nobleIndex);
+            else
+                moveBuffer[numberMoves ++] = MoveEncoding.encodeBuyCard(player, slot / 4 + 1, slot % 4, nobleIndex);
         }
-        else if(state.getPlayerToMove() == 2) {
-            for(int i = 0; i < state.getPlayer1Tokens().length; i ++)
-                playerTokens[i] = state.getPlayer2Tokens()[i];
-        }
-
-        for(int i = 0; i < movesList.size(); i ++) {
-            int[] resultingPlayerTokens = new int[6];
-
-            // See resulting player tokens
-            for(int j = 0; j < playerTokens.length - 1; j ++) {
-                resultingPlayerTokens[j] = playerTokens[j] + movesList.get(i).getTokensToTake()[j];
-            }
+        return numberMoves;
+    }
 
-            // Check if the layout has been achieved before
-            // If not, add to list of unique arrays
-            boolean layoutIsUnique = true;
-            for (int[] uniqueArray : uniquePlayerTokensArrays) {
-                boolean allPilesIdentical = true;
-                for (int k = 0; k < playerTokens.length - 1; k++) {
-                    if (playerTokens[k] != uniqueArray[k]) {
-                        allPilesIdentical = false;
-                        break;
-                    }
-                }
-
-                if (allPilesIdentical) {
-                    layoutIsUnique = false;
-                    break;
-                }
-            }
+    /**
+     * @param bit - bit of a slot in the rotated slots of addAvailableBuyCardMoves()
+     * @return the slot (see ProgressIndices)
+     */
+    private static int toSlot(int bit) {
+        int position = Integer.numberOfTrailingZeros(bit);
+        return position < RESERVE_SLOTS ? ProgressIndices.RESERVE_SLOT + position : position - RESERVE_SLOTS;
+    }
 
-            if(layoutIsUnique) {
-                uniquePlayerTokensArrays.add(resultingPlayerTokens);
-            }
-            else {
-                // Remove element from moveList and prepare loop to check the next element
-                movesList.remove(movesList.get(i));
-                i --;
-            }
+    /**
+     * Writes the moves taking the tokens of the take pattern to moveBuffer, starting at numberMoves: a single move if
+     * the player can keep all the tokens, or one move for each way of returning the tokens over the limit of 10
+     * @return number of moves in moveBuffer after adding the moves
+     */
+    private int addTakeTokensMoves(int take, int[] playerTokens, int numberPlayerTokens, int[] moveBuffer, int numberMoves) {
+        int numberTokensToReturn = numberPlayerTokens + TokenPatterns.getTakeSize(take) - 10;
+        if(numberTokensToReturn <= 0) {
+            moveBuffer[numberMoves ++] = TokenPatterns.encode(take, TokenPatterns.RETURN_NONE);
+            return numberMoves;
         }
-        return movesList;
+        numberTokensToReturn = Math.min(numberTokensToReturn, TokenPatterns.getTakeSize(take));
+
+        // Colors of which the player would hold at least 1, 2 and 3 tokens after taking
+        int[] tokensToTake = TokenPatterns.getTokensToTake(TokenPatterns.encode(take, TokenPatterns.RETURN_NONE));
+        int atLeastOne = 0, atLeastTwo = 0, atLeastThree = 0;
+        for(int i = 0; i < 5; i ++) {
+            int tokens = playerTokens[i] + tokensToTake[i];
+            if(tokens >= 1)
+                atLeastOne |= 1 << i;
+            if(tokens >= 2)
+                atLeastTwo |= 1 << i;
+            if(tokens >= 3)
+                atLeastThree |= 1 << i;
+        }
+
+        int firstReturn = TokenPatterns.RETURN_FIRST[numberTokensToReturn];
+        int lastReturn = TokenPatterns.RETURN_FIRST[numberTokensToReturn + 1];
+        for(int ret = firstReturn; ret < lastReturn; ret ++)
+            if(TokenPatterns.canReturn(ret, atLeastOne, atLeastTwo, atLeastThree))
+                moveBuffer[numberMoves ++] = TokenPatterns.encode(take, ret);
+        return numberMoves;
     }
 }
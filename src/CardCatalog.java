@@ -0,0 +1,163 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// Immutable catalog of the 90 development cards and 10 noble tiles of Splendor, each with a stable id
+// Decks and game states hold references to these shared instances instead of copies, so copying a game state does not
+// create any card or noble objects. Card ids follow the tiers (tier 1: 0-39, tier 2: 40-69, tier 3: 70-89)
+public final class CardCatalog {
+    public static final int NUMBER_CARDS = 90;
+    public static final int NUMBER_NOBLES = 10;
+
+    // Id of the first card of each tier, indexed by tier, followed by the total number of cards
+    private static final int[] TIER_FIRST_ID = {0, 0, 40, 70, 90};
+
+    private static final DevelopmentCard[] CARDS = {
+            // Tier 1
+            new DevelopmentCard(0, DevelopmentCard.Color.BLACK, new int[]{0,1,1,1,1}),
+            new DevelopmentCard(1, DevelopmentCard.Color.BLACK, new int[]{0,2,1,1,1}),
+            new DevelopmentCard(2, DevelopmentCard.Color.BLACK, new int[]{0,2,0,1,2}),
+            new DevelopmentCard(3, DevelopmentCard.Color.BLACK, new int[]{1,0,1,3,0}),
+            new DevelopmentCard(4, DevelopmentCard.Color.BLACK, new int[]{0,0,2,1,0}),
+            new DevelopmentCard(5, DevelopmentCard.Color.BLACK, new int[]{0,0,2,0,2}),
+            new DevelopmentCard(6, DevelopmentCard.Color.BLACK, new int[]{0,0,3,0,0}),
+            new DevelopmentCard(7, DevelopmentCard.Color.BLACK, new int[]{0,4,0,0,0}, 1),
+
+            new DevelopmentCard(8, DevelopmentCard.Color.BLUE, new int[]{1,0,1,1,1}),
+            new DevelopmentCard(9, DevelopmentCard.Color.BLUE, new int[]{1,0,1,2,1}),
+            new DevelopmentCard(10, DevelopmentCard.Color.BLUE, new int[]{0,0,2,2,1}),
+            new DevelopmentCard(11, DevelopmentCard.Color.BLUE, new int[]{0,1,3,1,0}),
+            new DevelopmentCard(12, DevelopmentCard.Color.BLUE, new int[]{2,0,0,0,1}),
+            new DevelopmentCard(13, DevelopmentCard.Color.BLUE, new int[]{2,0,2,0,0}),
+            new DevelopmentCard(14, DevelopmentCard.Color.BLUE, new int[]{3,0,0,0,0}),
+            new DevelopmentCard(15, DevelopmentCard.Color.BLUE, new int[]{0,0,0,4,0}, 1),
+
+            new DevelopmentCard(16, DevelopmentCard.Color.GREEN, new int[]{1,1,0,1,1}),
+            new DevelopmentCard(17, DevelopmentCard.Color.GREEN, new int[]{2,1,0,1,1}),
+            new DevelopmentCard(18, DevelopmentCard.Color.GREEN, new int[]{2,1,0,2,0}),
+            new DevelopmentCard(19, DevelopmentCard.Color.GREEN, new int[]{0,3,1,0,1}),
+            new DevelopmentCard(20, DevelopmentCard.Color.GREEN, new int[]{0,1,0,0,2}),
+            new DevelopmentCard(21, DevelopmentCard.Color.GREEN, new int[]{0,2,0,2,0}),
+            new DevelopmentCard(22, DevelopmentCard.Color.GREEN, new int[]{0,0,0,3,0}),
+            new DevelopmentCard(23, DevelopmentCard.Color.GREEN, new int[]{4,0,0,0,0}, 1),
+
+            new DevelopmentCard(24, DevelopmentCard.Color.RED, new int[]{1,1,1,0,1}),
+            new DevelopmentCard(25, DevelopmentCard.Color.RED, new int[]{1,1,1,0,2}),
+            new DevelopmentCard(26, DevelopmentCard.Color.RED, new int[]{2,0,1,0,2}),
+            new DevelopmentCard(27, DevelopmentCard.Color.RED, new int[]{3,0,0,1,1}),
+            new DevelopmentCard(28, DevelopmentCard.Color.RED, new int[]{0,2,1,0,0}),
+            new DevelopmentCard(29, DevelopmentCard.Color.RED, new int[]{0,0,0,2,2}),
+            new DevelopmentCard(30, DevelopmentCard.Color.RED, new int[]{0,0,0,0,3}),
+            new DevelopmentCard(31, DevelopmentCard.Color.RED, new int[]{0,0,0,0,4}, 1),
+
+            new DevelopmentCard(32, DevelopmentCard.Color.WHITE, new int[]{1,1,1,1,0}),
+            new DevelopmentCard(33, DevelopmentCard.Color.WHITE, new int[]{1,1,2,1,0}),
+            new DevelopmentCard(34, DevelopmentCard.Color.WHITE, new int[]{1,2,2,0,0}),
+            new DevelopmentCard(35, DevelopmentCard.Color.WHITE, new int[]{1,1,0,0,3}),
+            new DevelopmentCard(36, DevelopmentCard.Color.WHITE, new int[]{1,0,0,2,0}),
+            new DevelopmentCard(37, DevelopmentCard.Color.WHITE, new int[]{2,2,0,0,0}),
+            new DevelopmentCard(38, DevelopmentCard.Color.WHITE, new int[]{0,3,0,0,0}),
+            new DevelopmentCard(39, DevelopmentCard.Color.WHITE, new int[]{0,0,4,0,0}, 1),
+
+            // Tier 2
+            new DevelopmentCard(40, DevelopmentCard.Color.BLACK, new int[]{0,2,2,0,3},1),
+            new DevelopmentCard(41, DevelopmentCard.Color.BLACK, new int[]{2,0,3,0,3},1),
+            new DevelopmentCard(42, DevelopmentCard.Color.BLACK, new int[]{0,1,4,2,0},2),
+            new DevelopmentCard(43, DevelopmentCard.Color.BLACK, new int[]{0,0,5,3,0},2),
+            new DevelopmentCard(44, DevelopmentCard.Color.BLACK, new int[]{0,0,0,0,5},2),
+            new DevelopmentCard(45, DevelopmentCard.Color.BLACK, new int[]{6,0,0,0,0},3),
+
+            new DevelopmentCard(46, DevelopmentCard.Color.BLUE, new int[]{0,2,2,3,0},1),
+            new DevelopmentCard(47, DevelopmentCard.Color.BLUE, new int[]{3,2,3,0,0},1),
+            new DevelopmentCard(48, DevelopmentCard.Color.BLUE, new int[]{0,3,0,0,5},2),
+            new DevelopmentCard(49, DevelopmentCard.Color.BLUE, new int[]{4,0,0,1,2},2),
+            new DevelopmentCard(50, DevelopmentCard.Color.BLUE, new int[]{0,5,0,0,0},2),
+            new DevelopmentCard(51, DevelopmentCard.Color.BLUE, new int[]{0,6,0,0,0},3),
+
+            new DevelopmentCard(52, DevelopmentCard.Color.GREEN, new int[]{0,0,2,3,3},1),
+            new DevelopmentCard(53, DevelopmentCard.Color.GREEN, new int[]{2,3,0,0,2},1),
+            new DevelopmentCard(54, DevelopmentCard.Color.GREEN, new int[]{1,2,0,0,4},2),
+            new DevelopmentCard(55, DevelopmentCard.Color.GREEN, new int[]{0,5,3,0,0},2),
+            new DevelopmentCard(56, DevelopmentCard.Color.GREEN, new int[]{0,0,5,0,0},2),
+            new DevelopmentCard(57, DevelopmentCard.Color.GREEN, new int[]{0,0,6,0,0},3),
+
+            new DevelopmentCard(58, DevelopmentCard.Color.RED, new int[]{3,0,0,2,2},1),
+            new DevelopmentCard(59, DevelopmentCard.Color.RED, new int[]{3,3,0,2,0},1),
+            new DevelopmentCard(60, DevelopmentCard.Color.RED, new int[]{0,4,2,0,1},2),
+            new DevelopmentCard(61, DevelopmentCard.Color.RED, new int[]{5,0,0,0,3},2),
+            new DevelopmentCard(62, DevelopmentCard.Color.RED, new int[]{5,0,0,0,0},2),
+            new DevelopmentCard(63, DevelopmentCard.Color.RED, new int[]{0,0,0,6,0},3),
+
+            new DevelopmentCard(64, DevelopmentCard.Color.WHITE, new int[]{2,0,3,2,0},1),
+            new DevelopmentCard(65, DevelopmentCard.Color.WHITE, new int[]{0,3,0,3,2},1),
+            new DevelopmentCard(66, DevelopmentCard.Color.WHITE, new int[]{2,0,1,4,0},2),
+            new DevelopmentCard(67, DevelopmentCard.Color.WHITE, new int[]{3,0,0,5,0},2),
+            new DevelopmentCard(68, DevelopmentCard.Color.WHITE, new int[]{0,0,0,5,0},2),
+            new DevelopmentCard(69, DevelopmentCard.Color.WHITE, new int[]{0,0,0,0,6},3),
+
+            // Tier 3
+            new DevelopmentCard(70, DevelopmentCard.Color.BLACK, new int[]{0,3,5,3,3}, 3),
+            new DevelopmentCard(71, DevelopmentCard.Color.BLACK, new int[]{0,0,0,7,0}, 4),
+            new DevelopmentCard(72, DevelopmentCard.Color.BLACK, new int[]{3,0,3,6,0}, 4),
+            new DevelopmentCard(73, DevelopmentCard.Color.BLACK, new int[]{3,0,0,7,0}, 5),
+
+            new DevelopmentCard(74, DevelopmentCard.Color.BLUE, new int[]{5,0,3,3,3}, 3),
+            new DevelopmentCard(75, DevelopmentCard.Color.BLUE, new int[]{0,0,0,0,7}, 4),
+            new DevelopmentCard(76, DevelopmentCard.Color.BLUE, new int[]{3,3,0,0,6}, 4),
+            new DevelopmentCard(77, DevelopmentCard.Color.BLUE, new int[]{0,3,0,0,7}, 5),
+
+            new DevelopmentCard(78, DevelopmentCard.Color.GREEN, new int[]{3,3,0,3,5}, 3),
+            new DevelopmentCard(79, DevelopmentCard.Color.GREEN, new int[]{0,7,0,0,0}, 4),
+            new DevelopmentCard(80, DevelopmentCard.Color.GREEN, new int[]{0,6,3,0,3}, 4),
+            new DevelopmentCard(81, DevelopmentCard.Color.GREEN, new int[]{0,7,3,0,0}, 5),
+
+            new DevelopmentCard(82, DevelopmentCard.Color.RED, new int[]{3,5,3,0,3}, 3),
+            new DevelopmentCard(83, DevelopmentCard.Color.RED, new int[]{0,0,7,0,0}, 4),
+            new DevelopmentCard(84, DevelopmentCard.Color.RED, new int[]{0,3,6,3,0}, 4),
+            new DevelopmentCard(85, DevelopmentCard.Color.RED, new int[]{0,0,7,3,0}, 5),
+
+            new DevelopmentCard(86, DevelopmentCard.Color.WHITE, new int[]{3,3,3,5,0}, 3),
+            new DevelopmentCard(87, DevelopmentCard.Color.WHITE, new int[]{7,0,0,0,0}, 4),
+            new DevelopmentCard(88, DevelopmentCard.Color.WHITE, new int[]{6,0,0,3,3}, 4),
+            new DevelopmentCard(89, DevelopmentCard.Color.WHITE, new int[]{7,0,0,0,3}, 5)
+    };
+
+    private static final NobleTile[] NOBLES = {
+            new NobleTile(0, "Mary Stuart", new int[]{0,0,4,4,0}),
+            new NobleTile(1, "Charles Quint", new int[]{3,0,0,3,3}),
+            new NobleTile(2, "Macchiavelli", new int[]{0,4,0,0,4}),
+            new NobleTile(3, "Isabel of Castille", new int[]{4,0,0,0,4}),
+            new NobleTile(4, "Soliman the Magnificent", new int[]{0,4,4,0,0}),
+            new NobleTile(5, "Catherine of Medicis", new int[]{0,3,3,3,0}),
+            new NobleTile(6, "Anne of Brittany", new int[]{0,3,3,0,3}),
+            new NobleTile(7, "Henri VIII", new int[]{4,0,0,4,0}),
+            new NobleTile(8, "Elisabeth of Austria", new int[]{3,3,0,0,3}),
+            new NobleTile(9, "Francis I of France", new int[]{3,0,3,3,0})
+    };
+
+    private CardCatalog() {
+    }
+
+    public static DevelopmentCard getCard(int id) {
+        return CARDS[id];
+    }
+
+    public static NobleTile getNoble(int id) {
+        return NOBLES[id];
+    }
+
+    // Returns the tier (1-3) of the card with the given id
+    public static int getTier(int cardId) {
+        return cardId < TIER_FIRST_ID[2] ? 1 : cardId < TIER_FIRST_ID[3] ? 2 : 3;
+    }
+
+    // Returns a read-only view of the cards of the given tier, in id order
+    public static List<DevelopmentCard> getTierCards(int tier) {
+        return Collections.unmodifiableList(Arrays.asList(CARDS).subList(TIER_FIRST_ID[tier], TIER_FIRST_ID[tier + 1]));
+    }
+
+    // Returns a read-only view of all noble tiles, in id order
+    public static List<NobleTile> getNobles() {
+        return Collections.unmodifiableList(Arrays.asList(NOBLES));
+    }
+}
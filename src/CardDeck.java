@@ -1,5 +1,7 @@
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.random.RandomGenerator;
 
 public abstract class CardDeck {
     private ArrayList<DevelopmentCard> cardsArray;
@@ -10,15 +12,19 @@ public abstract class CardDeck {
         size = 0;
     }
 
-    // Deep copy of a cardDeck object
+    // Copy of a cardDeck object
+    // Cards are immutable and shared between decks (see CardCatalog), so only the order of the deck is copied
     public CardDeck(CardDeck deck) {
-        cardsArray = new ArrayList<>();
-        for(int i = 0; i < deck.cardsArray.size(); i ++) {
-            cardsArray.add(new DevelopmentCard(deck.cardsArray.get(i)));
-        }
+        cardsArray = new ArrayList<>(deck.cardsArray);
         size = deck.getSize();
     }
 
+    // Deck holding the given cards, in order; the last card in the list is the top of the deck
+    public CardDeck(List<DevelopmentCard> cards) {
+        cardsArray = new ArrayList<>(cards);
+        size = cards.size();
+    }
+
     // Adds a development card to the top of the deck
     public void addCard(DevelopmentCard card) {
         cardsArray.add(card);
@@ -38,11 +44,22 @@ public abstract class CardDeck {
             return null;
     }
 
+    // Replaces the card at the given index, returning the card previously there
+    public DevelopmentCard setCard(int index, DevelopmentCard card) {
+        return cardsArray.set(index, card);
+    }
+
     // Shuffles the cards in the deck
     public void shuffle() {
         Collections.shuffle(cardsArray);
     }
 
+    // Shuffles the cards in the deck with the given source of randomness, so that the same seed gives the same order
+    public void shuffle(RandomGenerator random) {
+        for(int i = cardsArray.size() - 1; i > 0; i --)
+            Collections.swap(cardsArray, i, random.nextInt(i + 1));
+    }
+
     public boolean isEmpty() {
         return cardsArray.size() == 0;
     }
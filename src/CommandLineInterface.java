@@ -1,17 +1,23 @@
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.file.Path;
 import java.util.ArrayList;
 
 // Implements a command line interface, handling display of the current state, and parsing of moves, which are
 // passed to the game engine
+// When several games are played between agents, they are recorded to the game log given as the first argument, if any
+// (see GameRecordWriter)
 public class CommandLineInterface {
     enum GameMode {PVP, PVC, CVC, NOT_SELECTED}
 
     static GameState state;
     static GameMode mode;
 
-    public static void main(String[] args) throws IOException {
+    // Games played per move by the Monte Carlo Tree Search Agent
+    private static final int MCTS_ITERATIONS = 1000;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
 
         mode = GameMode.NOT_SELECTED;
         BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
@@ -67,12 +73,13 @@ public class CommandLineInterface {
                     1. Random Move Agent
                     2. 3-ply Minimax Agent
                     3. 5-ply Minimax Agent
-                    4. 7-ply Minimax Agent""");
+                    4. 7-ply Minimax Agent
+                    5. Monte Carlo Tree Search Agent""");
             int chosenAgentIndex = 0;
             while(chosenAgentIndex == 0) {
                 String input = reader.readLine();
                 chosenAgentIndex = Integer.parseInt(input);
-                if(chosenAgentIndex > 4 || chosenAgentIndex < 1) {
+                if(chosenAgentIndex > 5 || chosenAgentIndex < 1) {
                     System.out.println("Please enter a valid choice.");
                     chosenAgentIndex = 0;
                 }
@@ -159,6 +166,7 @@ public class CommandLineInterface {
 
                     agent = new MinimaxAgent(7, 0, 0, weights);
                 }
+                case 5 -> agent = new MctsAgent(MCTS_ITERATIONS);
                 default -> {
                     System.out.println("Fatal error. Shutting down.");
                     System.exit(1);
@@ -183,6 +191,7 @@ public class CommandLineInterface {
                     // Get move from agent
                     else if(state.getPlayerToMove() == 2) {
                         currentMove = agent.generateMove(state);
+                        displaySearchStatistics(agent);
                     }
 
                     // Handle move
@@ -218,12 +227,13 @@ public class CommandLineInterface {
                     1. Random Move Agent
                     2. 3-ply Minimax Agent
                     3. 5-ply Minimax Agent
-                    4. 7-ply Minimax Agent""");
+                    4. 7-ply Minimax Agent
+                    5. Monte Carlo Tree Search Agent""");
             int chosenAgent1Index = 0;
             while(chosenAgent1Index == 0) {
                 String input = reader.readLine();
                 chosenAgent1Index = Integer.parseInt(input);
-                if(chosenAgent1Index > 4 || chosenAgent1Index < 1) {
+                if(chosenAgent1Index > 5 || chosenAgent1Index < 1) {
                     System.out.println("Please enter a valid choice.");
                     chosenAgent1Index = 0;
                 }
@@ -234,12 +244,13 @@ public class CommandLineInterface {
                     1. Random Move Agent
                     2. 3-ply Minimax Agent
                     3. 5-ply Minimax Agent
-                    4. 7-ply Minimax Agent""");
+                    4. 7-ply Minimax Agent
+                    5. Monte Carlo Tree Search Agent""");
             int chosenAgent2Index = 0;
             while(chosenAgent2Index == 0) {
                 String input = reader.readLine();
                 chosenAgent2Index = Integer.parseInt(input);
-                if(chosenAgent2Index > 4 || chosenAgent2Index < 1) {
+                if(chosenAgent2Index > 5 || chosenAgent2Index < 1) {
                     System.out.println("Please enter a valid choice.");
                     chosenAgent2Index = 0;
                 }
@@ -254,182 +265,10 @@ public class CommandLineInterface {
                     System.out.println("Please enter a valid number.");
             }
 
-            Agent agent1 = null, agent2 = null;
-
-            switch(chosenAgent1Index) {
-                case 1 -> agent1 = new RandomMoveAgent();
-                case 2 -> {
-                    double hasWon = 20000.0;
-                    double isWinning = 10000.0;
-                    double currentPoints = 300.0;
-                    double opponentPoints = -300.0;
-                    double maxImmediatePoints = 200;
-                    double buyFromMarketIndex = 0;
-                    double buyFromReserveIndex = 10;
-                    double attractNobleIndex = 10;
-                    double numCardsToReserve = 10;
-                    double totalTokens = 0;
-
-                    ArrayList<Double> weights = new ArrayList<>();
-                    weights.add(hasWon); // hasWon
-                    weights.add(isWinning); // isWinning
-                    weights.add(currentPoints); // currentPoints
-                    weights.add(opponentPoints); // opponentPoints
-                    weights.add(maxImmediatePoints); // maxImmediatePoints
-                    weights.add(buyFromMarketIndex); // buyFromMarketIndex
-                    weights.add(buyFromReserveIndex); // buyFromReserveIndex
-                    weights.add(attractNobleIndex); // attractNobleIndex
-                    weights.add(numCardsToReserve); // numCardsToReserve
-                    weights.add(totalTokens); // totalTokens
-
-                    agent1 = new MinimaxAgent(3, 0, 0, weights);
-                }
-                case 3 -> {
-                    double hasWon = 20000.0;
-                    double isWinning = 10000.0;
-                    double currentPoints = 300.0;
-                    double opponentPoints = -300.0;
-                    double maxImmediatePoints = 200;
-                    double buyFromMarketIndex = 0;
-                    double buyFromReserveIndex = 10;
-                    double attractNobleIndex = 10;
-                    double numCardsToReserve = 10;
-                    double totalTokens = 0;
-
-                    ArrayList<Double> weights = new ArrayList<>();
-                    weights.add(hasWon); // hasWon
-                    weights.add(isWinning); // isWinning
-                    weights.add(currentPoints); // currentPoints
-                    weights.add(opponentPoints); // opponentPoints
-                    weights.add(maxImmediatePoints); // maxImmediatePoints
-                    weights.add(buyFromMarketIndex); // buyFromMarketIndex
-                    weights.add(buyFromReserveIndex); // buyFromReserveIndex
-                    weights.add(attractNobleIndex); // attractNobleIndex
-                    weights.add(numCardsToReserve); // numCardsToReserve
-                    weights.add(totalTokens); // totalTokens
-
-                    agent1 = new MinimaxAgent(5, 0, 0, weights);
-                }
-                case 4 -> {
-                    double hasWon = 20000.0;
-                    double isWinning = 10000.0;
-                    double currentPoints = 300.0;
-                    double opponentPoints = -300.0;
-                    double maxImmediatePoints = 200;
-                    double buyFromMarketIndex = 0;
-                    double buyFromReserveIndex = 10;
-                    double attractNobleIndex = 10;
-                    double numCardsToReserve = 10;
-                    double totalTokens = 0;
-
-                    ArrayList<Double> weights = new ArrayList<>();
-                    weights.add(hasWon); // hasWon
-                    weights.add(isWinning); // isWinning
-                    weights.add(currentPoints); // currentPoints
-                    weights.add(opponentPoints); // opponentPoints
-                    weights.add(maxImmediatePoints); // maxImmediatePoints
-                    weights.add(buyFromMarketIndex); // buyFromMarketIndex
-                    weights.add(buyFromReserveIndex); // buyFromReserveIndex
-                    weights.add(attractNobleIndex); // attractNobleIndex
-                    weights.add(numCardsToReserve); // numCardsToReserve
-                    weights.add(totalTokens); // totalTokens
-
-                    agent1 = new MinimaxAgent(7, 0, 0, weights);
-                }
-                default -> {
-                    System.out.println("Fatal Error. Shutting Down.");
-                    System.exit(1);
-                }
-            }
-
-            switch(chosenAgent2Index) {
-                case 1 -> agent2 = new RandomMoveAgent();
-                case 2 -> {
-                    double hasWon = 20000.0;
-                    double isWinning = 10000.0;
-                    double currentPoints = 300.0;
-                    double opponentPoints = -300.0;
-                    double maxImmediatePoints = 200;
-                    double buyFromMarketIndex = 0;
-                    double buyFromReserveIndex = 10;
-                    double attractNobleIndex = 10;
-                    double numCardsToReserve = 10;
-                    double totalTokens = 0;
-
-                    ArrayList<Double> weights = new ArrayList<>();
-                    weights.add(hasWon); // hasWon
-                    weights.add(isWinning); // isWinning
-                    weights.add(currentPoints); // currentPoints
-                    weights.add(opponentPoints); // opponentPoints
-                    weights.add(maxImmediatePoints); // maxImmediatePoints
-                    weights.add(buyFromMarketIndex); // buyFromMarketIndex
-                    weights.add(buyFromReserveIndex); // buyFromReserveIndex
-                    weights.add(attractNobleIndex); // attractNobleIndex
-                    weights.add(numCardsToReserve); // numCardsToReserve
-                    weights.add(totalTokens); // totalTokens
-
-                    agent2 = new MinimaxAgent(3, 0, 0, weights);
-                }
-                case 3 -> {
-                    double hasWon = 20000.0;
-                    double isWinning = 10000.0;
-                    double currentPoints = 300.0;
-                    double opponentPoints = -300.0;
-                    double maxImmediatePoints = 200;
-                    double buyFromMarketIndex = 0;
-                    double buyFromReserveIndex = 10;
-                    double attractNobleIndex = 10;
-                    double numCardsToReserve = 10;
-                    double totalTokens = 0;
-
-                    ArrayList<Double> weights = new ArrayList<>();
-                    weights.add(hasWon); // hasWon
-                    weights.add(isWinning); // isWinning
-                    weights.add(currentPoints); // currentPoints
-                    weights.add(opponentPoints); // opponentPoints
-                    weights.add(maxImmediatePoints); // maxImmediatePoints
-                    weights.add(buyFromMarketIndex); // buyFromMarketIndex
-                    weights.add(buyFromReserveIndex); // buyFromReserveIndex
-                    weights.add(attractNobleIndex); // attractNobleIndex
-                    weights.add(numCardsToReserve); // numCardsToReserve
-                    weights.add(totalTokens); // totalTokens
-
-                    agent2 = new MinimaxAgent(5, 0, 0, weights);
-                }
-                case 4 -> {
-                    double hasWon = 20000.0;
-                    double isWinning = 10000.0;
-                    double currentPoints = 300.0;
-                    double opponentPoints = -300.0;
-                    double maxImmediatePoints = 200;
-                    double buyFromMarketIndex = 0;
-                    double buyFromReserveIndex = 10;
-                    double attractNobleIndex = 10;
-                    double numCardsToReserve = 10;
-                    double totalTokens = 0;
-
-                    ArrayList<Double> weights = new ArrayList<>();
-                    weights.add(hasWon); // hasWon
-                    weights.add(isWinning); // isWinning
-                    weights.add(currentPoints); // currentPoints
-                    weights.add(opponentPoints); // opponentPoints
-                    weights.add(maxImmediatePoints); // maxImmediatePoints
-                    weights.add(buyFromMarketIndex); // buyFromMarketIndex
-                    weights.add(buyFromReserveIndex); // buyFromReserveIndex
-                    weights.add(attractNobleIndex); // attractNobleIndex
-                    weights.add(numCardsToReserve); // numCardsToReserve
-                    weights.add(totalTokens); // totalTokens
-
-                    agent2 = new MinimaxAgent(7, 0, 0, weights);
-                }
-                default -> {
-                    System.out.println("Fatal Error. Shutting Down");
-                    System.exit(1);
-                }
-            }
-
             // Gameplay
             if(numberOfGames == 1) {
+                Agent agent1 = createAgent(chosenAgent1Index);
+                Agent agent2 = createAgent(chosenAgent2Index);
                 Move lastMove = null;
                 while(!state.isGameOver()) {
                     System.out.println(state.toString());
@@ -441,10 +280,12 @@ public class CommandLineInterface {
                         // Get move from agent 1
                         if(state.getPlayerToMove() == 1) {
                             currentMove = agent1.generateMove(state);
+                            displaySearchStatistics(agent1);
                         }
                         // Get move from agent 2
                         else if(state.getPlayerToMove() == 2) {
                             currentMove = agent2.generateMove(state);
+                            displaySearchStatistics(agent2);
                         }
 
                         // Handle move
@@ -466,89 +307,128 @@ public class CommandLineInterface {
                     System.out.println("Game is over! Draw!");
             }
             else {
-                long startTime = System.currentTimeMillis();
-
-                int player1OverallScore = 0, player2OverallScore = 0;
-                double averageTurnNumber1 = 0, averageTurnNumber2 = 0;
-                int draws = 0;
-
-
-                for(int i = 0; i < numberOfGames; i ++) {
-                    state = new GameState();
-                    boolean isError = false;
-                    System.out.println("Playing game " + (i + 1)  + " of " + numberOfGames + "...");
-                    while(!state.isGameOver()) {
-                        Move currentMove = null;
-                        while(currentMove == null && !state.isGameOver()) {
-                            // Get move from agent 1
-                            if(state.getPlayerToMove() == 1) {
-                                currentMove = agent1.generateMove(state);
-                            }
-                            // Get move from agent 2
-                            else if(state.getPlayerToMove() == 2) {
-                                currentMove = agent2.generateMove(state);
-                            }
-
-                            // Handle move
-                            if(currentMove != null) {
-                                if(state.handleMove(currentMove) == null) {
-                                    displayIllegalMoveText();
-                                    System.out.println(state.toString());
-                                    System.out.println(currentMove);
-                                    isError = true;
-
-                                    break;
-                                }
-                            }
-                        }
-                        if(isError)
-                            break;
-
-                        // Check game over conditions
-                        if(state.getWinner() > 0) {
-                            switch(state.getWinner()) {
-                                case 1 -> {
-                                    player1OverallScore ++;
-                                    averageTurnNumber1 += state.getTurnNumber();
-                                }
-                                case 2 -> {
-                                    player2OverallScore ++;
-                                    averageTurnNumber2 += state.getTurnNumber();
-                                }
-                            }
-                            // Print current information
-                            System.out.println("Player 1 won " + player1OverallScore + " games so far. Average turns: " + averageTurnNumber1/player1OverallScore);
-                            System.out.println("Player 2 won " + player2OverallScore + " games so far. Average turns: " + averageTurnNumber2/player2OverallScore);
-                            System.out.println("There were " + draws + " draws so far.");
-                        }
-                        else if(state.getWinner() == 0) {
-                            draws ++;
-                            // Print current information
-                            System.out.println("Player 1 won " + player1OverallScore + " games so far. Average turns: " + averageTurnNumber1/player1OverallScore);
-                            System.out.println("Player 2 won " + player2OverallScore + " games so far. Average turns: " + averageTurnNumber2/player2OverallScore);
-                            System.out.println("There were " + draws + " draws so far.");
-                        }
+                // Games are played at the same time, one per processor, each with its own state and agents
+                int agent1Index = chosenAgent1Index, agent2Index = chosenAgent2Index;
+                int threads = Runtime.getRuntime().availableProcessors();
+                Tournament tournament = new Tournament(() -> createAgent(agent1Index), () -> createAgent(agent2Index),
+                        threads);
+
+                System.out.println("Playing " + numberOfGames + " games on " + threads + " threads...");
+                if(args.length > 0) {
+                    try(GameRecordWriter gameLog = new GameRecordWriter(Path.of(args[0]))) {
+                        tournament.setGameLog(gameLog);
+                        tournament.run(numberOfGames);
                     }
+                    if(tournament.getLogErrors() == 0)
+                        System.out.println("Games recorded to " + args[0]);
+                    else
+                        System.out.println("Only " + (tournament.getGamesPlayed() - tournament.getLogErrors()) +
+                                " games were recorded to " + args[0] + ": " + tournament.getFirstLogError());
                 }
+                else
+                    tournament.run(numberOfGames);
+                System.out.println(tournament);
+            }
 
-                if(player1OverallScore > 0)
-                    averageTurnNumber1 /= player1OverallScore;
-                if(player2OverallScore > 0)
-                    averageTurnNumber2 /= player2OverallScore;
-
-
-                System.out.println("All " + numberOfGames + " games over! Player 1 won " + player1OverallScore + " games (" +
-                        player1OverallScore*100.0/numberOfGames + "%)\n" +
-                        "Player 2 won " + player2OverallScore + " games (" +
-                        player2OverallScore*100.0/numberOfGames + "%)\n" +
-                        "There were " + draws + " draws.\n" +
-                        "The average turn number for player 1 was " + averageTurnNumber1 + ".\n" +
-                        "The average turn number for player 2 was " + averageTurnNumber2 + ".\n" +
-                        "Total time for the games: " + (System.currentTimeMillis() - startTime)/1000.0 + " seconds");
+        }
+    }
 
+    /**
+     * @param agentIndex - index of the agent in the agent menu, from 1 to 5
+     * @return a new agent of the chosen kind
+     */
+    private static Agent createAgent(int agentIndex) {
+        switch(agentIndex) {
+            case 1 -> {
+                return new RandomMoveAgent();
+            }
+            case 2 -> {
+                double hasWon = 20000.0;
+                double isWinning = 10000.0;
+                double currentPoints = 300.0;
+                double opponentPoints = -300.0;
+                double maxImmediatePoints = 200;
+                double buyFromMarketIndex = 0;
+                double buyFromReserveIndex = 10;
+                double attractNobleIndex = 10;
+                double numCardsToReserve = 10;
+                double totalTokens = 0;
+
+                ArrayList<Double> weights = new ArrayList<>();
+                weights.add(hasWon); // hasWon
+                weights.add(isWinning); // isWinning
+                weights.add(currentPoints); // currentPoints
+                weights.add(opponentPoints); // opponentPoints
+                weights.add(maxImmediatePoints); // maxImmediatePoints
+                weights.add(buyFromMarketIndex); // buyFromMarketIndex
+                weights.add(buyFromReserveIndex); // buyFromReserveIndex
+                weights.add(attractNobleIndex); // attractNobleIndex
+                weights.add(numCardsToReserve); // numCardsToReserve
+                weights.add(totalTokens); // totalTokens
+
+                return new MinimaxAgent(3, 0, 0, weights);
+            }
+            case 3 -> {
+                double hasWon = 20000.0;
+                double isWinning = 10000.0;
+                double currentPoints = 300.0;
+                double opponentPoints = -300.0;
+                double maxImmediatePoints = 200;
+                double buyFromMarketIndex = 0;
+                double buyFromReserveIndex = 10;
+                double attractNobleIndex = 10;
+                double numCardsToReserve = 10;
+                double totalTokens = 0;
+
+                ArrayList<Double> weights = new ArrayList<>();
+                weights.add(hasWon); // hasWon
+                weights.add(isWinning); // isWinning
+                weights.add(currentPoints); // currentPoints
+                weights.add(opponentPoints); // opponentPoints
+                weights.add(maxImmediatePoints); // maxImmediatePoints
+                weights.add(buyFromMarketIndex); // buyFromMarketIndex
+                weights.add(buyFromReserveIndex); // buyFromReserveIndex
+                weights.add(attractNobleIndex); // attractNobleIndex
+                weights.add(numCardsToReserve); // numCardsToReserve
+                weights.add(totalTokens); // totalTokens
+
+                return new MinimaxAgent(5, 0, 0, weights);
+            }
+            case 4 -> {
+                double hasWon = 20000.0;
+                double isWinning = 10000.0;
+                double currentPoints = 300.0;
+                double opponentPoints = -300.0;
+                double maxImmediatePoints = 200;
+                double buyFromMarketIndex = 0;
+                double buyFromReserveIndex = 10;
+                double attractNobleIndex = 10;
+                double numCardsToReserve = 10;
+                double totalTokens = 0;
+
+                ArrayList<Double> weights = new ArrayList<>();
+                weights.add(hasWon); // hasWon
+                weights.add(isWinning); // isWinning
+                weights.add(currentPoints); // currentPoints
+                weights.add(opponentPoints); // opponentPoints
+                weights.add(maxImmediatePoints); // maxImmediatePoints
+                weights.add(buyFromMarketIndex); // buyFromMarketIndex
+                weights.add(buyFromReserveIndex); // buyFromReserveIndex
+                weights.add(attractNobleIndex); // attractNobleIndex
+                weights.add(numCardsToReserve); // numCardsToReserve
+                weights.add(totalTokens); // totalTokens
+
+                return new MinimaxAgent(7, 0, 0, weights);
+            }
+            case 5 -> {
+                return new MctsAgent(MCTS_ITERATIONS);
+            }
+            default -> {
+                System.out.println("Fatal Error. Shutting Down.");
+                System.exit(1);
             }
-
         }
+        return null;
     }
 
     /**
@@ -768,6 +648,12 @@ public class CommandLineInterface {
         System.out.println("Error: That move appears to be illegal. Please consult the game rules and game state and try again.");
     }
 
+    // Shows how much searching went into the last move of a minimax agent
+    private static void displaySearchStatistics(Agent agent) {
+        if(agent instanceof MinimaxAgent minimaxAgent)
+            System.out.println("Search: " + minimaxAgent.getLastSearchStatistics());
+    }
+
     private static void displayUsage() {
         System.out.println("""
                 Usage:
@@ -1,5 +1,7 @@
 // A development card in the game of Splendor, represented by color of bonus provided, cost in each of
 // the colors, and point value
+// Cards are immutable, so the cards of the game are created once (see CardCatalog) and shared by all decks and states;
+// the array returned by getCostArray() must not be modified
 public class DevelopmentCard {
     public enum Color{BLACK(0), BLUE(1), GREEN(2), RED(3), WHITE(4);
         private final int index;
@@ -12,14 +14,18 @@ public class DevelopmentCard {
         }
     }
 
+    // Stable identifier of the card within the 90 cards of the game (tier 1: 0-39, tier 2: 40-69, tier 3: 70-89),
+    // or -1 for cards that are not part of the standard decks
+    private final int id;
     private final Color bonusColor;
     private final int blackCost, blueCost, greenCost, redCost, whiteCost;
     private final int[] costArray;
     private final int pointValue;
 
-    // Construct a DevelopmentCard object, taking as parameters its color, an array representing its
+    // Construct a DevelopmentCard object, taking as parameters its id, its color, an array representing its
     // cost (in the order black, blue, green, red, white), and point value
-    public DevelopmentCard(Color cardColor, int[] costArray, int points) {
+    public DevelopmentCard(int id, Color cardColor, int[] costArray, int points) {
+        this.id = id;
         bonusColor = cardColor;
         blackCost = costArray[0];
         blueCost = costArray[1];
@@ -30,16 +36,14 @@ public class DevelopmentCard {
         pointValue = points;
     }
 
-    // Deep copy of a DevelopmentCard object
-    public DevelopmentCard(DevelopmentCard card) {
-        bonusColor = card.getBonusColor();
-        blackCost = card.getBlackCost();
-        blueCost = card.getBlueCost();
-        greenCost = card.getGreenCost();
-        redCost = card.getRedCost();
-        whiteCost = card.getWhiteCost();
-        costArray = new int[]{blackCost, blueCost, greenCost, redCost, whiteCost};
-        pointValue = card.getPointValue();
+    // Construct a DevelopmentCard object that is not part of the standard decks
+    public DevelopmentCard(Color cardColor, int[] costArray, int points) {
+        this(-1, cardColor, costArray, points);
+    }
+
+    // Point value can be omitted if zero
+    public DevelopmentCard(int id, Color cardColor, int[] costArray) {
+        this(id, cardColor, costArray, 0);
     }
 
     // Point value can be omitted if zero
@@ -97,6 +101,10 @@ public class DevelopmentCard {
     }
 
     // Getters
+    public int getId() {
+        return id;
+    }
+
     public Color getBonusColor() {
         return bonusColor;
     }
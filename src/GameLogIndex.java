@@ -0,0 +1,265 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Random access to the positions of the games of a game log (see GameRecordWriter), through an index file built once
+// by build(), then memory-mapped along with the log
+// For each game, the index holds the offset of its record in the log, and snapshots of the game, in the PackedGameState
+// encoding, after 0, K, 2K... moves, K being the snapshot interval. A position is rebuilt from the last snapshot
+// before it, replaying fewer than K moves read straight from the mapped log
+// Reads never move the position of the mapped buffers, so any number of threads can read positions at the same time
+// Layout of the index, big-endian: the header, the snapshots of each game in order, then the table of games, with for
+// each game the offset of its record in the log and that of its first snapshot in the index (8 bytes each)
+public class GameLogIndex {
+    public static final int MAGIC = 0x53504C49; // "SPLI"
+    public static final int VERSION = 1;
+
+    // Header: magic, version, snapshot interval and number of games (4 bytes each), then the number of bytes of the
+    // log indexed and the offset of the table of games (8 bytes each)
+    private static final int HEADER_BYTES = 32;
+    private static final int TABLE_ENTRY_BYTES = 16;
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    // Files are mapped in segments, each overlapping the next by the size of the largest record, so that every record,
+    // snapshot and table entry lies whole within the segment it starts in
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_BYTES = 1L << SEGMENT_SHIFT;
+    private static final int SEGMENT_OVERLAP = GameRecord.getSize(GameRecord.MAX_MOVES);
+
+    private final ByteBuffer[] logSegments, indexSegments;
+    private final int snapshotInterval;
+    private final int numberGames;
+    private final long tableOffset;
+
+    // Opens the index of the game log, built by build()
+    // Throws IOException if the index is not one, or if the log is shorter than when the index was built; games
+    // appended to the log since then are not part of the index
+    // The files are closed once mapped; the mappings stay valid for as long as the index is in use
+    public GameLogIndex(Path log, Path index) throws IOException {
+        try(FileChannel logChannel = FileChannel.open(log, StandardOpenOption.READ);
+            FileChannel indexChannel = FileChannel.open(index, StandardOpenOption.READ)) {
+            GameRecordWriter.checkFileHeader(logChannel);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while(header.hasRemaining())
+                if(indexChannel.read(header, header.position()) < 0)
+                    break;
+            header.flip();
+            if(header.remaining() < HEADER_BYTES || header.getInt() != MAGIC)
+                throw new IOException("Not a game log index");
+            int version = header.getInt();
+            if(version != VERSION)
+                throw new IOException("Unsupported game log index version " + version);
+            snapshotInterval = header.getInt();
+            numberGames = header.getInt();
+            long logBytes = header.getLong();
+            tableOffset = header.getLong();
+
+            if(logChannel.size() < logBytes || indexChannel.size() < tableOffset + (long) numberGames * TABLE_ENTRY_BYTES)
+                throw new IOException("The index does not match the game log");
+            logSegments = map(logChannel, logBytes);
+            indexSegments = map(indexChannel, indexChannel.size());
+        }
+    }
+
+    /**
+     * @param log - game log to index
+     * @param index - index file to write, replaced if it exists
+     * @param snapshotInterval - number of moves between the snapshots of a game, the most moves replayed to reach a
+     * position; smaller intervals make positions faster to reach, at PackedGameState.BYTES bytes per snapshot
+     * @return the index, opened. A record cut off at the end of the log, as an interrupted writer leaves, is not
+     * indexed; the index file is deleted if the build fails
+     */
+    public static GameLogIndex build(Path log, Path index, int snapshotInterval) throws IOException {
+        if(snapshotInterval < 1)
+            throw new IllegalArgumentException("The snapshot interval must be at least 1, got " + snapshotInterval);
+
+        try(GameRecordReader reader = new GameRecordReader(log)) {
+            try(FileChannel channel = FileChannel.open(index, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeIndex(reader, channel, snapshotInterval);
+            }
+            catch(IOException | RuntimeException e) {
+                try {
+                    Files.deleteIfExists(index);
+                }
+                catch(IOException deleteException) {
+                    e.addSuppressed(deleteException);
+                }
+                throw e;
+            }
+        }
+        return new GameLogIndex(log, index);
+    }
+
+    public int getNumberGames() {
+        return numberGames;
+    }
+
+    public int getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    public int getNumberMoves(int game) {
+        long recordOffset = getRecordOffset(game);
+        return GameRecord.getNumberMoves(getSegment(logSegments, recordOffset), getSegmentIndex(recordOffset));
+    }
+
+    // Returns the winner of the game, 1 or 2, 0 for a draw, or GameRecord.NO_WINNER
+    public int getWinner(int game) {
+        long recordOffset = getRecordOffset(game);
+        return GameRecord.getWinner(getSegment(logSegments, recordOffset), getSegmentIndex(recordOffset));
+    }
+
+    // Returns the move made at the given ply of the game, 0 being the first move, encoded by MoveEncoding
+    // Throws IOException if the log no longer holds a valid move there, as when it was modified after the index was
+    // built
+    public int getMove(int game, int ply) throws IOException {
+        checkPly(game, ply, getNumberMoves(game) - 1);
+        long recordOffset = getRecordOffset(game);
+        return GameRecord.getMove(getSegment(logSegments, recordOffset), getSegmentIndex(recordOffset), ply);
+    }
+
+    // Returns the whole record of the game
+    // Throws IOException if the record is corrupt
+    public GameRecord getRecord(int game) throws IOException {
+        long recordOffset = getRecordOffset(game);
+        ByteBuffer log = getSegment(logSegments, recordOffset);
+        return GameRecord.read(log.duplicate().position(getSegmentIndex(recordOffset)));
+    }
+
+    // Returns the state of the game after the given number of moves, from 0 to getNumberMoves(game), or null if one of
+    // the moves replayed from the last snapshot is illegal
+    // Throws IOException if the log no longer holds valid moves there
+    public GameState getState(int game, int ply) throws IOException {
+        checkPly(game, ply, getNumberMoves(game));
+        int snapshot = ply / snapshotInterval;
+        long snapshotOffset = getIndexLong(getTableEntryOffset(game) + 8) + (long) snapshot * PackedGameState.BYTES;
+        PackedGameState packed = new PackedGameState();
+        packed.readFrom(getSegment(indexSegments, snapshotOffset), getSegmentIndex(snapshotOffset));
+
+        GameState state = new GameState(packed);
+        long recordOffset = getRecordOffset(game);
+        ByteBuffer log = getSegment(logSegments, recordOffset);
+        int recordIndex = getSegmentIndex(recordOffset);
+        for(int p = snapshot * snapshotInterval; p < ply && state != null; p ++)
+            state = state.handleMove(GameRecord.getMove(log, recordIndex, p));
+        return state;
+    }
+
+    // ----- Private methods -----
+
+    // Writes the index of the records read, the header last, so that an index whose build was interrupted cannot be
+    // opened
+    private static void writeIndex(GameRecordReader reader, FileChannel channel, int snapshotInterval)
+            throws IOException {
+        // Offsets of the record and of the first snapshot of each game
+        long[] table = new long[2 * 1024];
+        int games = 0;
+        long logOffset = GameRecordWriter.FILE_HEADER_BYTES, indexOffset = HEADER_BYTES;
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        channel.position(HEADER_BYTES);
+
+        GameRecord record;
+        while((record = readWholeRecord(reader)) != null) {
+            if(games == Integer.MAX_VALUE)
+                throw new IOException("The game log holds too many games to index");
+            if(2 * games == table.length)
+                table = Arrays.copyOf(table, table.length * 2);
+            table[2 * games] = logOffset;
+            table[2 * games + 1] = indexOffset;
+
+            GameState state = record.getInitialState();
+            for(int ply = 0; ply <= record.getNumberMoves(); ply ++) {
+                if(ply % snapshotInterval == 0) {
+                    if(buffer.remaining() < PackedGameState.BYTES)
+                        flush(channel, buffer);
+                    new PackedGameState(state).writeTo(buffer);
+                    indexOffset += PackedGameState.BYTES;
+                }
+                if(ply < record.getNumberMoves() && state.handleMove(record.getMove(ply)) == null)
+                    throw new IOException("Game " + games + " of the game log holds an illegal move at ply " + ply);
+            }
+
+            logOffset += record.getSize();
+            games ++;
+        }
+
+        for(int game = 0; game < games; game ++) {
+            if(buffer.remaining() < TABLE_ENTRY_BYTES)
+                flush(channel, buffer);
+            buffer.putLong(table[2 * game]).putLong(table[2 * game + 1]);
+        }
+        flush(channel, buffer);
+
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(snapshotInterval).putInt(games).putLong(logOffset)
+                .putLong(indexOffset);
+        buffer.flip();
+        for(long position = 0; buffer.hasRemaining(); )
+            position += channel.write(buffer, position);
+    }
+
+    // Returns the next record of the log, or null at its end or at a record cut off at its end
+    private static GameRecord readWholeRecord(GameRecordReader reader) throws IOException {
+        try {
+            return reader.read();
+        }
+        catch(EOFException e) {
+            return null;
+        }
+    }
+
+    private long getRecordOffset(int game) {
+        return getIndexLong(getTableEntryOffset(game));
+    }
+
+    private long getTableEntryOffset(int game) {
+        if(game < 0 || game >= numberGames)
+            throw new IndexOutOfBoundsException("Game " + game + " out of range for an index of " + numberGames +
+                    " games");
+        return tableOffset + (long) game * TABLE_ENTRY_BYTES;
+    }
+
+    private long getIndexLong(long offset) {
+        return getSegment(indexSegments, offset).getLong(getSegmentIndex(offset));
+    }
+
+    private void checkPly(int game, int ply, int maximumPly) {
+        if(ply < 0 || ply > maximumPly)
+            throw new IndexOutOfBoundsException("Ply " + ply + " out of range for game " + game);
+    }
+
+    private static ByteBuffer getSegment(ByteBuffer[] segments, long offset) {
+        return segments[(int) (offset >>> SEGMENT_SHIFT)];
+    }
+
+    private static int getSegmentIndex(long offset) {
+        return (int) (offset & (SEGMENT_BYTES - 1));
+    }
+
+    // Maps the first size bytes of the file, read-only, in overlapping segments
+    private static ByteBuffer[] map(FileChannel channel, long size) throws IOException {
+        int numberSegments = (int) Math.max((size + SEGMENT_BYTES - 1) >>> SEGMENT_SHIFT, 1);
+        ByteBuffer[] segments = new ByteBuffer[numberSegments];
+        for(int i = 0; i < numberSegments; i ++) {
+            long start = (long) i << SEGMENT_SHIFT;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                    Math.min(size - start, SEGMENT_BYTES + SEGMENT_OVERLAP));
+        }
+        return segments;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+}
@@ -0,0 +1,224 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// Record of a whole game: how it was dealt, the moves played and the result, in a compact binary form that
+// GameRecordWriter appends to a file and GameRecordReader reads back
+// The deal holds the player who moved first, the ids of the nobles in play (see CardCatalog), and the ids of the cards
+// of each tier in the order in which they are drawn: the 4 cards of the market, in slot order, then the rest of the
+// deck from the top. Any state of the game is then rebuilt by replaying the moves from the deal
+// Layout of a record, big-endian: number of moves (2 bytes), winner (1 byte, NO_WINNER if the game did not finish),
+// the deal (94 bytes, one per id), then each move by its MoveEncoding.getIndex() (2 bytes)
+public class GameRecord {
+    // Winner of a game that was abandoned or is still being played
+    public static final int NO_WINNER = 0xFF;
+
+    public static final int MAX_MOVES = 0xFFFF;
+
+    private static final int[] TIER_SIZES = {0, 40, 30, 20};
+    private static final int DEAL_BYTES = 1 + 3 + 40 + 30 + 20;
+    static final int HEADER_BYTES = 3 + DEAL_BYTES;
+    private static final int MOVE_BYTES = 2;
+
+    private final byte[] deal;
+    private int[] moves = new int[64];
+    private int numberMoves;
+    private int winner = NO_WINNER;
+
+    // Starts the record of the game set up in the given state, before any move is made
+    // Throws IllegalArgumentException if the state is not the set up of a game, with a full market, 3 nobles, and
+    // standard cards and nobles
+    public GameRecord(final GameState initialState) {
+        deal = new byte[DEAL_BYTES];
+        deal[0] = (byte) initialState.getPlayerStarted();
+        for(int i = 0; i < 3 && i < initialState.getNoblesMarket().size(); i ++)
+            deal[1 + i] = (byte) initialState.getNoblesMarket().get(i).getId();
+        setTierDeal(1, initialState.getTier1Market(), initialState.getTier1Deck());
+        setTierDeal(2, initialState.getTier2Market(), initialState.getTier2Deck());
+        setTierDeal(3, initialState.getTier3Market(), initialState.getTier3Deck());
+
+        // The deal must set up the given state exactly
+        if(!new PackedGameState(getInitialState()).equals(new PackedGameState(initialState)))
+            throw new IllegalArgumentException("The state is not the set up of a game");
+    }
+
+    private GameRecord(byte[] deal) {
+        this.deal = deal;
+    }
+
+    // Adds a move, encoded by MoveEncoding, to the end of the record
+    public void addMove(int move) {
+        if(numberMoves == MAX_MOVES)
+            throw new IllegalStateException("A record holds at most " + MAX_MOVES + " moves");
+        if(numberMoves == moves.length)
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        moves[numberMoves ++] = move;
+    }
+
+    public void addMove(Move move) {
+        addMove(MoveEncoding.encode(move));
+    }
+
+    // Sets the winner, 1 or 2, 0 for a draw, or NO_WINNER
+    public void setWinner(int winner) {
+        this.winner = winner;
+    }
+
+    public int getWinner() {
+        return winner;
+    }
+
+    public int getNumberMoves() {
+        return numberMoves;
+    }
+
+    // Returns the move made at the given ply, 0 being the first move, encoded by MoveEncoding
+    public int getMove(int ply) {
+        return moves[ply];
+    }
+
+    // Sets up the game as it was dealt
+    // The deal of a record read from a log was checked by read(), so it always holds valid ids
+    public GameState getInitialState() {
+        ArrayList<NobleTile> nobles = new ArrayList<>();
+        for(int i = 0; i < 3; i ++)
+            nobles.add(CardCatalog.getNoble(deal[1 + i]));
+        return new GameState(deal[0], nobles, new Tier1Deck(getTierDeal(1)), new Tier2Deck(getTierDeal(2)),
+                new Tier3Deck(getTierDeal(3)));
+    }
+
+    // Returns the state after the given number of moves, from 0 to getNumberMoves(), replayed from the deal through
+    // GameState.handleMove(), or null if one of the moves is illegal
+    public GameState getState(int ply) {
+        return replay(getInitialState(), 0, ply);
+    }
+
+    // Plays the moves from fromPly up to, but not including, toPly on the given state, which must be the state of the
+    // game after fromPly moves, and returns it, or null if one of the moves is illegal
+    GameState replay(GameState state, int fromPly, int toPly) {
+        if(toPly < fromPly || toPly > numberMoves)
+            throw new IndexOutOfBoundsException("Ply " + toPly + " out of range for a record of " + numberMoves +
+                    " moves");
+        for(int ply = fromPly; ply < toPly && state != null; ply ++)
+            state = state.handleMove(moves[ply]);
+        return state;
+    }
+
+    // Number of bytes taken by the record once written
+    public int getSize() {
+        return getSize(numberMoves);
+    }
+
+    static int getSize(int numberMoves) {
+        return HEADER_BYTES + numberMoves * MOVE_BYTES;
+    }
+
+    // Writes the record at the position of the buffer, which must have getSize() bytes remaining
+    void write(ByteBuffer buffer) {
+        buffer.putShort((short) numberMoves);
+        buffer.put((byte) winner);
+        buffer.put(deal);
+        for(int i = 0; i < numberMoves; i ++)
+            buffer.putShort((short) MoveEncoding.getIndex(moves[i]));
+    }
+
+    // Number of moves of the record starting at the given index of the buffer, read without moving its position
+    static int getNumberMoves(ByteBuffer buffer, int index) {
+        return buffer.getShort(index) & 0xFFFF;
+    }
+
+    // Winner of the record starting at the given index of the buffer, read without moving its position
+    static int getWinner(ByteBuffer buffer, int index) {
+        return buffer.get(index + 2) & 0xFF;
+    }
+
+    // Move made at the given ply in the record starting at the given index of the buffer, encoded by MoveEncoding, read
+    // without moving its position
+    // Throws IOException if the record holds no valid move there
+    static int getMove(ByteBuffer buffer, int index, int ply) throws IOException {
+        return decodeMove(buffer.getShort(index + HEADER_BYTES + ply * MOVE_BYTES));
+    }
+
+    // Reads a whole record at the position of the buffer
+    // Throws IOException if the record is corrupt: a winner, an id or a move out of range, or a deal that is not a
+    // deal of the standard cards and nobles
+    static GameRecord read(ByteBuffer buffer) throws IOException {
+        int numberMoves = buffer.getShort() & 0xFFFF;
+        int winner = buffer.get() & 0xFF;
+        if(winner > 2 && winner != NO_WINNER)
+            throw new IOException("Corrupt game record: winner " + winner);
+        byte[] deal = new byte[DEAL_BYTES];
+        buffer.get(deal);
+        checkDeal(deal);
+
+        GameRecord record = new GameRecord(deal);
+        record.winner = winner;
+        record.moves = new int[Math.max(numberMoves, 1)];
+        for(int i = 0; i < numberMoves; i ++)
+            record.moves[i] = decodeMove(buffer.getShort());
+        record.numberMoves = numberMoves;
+        return record;
+    }
+
+    // ----- Private methods -----
+
+    private static int decodeMove(short moveIndex) throws IOException {
+        int index = moveIndex & 0xFFFF;
+        if(index >= MoveEncoding.NUMBER_INDICES)
+            throw new IOException("Corrupt game record: move index " + index);
+        return MoveEncoding.fromIndex(index);
+    }
+
+    // Throws IOException unless the deal names a starting player, 3 different nobles, and each card of each tier once
+    private static void checkDeal(byte[] deal) throws IOException {
+        if(deal[0] != 1 && deal[0] != 2)
+            throw new IOException("Corrupt game record: starting player " + deal[0]);
+
+        int nobles = 0;
+        for(int i = 0; i < 3; i ++) {
+            int id = deal[1 + i];
+            if(id < 0 || id >= CardCatalog.NUMBER_NOBLES || (nobles & 1 << id) != 0)
+                throw new IOException("Corrupt game record: noble " + id);
+            nobles |= 1 << id;
+        }
+
+        boolean[] dealt = new boolean[CardCatalog.NUMBER_CARDS];
+        for(int tier = 1; tier <= 3; tier ++) {
+            int offset = getTierOffset(tier);
+            for(int i = 0; i < TIER_SIZES[tier]; i ++) {
+                int id = deal[offset + i];
+                if(id < 0 || id >= CardCatalog.NUMBER_CARDS || CardCatalog.getTier(id) != tier || dealt[id])
+                    throw new IOException("Corrupt game record: tier " + tier + " card " + id);
+                dealt[id] = true;
+            }
+        }
+    }
+
+    // Offset of the cards of the tier in the deal
+    private static int getTierOffset(int tier) {
+        int offset = 4;
+        for(int t = 1; t < tier; t ++)
+            offset += TIER_SIZES[t];
+        return offset;
+    }
+
+    private void setTierDeal(int tier, ArrayList<DevelopmentCard> market, CardDeck deck) {
+        if(market.size() != 4 || market.size() + deck.getSize() != TIER_SIZES[tier])
+            throw new IllegalArgumentException("The state is not the set up of a game");
+        int offset = getTierOffset(tier);
+        for(int i = 0; i < 4; i ++)
+            deal[offset + i] = (byte) market.get(i).getId();
+        for(int i = 0; i < deck.getSize(); i ++)
+            deal[offset + 4 + i] = (byte) deck.getCard(deck.getSize() - 1 - i).getId();
+    }
+
+    // Cards of the tier in deck order, the last card being the first drawn (see CardDeck)
+    private ArrayList<DevelopmentCard> getTierDeal(int tier) {
+        int offset = getTierOffset(tier);
+        ArrayList<DevelopmentCard> cards = new ArrayList<>();
+        for(int i = TIER_SIZES[tier] - 1; i >= 0; i --)
+            cards.add(CardCatalog.getCard(deal[offset + i]));
+        return cards;
+    }
+}
@@ -0,0 +1,70 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Reads the GameRecords of a game log written by GameRecordWriter, in order, through a buffer refilled from the file
+// as it is used up
+public class GameRecordReader implements Closeable {
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+    // Opens the game log at the given path, positioned at its first record
+    // Throws IOException if the file is not a game log
+    public GameRecordReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            GameRecordWriter.checkFileHeader(channel);
+            channel.position(GameRecordWriter.FILE_HEADER_BYTES);
+        }
+        catch(IOException e) {
+            channel.close();
+            throw e;
+        }
+        buffer.flip();
+    }
+
+    // Returns the next record of the log, or null at the end of the log
+    // Throws EOFException if the log ends in the middle of a record, as when the writer was interrupted, and
+    // IOException if the record is corrupt (see GameRecord)
+    public GameRecord read() throws IOException {
+        if(!fill(2)) {
+            if(buffer.hasRemaining())
+                throw new EOFException("The game log ends in the middle of a record");
+            return null;
+        }
+        int size = GameRecord.getSize(GameRecord.getNumberMoves(buffer, buffer.position()));
+        if(size > buffer.capacity()) {
+            ByteBuffer largerBuffer = ByteBuffer.allocateDirect(size);
+            largerBuffer.put(buffer);
+            largerBuffer.flip();
+            buffer = largerBuffer;
+        }
+        if(!fill(size))
+            throw new EOFException("The game log ends in the middle of a record");
+        return GameRecord.read(buffer);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Reads from the file until the buffer holds at least the given number of bytes, returning false if the file ends
+    // first
+    private boolean fill(int bytes) throws IOException {
+        if(buffer.remaining() >= bytes)
+            return true;
+        buffer.compact();
+        while(buffer.position() < bytes)
+            if(channel.read(buffer) < 0)
+                break;
+        buffer.flip();
+        return buffer.remaining() >= bytes;
+    }
+}
@@ -0,0 +1,136 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Appends GameRecords to a game log file, through a buffer that is written to the file whenever it fills up
+// A game log starts with MAGIC and VERSION, followed by the records one after the other (see GameRecord), so logs can
+// be appended to across runs. Records can be written from several threads, as Tournament does; each is written whole
+public class GameRecordWriter implements Closeable {
+    public static final int MAGIC = 0x53504C47; // "SPLG"
+    public static final int VERSION = 1;
+    public static final int FILE_HEADER_BYTES = 5;
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private long gamesWritten;
+
+    // Opens the game log at the given path, creating it if it does not exist, and appending to it otherwise
+    // If the log ends in the middle of a record, as when a writer was interrupted, that record is cut off first, so
+    // that the records appended after it can be read back
+    // Throws IOException if the file exists but is not a game log
+    public GameRecordWriter(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if(channel.size() == 0) {
+                buffer.putInt(MAGIC).put((byte) VERSION);
+                flush();
+            }
+            else {
+                checkFileHeader(channel);
+                long end = findEndOfRecords();
+                if(end < channel.size())
+                    channel.truncate(end);
+                channel.position(end);
+            }
+        }
+        catch(IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Appends the record to the log
+    public synchronized void write(GameRecord record) throws IOException {
+        if(!channel.isOpen())
+            throw new ClosedChannelException();
+        if(record.getSize() > buffer.remaining())
+            flush();
+        if(record.getSize() > buffer.capacity()) {
+            ByteBuffer recordBuffer = ByteBuffer.allocate(record.getSize());
+            record.write(recordBuffer);
+            recordBuffer.flip();
+            while(recordBuffer.hasRemaining())
+                channel.write(recordBuffer);
+        }
+        else
+            record.write(buffer);
+        gamesWritten ++;
+    }
+
+    // Writes the buffered records to the file
+    // If writing fails, the bytes not written stay in the buffer, so that the records written after the failure fail
+    // as well rather than overwrite them
+    public synchronized void flush() throws IOException {
+        buffer.flip();
+        try {
+            while(buffer.hasRemaining())
+                channel.write(buffer);
+        }
+        finally {
+            buffer.compact();
+        }
+    }
+
+    // Number of records written since the log was opened
+    public synchronized long getGamesWritten() {
+        return gamesWritten;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        }
+        finally {
+            channel.close();
+        }
+    }
+
+    // Returns the offset just past the last whole record of the log, walking the record headers from the first record
+    // through the buffer, which is left empty
+    private long findEndOfRecords() throws IOException {
+        long size = channel.size();
+        long end = FILE_HEADER_BYTES;
+        // Offset in the file of the bytes held by the buffer
+        long bufferOffset = end;
+        buffer.limit(0);
+        while(size - end >= 2) {
+            if(end + 2 > bufferOffset + buffer.limit()) {
+                buffer.clear();
+                bufferOffset = end;
+                while(buffer.hasRemaining())
+                    if(channel.read(buffer, bufferOffset + buffer.position()) < 0)
+                        break;
+                buffer.flip();
+                if(buffer.limit() < 2)
+                    break;
+            }
+            int recordSize = GameRecord.getSize(GameRecord.getNumberMoves(buffer, (int) (end - bufferOffset)));
+            if(size - end < recordSize)
+                break;
+            end += recordSize;
+        }
+        buffer.clear();
+        return end;
+    }
+
+    // Throws IOException unless the channel starts with the header of a game log of this version
+    static void checkFileHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES);
+        while(header.hasRemaining())
+            if(channel.read(header, header.position()) < 0)
+                break;
+        header.flip();
+        if(header.remaining() < FILE_HEADER_BYTES || header.getInt() != MAGIC)
+            throw new IOException("Not a game log");
+        int version = header.get();
+        if(version != VERSION)
+            throw new IOException("Unsupported game log version " + version);
+    }
+}
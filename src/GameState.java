@@ -1,6 +1,8 @@
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Random;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
 
 // Representation of a Splendor game state, including all information regarding a given position in the game
 // Currently tuned for the 2-player version of the game, but might be adapted in the future
@@ -29,12 +31,66 @@ public class GameState {
     private Tier2Deck tier2Deck;
     private Tier3Deck tier3Deck;
 
+    // Tokens a player receives when reserving a card
+    private static final int[] GOLD_TOKEN = {0, 0, 0, 0, 0, 1};
+
+    // Zobrist key of the position, kept up to date by every change the handle...Move() methods make (see Zobrist)
+    private long zobristKey;
+
+    // Heuristic indices of both players, kept up to date in the same way (see ProgressIndices)
+    private final ProgressIndices progressIndices = new ProgressIndices();
+
+    // Record of everything a move overwrites, returned by applyMove() and consumed by undoMove() to restore the
+    // exact prior state. Records can be reused through applyMove(Move, Undo), so that search can walk the game tree
+    // in place on a single state without allocating
+    public static class Undo {
+        private Move.Type type;
+        private int player;
+        private int playerToMove, turnNumber, player1Score, player2Score;
+        private boolean lastTurn, gameOver;
+        private long zobristKey;
+
+        // Supply tokens and tokens of the player making the move, 4 bits per count (see packTokens())
+        private long tokens;
+
+        // Source (0 for the reserve, 1-3 for the tiers) and index of the card bought or reserved, and the card itself
+        // An index of 4 represents a blind reserve, in which case the card is the one drawn from the deck
+        private int cardSource, cardIndex;
+        private DevelopmentCard card;
+
+        // True if the card was taken from the market while the deck was empty, removing its slot
+        private boolean slotRemoved;
+
+        // Noble attracted by the move, or null if none
+        private NobleTile noble;
+        private int nobleIndex;
+
+        private final ProgressIndices progressIndices = new ProgressIndices();
+    }
+
     // Sets up a 2-player game of splendor, placing 4 cards of each tier in the marketplace,
     // 4 tokens each of black, blue, green, red, white, and 5 gold tokens in the supply,
     // as well as 3 noble tiles available for players to attract. Randomly selects the starting player
     public GameState() {
-        Random random = new Random();
+        this(new SplittableRandom());
+    }
 
+    // Same as GameState(), setting up the game given by the seed
+    public GameState(long seed) {
+        this(new SplittableRandom(seed));
+    }
+
+    // Same as GameState(), drawing the starting player, the nobles and the order of the decks from the given source
+    // of randomness, so that the same seed always sets up the same game
+    public GameState(RandomGenerator random) {
+        this(random.nextInt(2) + 1, Arrays.asList(new SplendorNobles(random).extract(3)), new Tier1Deck(random),
+                new Tier2Deck(random), new Tier3Deck(random));
+    }
+
+    // Sets up the game in which the given player moves first, with the given nobles in play, and the market filled
+    // from the top of the given decks, which become the decks of the game (see GameRecord)
+    public GameState(int playerStarted, List<NobleTile> nobles, Tier1Deck tier1Deck, Tier2Deck tier2Deck,
+                     Tier3Deck tier3Deck) {
         // Set up game
         supplyTokens = new int[]{4, 4, 4, 4, 4, 5};
         player1Tokens = new int[]{0, 0, 0, 0, 0, 0};
@@ -42,9 +98,9 @@ public class GameState {
         player1Cards = new int[]{0, 0, 0, 0, 0};
         player2Cards = new int[]{0, 0, 0, 0, 0};
 
-        // Select player to go first
-        playerToMove = random.nextInt(2) + 1;
-        playerStarted = playerToMove;
+        // Set player to go first
+        playerToMove = playerStarted;
+        this.playerStarted = playerStarted;
         turnNumber = 0;
         lastTurn = false;
         gameOver = false;
@@ -58,14 +114,12 @@ public class GameState {
         player2Reserve = new ArrayList<>();
 
         // Lay out noble tiles in play
-        SplendorNobles allNobles = new SplendorNobles();
-        noblesMarket = new ArrayList<>();
-        noblesMarket.addAll(Arrays.asList(allNobles.extract(3)).subList(0, 3));
+        noblesMarket = new ArrayList<>(nobles);
 
         // Prepare development card decks
-        tier1Deck = new Tier1Deck();
-        tier2Deck = new Tier2Deck();
-        tier3Deck = new Tier3Deck();
+        this.tier1Deck = tier1Deck;
+        this.tier2Deck = tier2Deck;
+        this.tier3Deck = tier3Deck;
 
         // Draw cards to populate the market
         tier1Market = new ArrayList<>();
@@ -76,9 +130,13 @@ public class GameState {
             tier2Market.add(tier2Deck.drawCard());
             tier3Market.add(tier3Deck.drawCard());
         }
+
+        zobristKey = Zobrist.computeKey(this);
+        progressIndices.compute(this);
     }
 
     // Sets up a specific game state for a 2 player game of splendor, given all the needed information
+    // Cards and nobles are immutable, so the copy shares them with the original state (see CardCatalog)
     public GameState(GameState state) {
         // Set up game
         supplyTokens = new int[]{4, 4, 4, 4, 4, 5};
@@ -119,16 +177,16 @@ public class GameState {
 
         // Populate reserves
         for(int i = 0; i < state.getPlayer1Reserve().size(); i ++)
-            player1Reserve.add(new DevelopmentCard(state.getPlayer1Reserve().get(i)));
+            player1Reserve.add(state.getPlayer1Reserve().get(i));
         for(int i = 0; i < state.getPlayer2Reserve().size(); i ++)
-            player2Reserve.add(new DevelopmentCard(state.getPlayer2Reserve().get(i)));
+            player2Reserve.add(state.getPlayer2Reserve().get(i));
 
         // Initialize nobles market
         noblesMarket = new ArrayList<>();
 
         // Populate nobles market
         for(int i = 0; i < state.getNoblesMarket().size(); i ++)
-            noblesMarket.add(new NobleTile(state.getNoblesMarket().get(i)));
+            noblesMarket.add(state.getNoblesMarket().get(i));
 
         // Populate decks
         tier1Deck = new Tier1Deck(state.getTier1Deck());
@@ -142,17 +200,51 @@ public class GameState {
 
         // Populate card market
         for(int i = 0; i < state.getTier1Market().size(); i ++) {
-            tier1Market.add(new DevelopmentCard(state.getTier1Market().get(i)));
+            tier1Market.add(state.getTier1Market().get(i));
         }
 
         for(int i = 0; i < state.getTier2Market().size(); i ++) {
-            tier2Market.add(new DevelopmentCard(state.getTier2Market().get(i)));
+            tier2Market.add(state.getTier2Market().get(i));
         }
 
         for(int i = 0; i < state.getTier3Market().size(); i ++) {
-            tier3Market.add(new DevelopmentCard(state.getTier3Market().get(i)));
+            tier3Market.add(state.getTier3Market().get(i));
         }
 
+        zobristKey = state.getZobristKey();
+        progressIndices.copyFrom(state.progressIndices);
+    }
+
+    // Restores a game state from its compact encoding (see PackedGameState)
+    public GameState(PackedGameState packed) {
+        playerToMove = packed.getPlayerToMove();
+        playerStarted = packed.getPlayerStarted();
+        turnNumber = packed.getTurnNumber();
+        lastTurn = packed.isLastTurn();
+        gameOver = packed.isGameOver();
+        player1Score = packed.getPlayerScore(1);
+        player2Score = packed.getPlayerScore(2);
+
+        supplyTokens = packed.getSupplyTokensArray();
+        player1Tokens = packed.getPlayerTokensArray(1);
+        player2Tokens = packed.getPlayerTokensArray(2);
+        player1Cards = packed.getPlayerCardsArray(1);
+        player2Cards = packed.getPlayerCardsArray(2);
+
+        player1Reserve = packed.getReserve(1);
+        player2Reserve = packed.getReserve(2);
+        noblesMarket = packed.getNobles();
+
+        tier1Deck = new Tier1Deck(packed.getDeckCards(1));
+        tier2Deck = new Tier2Deck(packed.getDeckCards(2));
+        tier3Deck = new Tier3Deck(packed.getDeckCards(3));
+
+        tier1Market = packed.getMarket(1);
+        tier2Market = packed.getMarket(2);
+        tier3Market = packed.getMarket(3);
+
+        zobristKey = Zobrist.computeKey(this);
+        progressIndices.compute(this);
     }
 
     @Override
@@ -176,6 +268,31 @@ public class GameState {
                 getMarketPlaceString(colWidth);
     }
 
+    // Two states are equal if they hold the same position: the same tokens, cards, scores, markets, reserves and
+    // nobles, the same player to move and starting player, and the same end-of-game flags
+    // Deck order and the turn counter are not compared, as the players cannot see or influence them
+    @Override
+    public boolean equals(Object other) {
+        if(this == other)
+            return true;
+        if(!(other instanceof GameState state) || zobristKey != state.zobristKey)
+            return false;
+        return playerToMove == state.playerToMove && playerStarted == state.playerStarted &&
+                lastTurn == state.lastTurn && gameOver == state.gameOver &&
+                player1Score == state.player1Score && player2Score == state.player2Score &&
+                Arrays.equals(supplyTokens, state.supplyTokens) &&
+                Arrays.equals(player1Tokens, state.player1Tokens) && Arrays.equals(player2Tokens, state.player2Tokens) &&
+                Arrays.equals(player1Cards, state.player1Cards) && Arrays.equals(player2Cards, state.player2Cards) &&
+                tier1Market.equals(state.tier1Market) && tier2Market.equals(state.tier2Market) &&
+                tier3Market.equals(state.tier3Market) && player1Reserve.equals(state.player1Reserve) &&
+                player2Reserve.equals(state.player2Reserve) && noblesMarket.equals(state.noblesMarket);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(zobristKey);
+    }
+
     // ----- Public Methods -----
 
     public GameState handleMove(Move move) {
@@ -186,21 +303,156 @@ public class GameState {
         };
     }
 
+    // Same as handleMove(Move), for a move encoded by MoveEncoding
+    public GameState handleMove(int move) {
+        int player = MoveEncoding.getPlayer(move);
+        return switch(MoveEncoding.getType(move)) {
+            case buyCard -> handleBuyCardMove(player, MoveEncoding.getCardSource(move), MoveEncoding.getCardIndex(move),
+                    MoveEncoding.getChosenNobleIndex(move));
+            case reserveCard -> handleReserveCardMove(player, MoveEncoding.getCardSource(move),
+                    MoveEncoding.getCardIndex(move), MoveEncoding.getTokensToReturn(move));
+            case takeTokens -> handleTakeTokensMove(player, MoveEncoding.getTokensToTake(move),
+                    MoveEncoding.getTokensToReturn(move));
+        };
+    }
+
+    // Same as handleMove(int), for a move known to be legal, such as one generated by Agent: the move is applied
+    // without being checked, except by an assertion when assertions are enabled (java -ea). Search uses this path,
+    // while moves from outside the program, such as a human player's, go through handleMove()
+    public GameState handleTrustedMove(int move) {
+        assert moveIsValid(move) : "illegal move " + MoveEncoding.toMove(move);
+        int player = MoveEncoding.getPlayer(move);
+        switch(MoveEncoding.getType(move)) {
+            case buyCard -> playBuyCardMove(player, MoveEncoding.getCardSource(move), MoveEncoding.getCardIndex(move),
+                    MoveEncoding.getChosenNobleIndex(move));
+            case reserveCard -> playReserveCardMove(player, MoveEncoding.getCardSource(move),
+                    MoveEncoding.getCardIndex(move), MoveEncoding.getTokensToReturn(move));
+            case takeTokens -> playTakeTokensMove(player, MoveEncoding.getTokensToTake(move),
+                    MoveEncoding.getTokensToReturn(move));
+        }
+        return this;
+    }
+
+    // Applies the move like handleMove(), returning a record of the previous state that can be passed to undoMove(),
+    // or null if the move is illegal (in which case the state is unchanged)
+    public Undo applyMove(Move move) {
+        return applyMove(move, new Undo());
+    }
+
+    // Same as applyMove(Move), but fills in the given undo record instead of allocating a new one
+    public Undo applyMove(Move move, Undo undo) {
+        int encodedMove = MoveEncoding.encode(move);
+        if(encodedMove == MoveEncoding.NONE)
+            return null;
+        return applyMove(encodedMove, undo);
+    }
+
+    // Applies a move encoded by MoveEncoding, checking it is legal first; see applyMove(Move)
+    public Undo applyMove(int move, Undo undo) {
+        int numberNobles = noblesMarket.size();
+        recordMove(move, undo);
+        if(handleMove(move) == null)
+            return null;
+
+        recordReservedCard(undo);
+        if(noblesMarket.size() == numberNobles)
+            undo.noble = null;
+        return undo;
+    }
+
+    // Same as applyMove(int, Undo), for a move known to be legal; see handleTrustedMove()
+    public Undo applyTrustedMove(int move, Undo undo) {
+        recordMove(move, undo);
+        handleTrustedMove(move);
+        recordReservedCard(undo);
+        return undo;
+    }
+
+    // Restores the state to what it was before the move recorded in undo was applied
+    // Moves must be undone in the reverse order in which they were applied
+    public void undoMove(Undo undo) {
+        int player = undo.player;
+
+        switch(undo.type) {
+            case buyCard -> {
+                if(player == 1)
+                    player1Cards[undo.card.getBonusColor().getIndex()] --;
+                if(player == 2)
+                    player2Cards[undo.card.getBonusColor().getIndex()] --;
+                if(undo.noble != null)
+                    noblesMarket.add(undo.nobleIndex, undo.noble);
+                if(undo.cardSource == 0)
+                    getReserve(player).add(undo.cardIndex, undo.card);
+                else
+                    returnCardToMarketplace(undo);
+            }
+            case reserveCard -> {
+                ArrayList<DevelopmentCard> reserve = getReserve(player);
+                DevelopmentCard reservedCard = reserve.remove(reserve.size() - 1);
+                if(undo.cardIndex == 4)
+                    getDeck(undo.cardSource).addCard(reservedCard);
+                else
+                    returnCardToMarketplace(undo);
+            }
+            case takeTokens -> {
+            }
+        }
+
+        unpackTokens(player, undo.tokens);
+        playerToMove = undo.playerToMove;
+        turnNumber = undo.turnNumber;
+        player1Score = undo.player1Score;
+        player2Score = undo.player2Score;
+        lastTurn = undo.lastTurn;
+        gameOver = undo.gameOver;
+        zobristKey = undo.zobristKey;
+        progressIndices.copyFrom(undo.progressIndices);
+    }
+
+    // Swaps the card the recorded move drew from its deck (into the market, or into the reserve for a blind reserve)
+    // with the card at deckIndex in that deck. Calling it again with the same index reverts the swap
+    // This lets search consider every card that could have been drawn without copying the state
+    public void exchangeDrawnCard(Undo undo, int deckIndex) {
+        CardDeck deck = getDeck(undo.cardSource);
+        if(undo.cardIndex == 4) {
+            ArrayList<DevelopmentCard> reserve = getReserve(undo.player);
+            DevelopmentCard drawnCard = reserve.get(reserve.size() - 1);
+            DevelopmentCard replacement = deck.setCard(deckIndex, drawnCard);
+            reserve.set(reserve.size() - 1, replacement);
+            zobristKey ^= Zobrist.reservedCard(undo.player, drawnCard) ^ Zobrist.reservedCard(undo.player, replacement);
+            progressIndices.reserveChanged(this, undo.player);
+        }
+        else {
+            ArrayList<DevelopmentCard> market = getMarket(undo.cardSource);
+            DevelopmentCard drawnCard = market.get(undo.cardIndex);
+            DevelopmentCard replacement = deck.setCard(deckIndex, drawnCard);
+            market.set(undo.cardIndex, replacement);
+            zobristKey ^= Zobrist.marketCard(undo.cardSource, undo.cardIndex, drawnCard) ^
+                    Zobrist.marketCard(undo.cardSource, undo.cardIndex, replacement);
+            progressIndices.marketSlotChanged(this, undo.cardSource, undo.cardIndex);
+        }
+    }
+
     // +++ Move Validation +++
 
     public boolean buyCardMoveIsValid(BuyCardMove move) {
-        int player = move.getPlayer();
+        return buyCardMoveIsValid(move.getPlayer(), move.getCardSource(), move.getCardIndex(),
+                move.getChosenNobleIndex());
+    }
 
+    // Same as buyCardMoveIsValid(BuyCardMove), taking the fields of the move, so that moves can be checked without
+    // building them
+    public boolean buyCardMoveIsValid(int player, int cardSource, int cardIndex, int chosenNobleIndex) {
         // Check game is not over
         if(gameOver)
             return false;
 
         // If move specifies a noble to attract, check noble can be attracted
-        if(move.getChosenNobleIndex() != -1) {
+        if(chosenNobleIndex != -1) {
             boolean nobleIsAttracted = false;
-            int[] attractedNobles = getAttractedNobles(player, move);
+            int[] attractedNobles = getAttractedNobles(player, cardSource, cardIndex);
             for(int i = 0; i < 5; i ++)
-                if(move.getChosenNobleIndex() == attractedNobles[i]) {
+                if(chosenNobleIndex == attractedNobles[i]) {
                     nobleIsAttracted = true;
                     break;
                 }
@@ -209,27 +461,31 @@ public class GameState {
         }
 
         // If move does not specify a noble to attract, check whether one could be attracted
-        if(move.getChosenNobleIndex() == -1) {
-            if(getAttractedNobles(player, move)[0] != -1)
+        if(chosenNobleIndex == -1) {
+            if(getAttractedNobles(player, cardSource, cardIndex)[0] != -1)
                 return false;
         }
 
-        return switch (move.getCardSource()) {
+        return switch (cardSource) {
             case 0 -> switch (player) {
-                case 1 -> playerAffordsCard(player, player1Reserve.get(move.getCardIndex()));
-                case 2 -> playerAffordsCard(player, player2Reserve.get(move.getCardIndex()));
+                case 1 -> playerAffordsCard(player, player1Reserve.get(cardIndex));
+                case 2 -> playerAffordsCard(player, player2Reserve.get(cardIndex));
                 default -> false;
             };
-            case 1 -> playerAffordsCard(player, tier1Market.get(move.getCardIndex()));
-            case 2 -> playerAffordsCard(player, tier2Market.get(move.getCardIndex()));
-            case 3 -> playerAffordsCard(player, tier3Market.get(move.getCardIndex()));
+            case 1 -> playerAffordsCard(player, tier1Market.get(cardIndex));
+            case 2 -> playerAffordsCard(player, tier2Market.get(cardIndex));
+            case 3 -> playerAffordsCard(player, tier3Market.get(cardIndex));
             default -> false;
         };
     }
 
     public boolean reserveCardMoveIsValid(ReserveCardMove move) {
-        int player = move.getPlayer();
+        return reserveCardMoveIsValid(move.getPlayer(), move.getCardTier(), move.getCardIndex(),
+                move.getTokensToReturn());
+    }
 
+    // Same as reserveCardMoveIsValid(ReserveCardMove), taking the fields of the move
+    public boolean reserveCardMoveIsValid(int player, int cardTier, int cardIndex, int[] tokensToReturn) {
         // Check game is not over
         if(gameOver)
             return false;
@@ -248,8 +504,8 @@ public class GameState {
         int totalPlayerTokens = 0;
         int totalReturnedTokens = 0;
 
-        for(int i = 0; i < move.getTokensToReturn().length; i ++)
-            totalReturnedTokens += move.getTokensToReturn()[i];
+        for(int i = 0; i < tokensToReturn.length; i ++)
+            totalReturnedTokens += tokensToReturn[i];
 
         if(totalReturnedTokens > 1)
             return false;
@@ -264,8 +520,8 @@ public class GameState {
             return false;
 
         // Check card to reserve exists
-        return switch(move.getCardTier()) {
-            case 1 -> switch(move.getCardIndex()) {
+        return switch(cardTier) {
+            case 1 -> switch(cardIndex) {
                 case 0 -> tier1Market.size() >= 1;
                 case 1 -> tier1Market.size() >= 2;
                 case 2 -> tier1Market.size() >= 3;
@@ -273,7 +529,7 @@ public class GameState {
                 case 4 -> !tier1Deck.isEmpty();
                 default -> false;
             };
-            case 2 -> switch (move.getCardIndex()) {
+            case 2 -> switch (cardIndex) {
                 case 0 -> tier2Market.size() >= 1;
                 case 1 -> tier2Market.size() >= 2;
                 case 2 -> tier2Market.size() >= 3;
@@ -281,7 +537,7 @@ public class GameState {
                 case 4 -> !tier2Deck.isEmpty();
                 default -> false;
             };
-            case 3 -> switch (move.getCardIndex()) {
+            case 3 -> switch (cardIndex) {
                 case 0 -> tier3Market.size() >= 1;
                 case 1 -> tier3Market.size() >= 2;
                 case 2 -> tier3Market.size() >= 3;
@@ -294,8 +550,11 @@ public class GameState {
     }
 
     public boolean takeTokensMoveIsValid(TakeTokensMove move) {
-        int player = move.getPlayer();
+        return takeTokensMoveIsValid(move.getPlayer(), move.getTokensToTake(), move.getTokensToReturn());
+    }
 
+    // Same as takeTokensMoveIsValid(TakeTokensMove), taking the fields of the move
+    public boolean takeTokensMoveIsValid(int player, int[] tokensToTake, int[] tokensToReturn) {
         // Check game is not over
         if(gameOver)
             return false;
@@ -303,13 +562,13 @@ public class GameState {
         // Check tokens can be taken, or that player is forced to take 0 tokens (due to having no available moves,
         // while opponent has available moves)
         int totalTokensToTake = 0;
-        for(int i = 0; i < move.getTokensToTake().length; i ++)
-            totalTokensToTake += move.getTokensToTake()[i];
-        if(!(canTakeTokens(move.getTokensToTake()) ||
+        for(int i = 0; i < tokensToTake.length; i ++)
+            totalTokensToTake += tokensToTake[i];
+        if(!(canTakeTokens(tokensToTake) ||
                 playerHasNoValidMoves(player) && !isStalemate() && totalTokensToTake == 0))
             return false;
 
-        if(!canReturnTokens(player, move.getTokensToTake(), move.getTokensToReturn()))
+        if(!canReturnTokens(player, tokensToTake, tokensToReturn))
             return false;
 
         // Check player will have 10 tokens or less after the move
@@ -318,8 +577,8 @@ public class GameState {
             numberPlayerTokens = Arrays.stream(player1Tokens).sum();
         if(player == 2)
             numberPlayerTokens = Arrays.stream(player2Tokens).sum();
-        numberTokensToTake = Arrays.stream(move.getTokensToTake()).sum();
-        numberTokensToReturn = Arrays.stream(move.getTokensToReturn()).sum();
+        numberTokensToTake = Arrays.stream(tokensToTake).sum();
+        numberTokensToReturn = Arrays.stream(tokensToReturn).sum();
         if(numberPlayerTokens + numberTokensToTake > 10 && numberTokensToReturn !=
                 numberPlayerTokens + numberTokensToTake - 10)
             return false;
@@ -328,48 +587,104 @@ public class GameState {
     }
 
     public GameState handleBuyCardMove(BuyCardMove move) {
-        int player = move.getPlayer();
+        return handleBuyCardMove(move.getPlayer(), move.getCardSource(), move.getCardIndex(),
+                move.getChosenNobleIndex());
+    }
+
+    public GameState handleReserveCardMove(ReserveCardMove move) {
+        return handleReserveCardMove(move.getPlayer(), move.getCardTier(), move.getCardIndex(),
+                move.getTokensToReturn());
+    }
+
+    public GameState handleTakeTokensMove(TakeTokensMove move) {
+        return handleTakeTokensMove(move.getPlayer(), move.getTokensToTake(), move.getTokensToReturn());
+    }
+
+    // ----- Private methods -----
+
+    // +++ Move Handling +++
 
+    // The handlers below take the fields of the move, so that they can be called both for Move objects and for moves
+    // encoded by MoveEncoding
+
+    private GameState handleBuyCardMove(int player, int cardSource, int cardIndex, int chosenNobleIndex) {
         // Check move is legal
-        if(!buyCardMoveIsValid(move))
+        if(!buyCardMoveIsValid(player, cardSource, cardIndex, chosenNobleIndex))
+            return null;
+
+        playBuyCardMove(player, cardSource, cardIndex, chosenNobleIndex);
+        return this;
+    }
+
+    private GameState handleReserveCardMove(int player, int cardTier, int cardIndex, int[] tokensToReturn) {
+        if(!reserveCardMoveIsValid(player, cardTier, cardIndex, tokensToReturn))
+            return null;
+
+        playReserveCardMove(player, cardTier, cardIndex, tokensToReturn);
+        return this;
+    }
+
+    private GameState handleTakeTokensMove(int player, int[] tokensToTake, int[] tokensToReturn) {
+        // Check move is valid
+        if(!takeTokensMoveIsValid(player, tokensToTake, tokensToReturn))
             return null;
 
+        playTakeTokensMove(player, tokensToTake, tokensToReturn);
+        return this;
+    }
+
+    // Returns true if the move encoded by MoveEncoding is legal in the current state
+    private boolean moveIsValid(int move) {
+        int player = MoveEncoding.getPlayer(move);
+        return switch(MoveEncoding.getType(move)) {
+            case buyCard -> buyCardMoveIsValid(player, MoveEncoding.getCardSource(move),
+                    MoveEncoding.getCardIndex(move), MoveEncoding.getChosenNobleIndex(move));
+            case reserveCard -> reserveCardMoveIsValid(player, MoveEncoding.getCardSource(move),
+                    MoveEncoding.getCardIndex(move), MoveEncoding.getTokensToReturn(move));
+            case takeTokens -> takeTokensMoveIsValid(player, MoveEncoding.getTokensToTake(move),
+                    MoveEncoding.getTokensToReturn(move));
+        };
+    }
+
+    // The play methods below apply a move that has already been checked to be legal
+
+    private void playBuyCardMove(int player, int cardSource, int cardIndex, int chosenNobleIndex) {
         // Handle payment and card acquisition
-        switch(move.getCardSource()) {
+        switch(cardSource) {
             case 0:
                 switch (player) {
                     case 1 -> {
-                        payForCard(player, player1Reserve.get(move.getCardIndex()));
-                        addCardToPlayer(player, player1Reserve.get(move.getCardIndex()));
-                        removeCardFromReserve(player, move.getCardIndex());
+                        payForCard(player, player1Reserve.get(cardIndex));
+                        addCardToPlayer(player, player1Reserve.get(cardIndex));
+                        removeCardFromReserve(player, cardIndex);
                     }
                     case 2 -> {
-                        payForCard(player, player2Reserve.get(move.getCardIndex()));
-                        addCardToPlayer(player, player2Reserve.get(move.getCardIndex()));
-                        removeCardFromReserve(player, move.getCardIndex());
+                        payForCard(player, player2Reserve.get(cardIndex));
+                        addCardToPlayer(player, player2Reserve.get(cardIndex));
+                        removeCardFromReserve(player, cardIndex);
                     }
                 }
                 break;
             case 1:
-                payForCard(player, tier1Market.get(move.getCardIndex()));
-                addCardToPlayer(player, tier1Market.get(move.getCardIndex()));
-                replaceCardFromMarketplace(move.getCardIndex(), 1);
+                payForCard(player, tier1Market.get(cardIndex));
+                addCardToPlayer(player, tier1Market.get(cardIndex));
+                replaceCardFromMarketplace(cardIndex, 1);
                 break;
             case 2:
-                payForCard(player, tier2Market.get(move.getCardIndex()));
-                addCardToPlayer(player, tier2Market.get(move.getCardIndex()));
-                replaceCardFromMarketplace(move.getCardIndex(), 2);
+                payForCard(player, tier2Market.get(cardIndex));
+                addCardToPlayer(player, tier2Market.get(cardIndex));
+                replaceCardFromMarketplace(cardIndex, 2);
                 break;
             case 3:
-                payForCard(player, tier3Market.get(move.getCardIndex()));
-                addCardToPlayer(player, tier3Market.get(move.getCardIndex()));
-                replaceCardFromMarketplace(move.getCardIndex(), 3);
+                payForCard(player, tier3Market.get(cardIndex));
+                addCardToPlayer(player, tier3Market.get(cardIndex));
+                replaceCardFromMarketplace(cardIndex, 3);
                 break;
         }
 
         // Award player the chosen noble if applicable
-        if(move.getChosenNobleIndex() != -1)
-            awardNobleTile(player, move.getChosenNobleIndex());
+        if(chosenNobleIndex != -1)
+            awardNobleTile(player, chosenNobleIndex);
 
         // Increment Turn Counter
         if(playerStarted == player)
@@ -378,60 +693,52 @@ public class GameState {
         // Check game over conditions
         checkGameIsEnding();
         if(lastTurn && player != playerStarted) {
-            lastTurn = false;
-            gameOver = true;
+            setGameFlags(false, true);
         }
         if(isStalemate()) {
-            lastTurn = false;
-            gameOver = true;
+            setGameFlags(false, true);
         }
 
         // Update playerToMove
         if(playerToMove == 1)
             playerToMove = 2;
         else playerToMove = 1;
+        zobristKey ^= Zobrist.PLAYER_TWO_TO_MOVE;
 
-        return this;
+        assert zobristKey == Zobrist.computeKey(this);
+        assert progressIndicesAreValid();
     }
 
-    public GameState handleReserveCardMove(ReserveCardMove move) {
-        int player = move.getPlayer();
-
-        if(!reserveCardMoveIsValid(move))
-            return null;
-
+    private void playReserveCardMove(int player, int cardTier, int cardIndex, int[] tokensToReturn) {
         // Give player gold token and return tokens if necessary
-        int [] tokensToTransfer = {0, 0, 0, 0, 0, 1};
-        transferTokensToPlayer(player, tokensToTransfer);
-        transferTokensToSupply(player, move.getTokensToReturn());
+        transferTokensToPlayer(player, GOLD_TOKEN);
+        transferTokensToSupply(player, tokensToReturn);
 
-        switch(move.getCardTier()) {
+        switch(cardTier) {
             case 1:
-                if(move.getCardIndex() == 4)
+                if(cardIndex == 4)
                     addCardToReserve(player, tier1Deck.drawCard());
                 else {
-                    addCardToReserve(player, tier1Market.get(move.getCardIndex()));
-                    replaceCardFromMarketplace(move.getCardIndex(), move.getCardTier());
+                    addCardToReserve(player, tier1Market.get(cardIndex));
+                    replaceCardFromMarketplace(cardIndex, cardTier);
                 }
                 break;
             case 2:
-                if(move.getCardIndex() == 4)
+                if(cardIndex == 4)
                     addCardToReserve(player, tier2Deck.drawCard());
                 else {
-                    addCardToReserve(player, tier2Market.get(move.getCardIndex()));
-                    replaceCardFromMarketplace(move.getCardIndex(), move.getCardTier());
+                    addCardToReserve(player, tier2Market.get(cardIndex));
+                    replaceCardFromMarketplace(cardIndex, cardTier);
                 }
                 break;
             case 3:
-                if(move.getCardIndex() == 4)
+                if(cardIndex == 4)
                     addCardToReserve(player, tier3Deck.drawCard());
                 else {
-                    addCardToReserve(player, tier3Market.get(move.getCardIndex()));
-                    replaceCardFromMarketplace(move.getCardIndex(), move.getCardTier());
+                    addCardToReserve(player, tier3Market.get(cardIndex));
+                    replaceCardFromMarketplace(cardIndex, cardTier);
                 }
                 break;
-            default:
-                return null;
         }
 
         // Increment Turn Counter
@@ -440,32 +747,26 @@ public class GameState {
 
         // Check game over conditions
         if(lastTurn && player != playerStarted) {
-            lastTurn = false;
-            gameOver = true;
+            setGameFlags(false, true);
         }
         if(isStalemate()) {
-            lastTurn = false;
-            gameOver = true;
+            setGameFlags(false, true);
         }
 
         // Update playerToMove
         if(playerToMove == 1)
             playerToMove = 2;
         else playerToMove = 1;
+        zobristKey ^= Zobrist.PLAYER_TWO_TO_MOVE;
 
-        return this;
+        assert zobristKey == Zobrist.computeKey(this);
+        assert progressIndicesAreValid();
     }
 
-    public GameState handleTakeTokensMove(TakeTokensMove move) {
-        int player = move.getPlayer();
-
-        // Check move is valid
-        if(!takeTokensMoveIsValid(move))
-            return null;
-
+    private void playTakeTokensMove(int player, int[] tokensToTake, int[] tokensToReturn) {
         // Carry out transfer, and any return necessary
-        transferTokensToPlayer(player, move.getTokensToTake());
-        transferTokensToSupply(player, move.getTokensToReturn());
+        transferTokensToPlayer(player, tokensToTake);
+        transferTokensToSupply(player, tokensToReturn);
 
         // Increment Turn Counter
         if(playerStarted == player)
@@ -473,23 +774,75 @@ public class GameState {
 
         // Check game over conditions
         if(lastTurn && player != playerStarted) {
-            lastTurn = false;
-            gameOver = true;
+            setGameFlags(false, true);
         }
         if(isStalemate()) {
-            lastTurn = false;
-            gameOver = true;
+            setGameFlags(false, true);
         }
 
         // Update playerToMove
         if(playerToMove == 1)
             playerToMove = 2;
         else playerToMove = 1;
+        zobristKey ^= Zobrist.PLAYER_TWO_TO_MOVE;
 
-        return this;
+        assert zobristKey == Zobrist.computeKey(this);
+        assert progressIndicesAreValid();
     }
 
-    // ----- Private methods -----
+    // Fills in the undo record with the parts of the state the move is about to change
+    private void recordMove(int move, Undo undo) {
+        int player = MoveEncoding.getPlayer(move);
+        int cardSource = MoveEncoding.getCardSource(move);
+        int cardIndex = MoveEncoding.getCardIndex(move);
+        int chosenNobleIndex = MoveEncoding.getChosenNobleIndex(move);
+
+        undo.type = MoveEncoding.getType(move);
+        undo.player = player;
+        undo.playerToMove = playerToMove;
+        undo.turnNumber = turnNumber;
+        undo.player1Score = player1Score;
+        undo.player2Score = player2Score;
+        undo.lastTurn = lastTurn;
+        undo.gameOver = gameOver;
+        undo.zobristKey = zobristKey;
+        undo.tokens = packTokens(player);
+        undo.cardSource = cardSource;
+        undo.cardIndex = cardIndex;
+        undo.card = null;
+        undo.slotRemoved = false;
+        undo.noble = null;
+        undo.nobleIndex = -1;
+        undo.progressIndices.copyFrom(progressIndices);
+
+        // Record the card leaving the market or reserve before it is replaced
+        if(undo.type == Move.Type.buyCard) {
+            ArrayList<DevelopmentCard> cards = cardSource == 0 ? getReserve(player) : getMarket(cardSource);
+            if(cards != null && cardIndex < cards.size())
+                undo.card = cards.get(cardIndex);
+            if(cardSource != 0)
+                undo.slotRemoved = getDeck(cardSource).isEmpty();
+            if(chosenNobleIndex >= 0 && chosenNobleIndex < noblesMarket.size()) {
+                undo.noble = noblesMarket.get(chosenNobleIndex);
+                undo.nobleIndex = chosenNobleIndex;
+            }
+        }
+        else if(undo.type == Move.Type.reserveCard) {
+            ArrayList<DevelopmentCard> market = getMarket(cardSource);
+            if(market != null && cardIndex < market.size()) {
+                undo.card = market.get(cardIndex);
+                undo.slotRemoved = getDeck(cardSource).isEmpty();
+            }
+        }
+    }
+
+    // Records the card drawn from the deck by a blind reserve, once the move has been applied
+    private void recordReservedCard(Undo undo) {
+        if(undo.type == Move.Type.reserveCard && undo.cardIndex == 4) {
+            ArrayList<DevelopmentCard> reserve = getReserve(undo.player);
+            undo.card = reserve.get(reserve.size() - 1);
+        }
+    }
 
     // +++ Game State Manipulation +++
 
@@ -497,15 +850,18 @@ public class GameState {
     // Does not handle noble attraction, win condition checking or paying for the card
     private boolean addCardToPlayer(int player, DevelopmentCard card) {
 
-        DevelopmentCard.Color cardColor = card.getBonusColor();
+        int color = card.getBonusColor().getIndex();
         if(player == 1) {
-            player1Cards[cardColor.getIndex()] ++;
-            player1Score += card.getPointValue();
+            zobristKey ^= Zobrist.bonuses(1, color, player1Cards[color]) ^ Zobrist.bonuses(1, color, player1Cards[color] + 1);
+            player1Cards[color] ++;
+            setScore(1, player1Score + card.getPointValue());
         }
         if(player == 2) {
-            player2Cards[cardColor.getIndex()] ++;
-            player2Score += card.getPointValue();
+            zobristKey ^= Zobrist.bonuses(2, color, player2Cards[color]) ^ Zobrist.bonuses(2, color, player2Cards[color] + 1);
+            player2Cards[color] ++;
+            setScore(2, player2Score + card.getPointValue());
         }
+        progressIndices.bonusAdded(this, player, color);
         return true;
     }
 
@@ -525,12 +881,13 @@ public class GameState {
 
         // Add the noble's point value to the player's score
         if(player == 1)
-            player1Score += noblesMarket.get(nobleTileIndex).getPointValue();
+            setScore(1, player1Score + noblesMarket.get(nobleTileIndex).getPointValue());
         if(player == 2)
-            player2Score += noblesMarket.get(nobleTileIndex).getPointValue();
+            setScore(2, player2Score + noblesMarket.get(nobleTileIndex).getPointValue());
 
         // Remove the noble from the marketplace
-        noblesMarket.remove(nobleTileIndex);
+        zobristKey ^= Zobrist.noble(noblesMarket.remove(nobleTileIndex));
+        progressIndices.noblesChanged(this);
         return true;
     }
 
@@ -542,12 +899,15 @@ public class GameState {
             if(player1Reserve.size() >= 3)
                 return false;
             else player1Reserve.add(card);
+            zobristKey ^= Zobrist.reservedCard(1, card);
         }
         if(player == 2) {
             if(player2Reserve.size() >= 3)
                 return false;
             else player2Reserve.add(card);
+            zobristKey ^= Zobrist.reservedCard(2, card);
         }
+        progressIndices.reserveChanged(this, player);
         return true;
     }
 
@@ -556,9 +916,10 @@ public class GameState {
     // Does not handle paying for the card
     private boolean removeCardFromReserve(int player, int cardIndex) {
         if(player == 1)
-            player1Reserve.remove(cardIndex);
+            zobristKey ^= Zobrist.reservedCard(1, player1Reserve.remove(cardIndex));
         if(player == 2)
-            player2Reserve.remove(cardIndex);
+            zobristKey ^= Zobrist.reservedCard(2, player2Reserve.remove(cardIndex));
+        progressIndices.reserveChanged(this, player);
         return false;
     }
 
@@ -572,16 +933,12 @@ public class GameState {
         // Carry out transfer if it is legal
         if(canTakeTokens(tokensToTransfer)) {
             if(player == 1) {
-                for(int i = 0; i < tokensToTransfer.length; i ++) {
-                    player1Tokens[i] += tokensToTransfer[i];
-                    supplyTokens[i] -= tokensToTransfer[i];
-                }
+                for(int i = 0; i < tokensToTransfer.length; i ++)
+                    moveTokens(1, i, tokensToTransfer[i]);
             }
             if(player == 2) {
-                for(int i = 0; i < tokensToTransfer.length; i ++) {
-                    player2Tokens[i] += tokensToTransfer[i];
-                    supplyTokens[i] -= tokensToTransfer[i];
-                }
+                for(int i = 0; i < tokensToTransfer.length; i ++)
+                    moveTokens(2, i, tokensToTransfer[i]);
             }
         }
         else return false;
@@ -610,10 +967,8 @@ public class GameState {
                     return false;
 
             // Carry out transfer
-            for(int i = 0; i < tokensToTransfer.length; i ++) {
-                player1Tokens[i] -= tokensToTransfer[i];
-                supplyTokens[i] += tokensToTransfer[i];
-            }
+            for(int i = 0; i < tokensToTransfer.length; i ++)
+                moveTokens(1, i, -tokensToTransfer[i]);
         }
         if(player == 2) {
             // Check if the player's number of tokens is legal after transfer
@@ -628,10 +983,8 @@ public class GameState {
                     return false;
 
             // Carry out transfer
-            for(int i = 0; i < tokensToTransfer.length; i ++) {
-                player2Tokens[i] -= tokensToTransfer[i];
-                supplyTokens[i] += tokensToTransfer[i];
-            }
+            for(int i = 0; i < tokensToTransfer.length; i ++)
+                moveTokens(2, i, -tokensToTransfer[i]);
         }
         return true;
     }
@@ -657,35 +1010,122 @@ public class GameState {
     }
 
     private boolean replaceCardFromMarketplace(int cardIndex, int cardTier) {
-        switch(cardTier) {
-            case 1:
-                if(tier1Deck.isEmpty())
-                    tier1Market.remove(cardIndex);
-                else
-                    tier1Market.set(cardIndex, tier1Deck.drawCard());
-                return true;
-            case 2:
-                if(tier2Deck.isEmpty())
-                    tier2Market.remove(cardIndex);
-                else
-                    tier2Market.set(cardIndex, tier2Deck.drawCard());
-                return true;
-            case 3:
-                if(tier3Deck.isEmpty())
-                    tier3Market.remove(cardIndex);
-                else
-                    tier3Market.set(cardIndex, tier3Deck.drawCard());
-                return true;
-            default:
-                return false;
+        ArrayList<DevelopmentCard> market = getMarket(cardTier);
+        if(market == null)
+            return false;
+
+        CardDeck deck = getDeck(cardTier);
+        if(deck.isEmpty()) {
+            // The cards after the removed one shift one slot to the left, so the whole tier is rehashed
+            zobristKey ^= Zobrist.market(cardTier, market);
+            market.remove(cardIndex);
+            zobristKey ^= Zobrist.market(cardTier, market);
+            progressIndices.marketChanged(this, cardTier);
+        }
+        else {
+            DevelopmentCard card = deck.drawCard();
+            zobristKey ^= Zobrist.marketCard(cardTier, cardIndex, market.set(cardIndex, card)) ^
+                    Zobrist.marketCard(cardTier, cardIndex, card);
+            progressIndices.marketSlotChanged(this, cardTier, cardIndex);
+        }
+        return true;
+    }
+
+    // Moves tokens of one color from the supply to the player, or from the player to the supply if amount is negative
+    // Does not perform any checks
+    private void moveTokens(int player, int color, int amount) {
+        if(amount == 0)
+            return;
+        int[] playerTokens = player == 1 ? player1Tokens : player2Tokens;
+        zobristKey ^= Zobrist.supplyTokens(color, supplyTokens[color]) ^
+                Zobrist.playerTokens(player, color, playerTokens[color]);
+        supplyTokens[color] -= amount;
+        playerTokens[color] += amount;
+        zobristKey ^= Zobrist.supplyTokens(color, supplyTokens[color]) ^
+                Zobrist.playerTokens(player, color, playerTokens[color]);
+        progressIndices.tokensChanged(this, player, color, amount);
+    }
+
+    private void setScore(int player, int score) {
+        if(player == 1) {
+            zobristKey ^= Zobrist.score(1, player1Score) ^ Zobrist.score(1, score);
+            player1Score = score;
         }
+        if(player == 2) {
+            zobristKey ^= Zobrist.score(2, player2Score) ^ Zobrist.score(2, score);
+            player2Score = score;
+        }
+    }
+
+    private void setGameFlags(boolean lastTurn, boolean gameOver) {
+        if(this.lastTurn != lastTurn)
+            zobristKey ^= Zobrist.LAST_TURN;
+        if(this.gameOver != gameOver)
+            zobristKey ^= Zobrist.GAME_OVER;
+        this.lastTurn = lastTurn;
+        this.gameOver = gameOver;
+    }
+
+    // Puts a card taken from the market back in its slot, returning the card that replaced it to the top of its deck
+    private void returnCardToMarketplace(Undo undo) {
+        ArrayList<DevelopmentCard> market = getMarket(undo.cardSource);
+        if(undo.slotRemoved)
+            market.add(undo.cardIndex, undo.card);
+        else
+            getDeck(undo.cardSource).addCard(market.set(undo.cardIndex, undo.card));
     }
 
     // +++ Utility methods +++
 
+    // Returns true if the progress indices match the ones computed from scratch; used in assertions
+    private boolean progressIndicesAreValid() {
+        ProgressIndices indices = new ProgressIndices();
+        indices.compute(this);
+        return indices.equals(progressIndices);
+    }
+
+    // Packs the supply tokens and the player's tokens into a long, 4 bits per count
+    private long packTokens(int player) {
+        int[] playerTokens = player == 1 ? player1Tokens : player2Tokens;
+        long packed = 0;
+        for(int i = 0; i < 6; i ++)
+            packed |= (long) supplyTokens[i] << (4 * i) | (long) playerTokens[i] << (24 + 4 * i);
+        return packed;
+    }
+
+    private void unpackTokens(int player, long packed) {
+        int[] playerTokens = player == 1 ? player1Tokens : player2Tokens;
+        for(int i = 0; i < 6; i ++) {
+            supplyTokens[i] = (int) (packed >>> (4 * i)) & 0xF;
+            playerTokens[i] = (int) (packed >>> (24 + 4 * i)) & 0xF;
+        }
+    }
+
+    private ArrayList<DevelopmentCard> getMarket(int tier) {
+        return switch(tier) {
+            case 1 -> tier1Market;
+            case 2 -> tier2Market;
+            case 3 -> tier3Market;
+            default -> null;
+        };
+    }
+
+    private ArrayList<DevelopmentCard> getReserve(int player) {
+        return player == 1 ? player1Reserve : player2Reserve;
+    }
+
+    private CardDeck getDeck(int tier) {
+        return switch(tier) {
+            case 1 -> tier1Deck;
+            case 2 -> tier2Deck;
+            case 3 -> tier3Deck;
+            default -> null;
+        };
+    }
+
     private boolean checkGameIsEnding() {
         if(player1Score >= 15 || player2Score >= 15)
-            lastTurn = true;
+            setGameFlags(true, gameOver);
         return player1Score >= 15 || player2Score >= 15;
     }
 
@@ -811,8 +1251,8 @@ public class GameState {
         return true;
     }
 
-    // Returns an array of indices of the nobles attracted by a player after a given BuyCardMove
-    private int[] getAttractedNobles(int player, BuyCardMove move) {
+    // Returns an array of indices of the nobles attracted by a player after buying the given card
+    private int[] getAttractedNobles(int player, int cardSource, int cardIndex) {
         int[] attractedNobles = {-1, -1, -1, -1, -1};
         int[] playerCardsAfterMove = {0, 0, 0, 0, 0};
 
@@ -823,21 +1263,21 @@ public class GameState {
             System.arraycopy(player2Cards, 0, playerCardsAfterMove, 0, 5);
 
         // Simulate the purchase of the new card
-        switch(move.getCardSource()) {
+        switch(cardSource) {
             case 0:
                 if(player == 1)
-                    playerCardsAfterMove[player1Reserve.get(move.getCardIndex()).getBonusColor().getIndex()] ++;
+                    playerCardsAfterMove[player1Reserve.get(cardIndex).getBonusColor().getIndex()] ++;
                 if(player == 2)
-                    playerCardsAfterMove[player2Reserve.get(move.getCardIndex()).getBonusColor().getIndex()] ++;
+                    playerCardsAfterMove[player2Reserve.get(cardIndex).getBonusColor().getIndex()] ++;
                 break;
             case 1:
-                playerCardsAfterMove[tier1Market.get(move.getCardIndex()).getBonusColor().getIndex()] ++;
+                playerCardsAfterMove[tier1Market.get(cardIndex).getBonusColor().getIndex()] ++;
                 break;
             case 2:
-                playerCardsAfterMove[tier2Market.get(move.getCardIndex()).getBonusColor().getIndex()]++;
+                playerCardsAfterMove[tier2Market.get(cardIndex).getBonusColor().getIndex()]++;
                 break;
             case 3:
-                playerCardsAfterMove[tier3Market.get(move.getCardIndex()).getBonusColor().getIndex()]++;
+                playerCardsAfterMove[tier3Market.get(cardIndex).getBonusColor().getIndex()]++;
                 break;
             default: return attractedNobles;
         }
@@ -1026,6 +1466,40 @@ public class GameState {
         return playerToMove;
     }
 
+    // Zobrist key of the position, updated incrementally as moves are handled and undone
+    // The key is only kept up to date for changes made through this class; modifying the lists or arrays returned by
+    // the getters directly leaves it stale
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    public ProgressIndices getProgressIndices() {
+        return progressIndices;
+    }
+
+    // Returns the nobles the player would attract by buying a card with a bonus of each color, 5 bits per color: bit
+    // 5 * color + i is set if the player would then meet the requirements of the noble at index i of the market
+    public int getNobleTriggers(int player) {
+        int[] cards = player == 1 ? player1Cards : player2Cards;
+        int nobleTriggers = 0;
+        for(int i = 0; i < noblesMarket.size(); i ++) {
+            int[] required = noblesMarket.get(i).getRequiredArray();
+
+            // Colors of which the player lacks cards, and how many cards they lack
+            int lackingColors = 0, lackingCards = 0;
+            for(int color = 0; color < 5; color ++)
+                if(cards[color] < required[color]) {
+                    lackingColors |= 1 << color;
+                    lackingCards += required[color] - cards[color];
+                }
+
+            for(int color = 0; color < 5; color ++)
+                if(lackingColors == 0 || (lackingCards == 1 && lackingColors == 1 << color))
+                    nobleTriggers |= 1 << (5 * color + i);
+        }
+        return nobleTriggers;
+    }
+
     public int getPlayer1Score() {
         return player1Score;
     }
@@ -0,0 +1,288 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Agent choosing its moves by Monte Carlo tree search: each iteration plays a game from the current state to the end,
+// following the tree of moves already explored with UCT selection, expanding it by one move, then playing randomly
+// (see Playout)
+// The order of the decks is hidden from the players, so each iteration plays on its own determinization of the state,
+// with the decks shuffled. Moves are identified by their MoveEncoding code, which names a card by its slot, so the
+// tree is shared by all determinizations: a node only considers the moves available in the current one, and its
+// children are selected by how often they were available rather than by how often the node was visited
+public class MctsAgent extends Agent {
+    // How several threads share the work (see setThreads())
+    public enum Parallelism {root, tree}
+
+    private final int iterations;
+
+    // Time budget per move in milliseconds, or 0 to always run the given number of iterations
+    private long timeBudget = 0;
+
+    // Weight of exploration in UCT selection, for results between 0 and 1. Against minimax, values from 0.5 to sqrt(2)
+    // play about equally well at 1000 iterations, and lower ones explore too little
+    private double explorationConstant = 0.7;
+
+    private Parallelism parallelism = Parallelism.root;
+    private int threads = 1;
+
+    // Pool running the iterations in parallel, or null if the agent searches on a single thread
+    private ForkJoinPool forkJoinPool;
+
+    // Random games are cut short after this many moves, and won by the player with the most points
+    private static final int MAX_ROLLOUT_MOVES = 200;
+
+    // Number of iterations run for the last move
+    private int lastIterations;
+
+    /**
+     * @param iterations - number of games played per move, or 0 to play as many as the time budget allows
+     */
+    public MctsAgent(int iterations) {
+        super();
+        this.iterations = iterations;
+    }
+
+    public Move generateMove(final GameState state) {
+        return monteCarloTreeSearch(state);
+    }
+
+    /**
+     * @param milliseconds - time allowed per move, or 0 to always run the given number of iterations
+     *
+     * With both a number of iterations and a time budget, the search stops at whichever limit is reached first
+     */
+    public void setTimeBudget(long milliseconds) {
+        timeBudget = milliseconds;
+    }
+
+    /**
+     * @param explorationConstant - weight of the exploration term of UCT selection; higher values try the moves
+     * with few visits more often
+     */
+    public void setExplorationConstant(double explorationConstant) {
+        this.explorationConstant = explorationConstant;
+    }
+
+    /**
+     * @param threads - number of threads to search with; 1 searches on the calling thread
+     * @param parallelism - root to grow a separate tree on each thread and add up the visits of the moves at the root
+     * (the default), or tree to grow a single tree shared by all threads
+     *
+     * In a shared tree, a thread counts its visit to a node before the game is over, so that the other threads
+     * passing through see the node as less promising until the result arrives (virtual loss)
+     */
+    public void setThreads(int threads, Parallelism parallelism) {
+        if(forkJoinPool != null)
+            forkJoinPool.shutdown();
+        this.threads = Math.max(threads, 1);
+        this.parallelism = parallelism;
+        forkJoinPool = threads > 1 ? new ForkJoinPool(threads) : null;
+    }
+
+    /**
+     * @return number of iterations run for the last move
+     */
+    public int getLastIterations() {
+        return lastIterations;
+    }
+
+    /**
+     * @param state - state of the game from which to search
+     * @return the move played most often from the state, or null if there is no available move
+     */
+    private Move monteCarloTreeSearch(final GameState state) {
+        int[] availableMoves = new int[MoveEncoding.MAX_MOVES];
+        int numberMoves = getAvailableMoves(state, availableMoves);
+        if(numberMoves == 0)
+            return null;
+        if(numberMoves == 1)
+            return MoveEncoding.toMove(availableMoves[0]);
+
+        long deadline = timeBudget > 0 ? System.nanoTime() + timeBudget * 1000000 : Long.MAX_VALUE;
+        AtomicInteger iterationCounter = new AtomicInteger();
+
+        // Every task runs iterations until the limits are reached, either on its own tree or on the shared one
+        int numberTasks = forkJoinPool != null ? threads : 1;
+        ArrayList<Node> roots = new ArrayList<>();
+        ArrayList<SearchTask> tasks = new ArrayList<>();
+        for(int i = 0; i < numberTasks; i ++) {
+            if(roots.isEmpty() || parallelism == Parallelism.root)
+                roots.add(new Node(MoveEncoding.NONE));
+            tasks.add(new SearchTask(roots.get(roots.size() - 1), state, random.split(), iterationCounter, deadline));
+        }
+        if(forkJoinPool != null)
+            forkJoinPool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        else
+            tasks.get(0).invoke();
+        lastIterations = Math.min(iterationCounter.get(), iterations > 0 ? iterations : Integer.MAX_VALUE);
+
+        // The moves available at the root do not depend on the order of the decks, so every tree holds the same ones
+        HashMap<Integer, Integer> visits = new HashMap<>();
+        for(Node root : roots)
+            for(Node child : root.children.values())
+                visits.merge(child.move, child.visits, Integer::sum);
+
+        int bestMove = availableMoves[0], bestVisits = -1;
+        for(int i = 0; i < numberMoves; i ++) {
+            int moveVisits = visits.getOrDefault(availableMoves[i], 0);
+            if(moveVisits > bestVisits) {
+                bestMove = availableMoves[i];
+                bestVisits = moveVisits;
+            }
+        }
+        return MoveEncoding.toMove(bestMove);
+    }
+
+    /**
+     * @param state - state to determinize, left unchanged
+     * @return copy of the state with each deck shuffled, as the players only know which cards the decks hold
+     */
+    private static GameState determinize(final GameState state, final SplittableRandom random) {
+        GameState determinization = new GameState(state);
+        determinization.getTier1Deck().shuffle(random);
+        determinization.getTier2Deck().shuffle(random);
+        determinization.getTier3Deck().shuffle(random);
+        return determinization;
+    }
+
+    /**
+     * @param node - node of the tree whose moves are being explored
+     * @param moves - moves available in the current determinization
+     * @param numberMoves - number of available moves
+     * @return a random available move the node has no child for yet, now added as a child, or null if every available
+     * move has been tried, in which case the child to follow is chosen by selectChild()
+     *
+     * Every visit to the node passes through here, so this counts the availability of the children of all available
+     * moves, the new child included
+     */
+    private static Node expandChild(final Node node, final int[] moves, final int numberMoves,
+                                    final SplittableRandom random) {
+        int untriedMove = MoveEncoding.NONE, numberUntried = 0;
+        for(int i = 0; i < numberMoves; i ++) {
+            Node child = node.children.get(moves[i]);
+            if(child != null)
+                child.availability ++;
+            else if(random.nextInt(++ numberUntried) == 0)
+                untriedMove = moves[i];
+        }
+        if(numberUntried == 0)
+            return null;
+
+        Node child = new Node(untriedMove);
+        child.availability = 1;
+        node.children.put(untriedMove, child);
+        return child;
+    }
+
+    /**
+     * @param node - node of the tree whose children have all been tried
+     * @param moves - moves available in the current determinization
+     * @param numberMoves - number of available moves
+     * @return the child of an available move with the highest upper confidence bound, where the number of visits to
+     * the node is replaced by the number of times the child was available, as counted by expandChild()
+     */
+    private Node selectChild(final Node node, final int[] moves, final int numberMoves) {
+        Node bestChild = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for(int i = 0; i < numberMoves; i ++) {
+            Node child = node.children.get(moves[i]);
+            double value = child.wins / child.visits +
+                    explorationConstant * Math.sqrt(Math.log(child.availability) / child.visits);
+            if(value > bestValue) {
+                bestChild = child;
+                bestValue = value;
+            }
+        }
+        return bestChild;
+    }
+
+    // Node of the search tree, reached by playing its move from its parent
+    // Nodes of a shared tree are only read and updated while holding their parent's lock, or their own for the root
+    private static class Node {
+        private final int move;
+        private final HashMap<Integer, Node> children = new HashMap<>();
+
+        // Games played through the node, games among them won by the player who made the move (draws counting as
+        // half a win), and number of visits to the parent in which the node's move was available
+        private int visits, availability;
+        private double wins;
+
+        Node(int move) {
+            this.move = move;
+        }
+    }
+
+    // Runs iterations on a tree until the number of iterations or the time budget is reached
+    // Each task draws its random choices from its own generator, split from the agent's, and plays its random games
+    // with its own Playout
+    @SuppressWarnings("serial")
+    private class SearchTask extends RecursiveAction {
+        private final Node root;
+        private final GameState state;
+        private final SplittableRandom random;
+        private final Playout playout;
+        private final AtomicInteger iterationCounter;
+        private final long deadline;
+
+        private final int[] moves = new int[MoveEncoding.MAX_MOVES];
+        private final ArrayList<Node> path = new ArrayList<>();
+
+        SearchTask(Node root, GameState state, SplittableRandom random, AtomicInteger iterationCounter, long deadline) {
+            this.root = root;
+            this.state = state;
+            this.random = random;
+            this.playout = new Playout(random.split());
+            this.iterationCounter = iterationCounter;
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected void compute() {
+            while((iterations <= 0 || iterationCounter.getAndIncrement() < iterations) && System.nanoTime() < deadline)
+                runIteration();
+        }
+
+        private void runIteration() {
+            GameState determinization = determinize(state, random);
+            path.clear();
+
+            // Follow the tree down to a node with an untried move, and add the node of that move. The path holds each
+            // node followed by its parent, whose lock guards the node
+            Node node = root, parent;
+            boolean expanded = false;
+            while(!expanded && !determinization.isGameOver()) {
+                int numberMoves = getAvailableMoves(determinization, moves);
+                if(numberMoves == 0)
+                    break;
+
+                parent = node;
+                synchronized(parent) {
+                    node = expandChild(parent, moves, numberMoves, random);
+                    expanded = node != null;
+                    if(!expanded)
+                        node = selectChild(parent, moves, numberMoves);
+                    node.visits ++;
+                }
+                path.add(node);
+                path.add(parent);
+                determinization.handleTrustedMove(node.move);
+            }
+
+            playout.load(determinization);
+            int winner = playout.play(MAX_ROLLOUT_MOVES);
+
+            // Each node is credited from the point of view of the player who made its move
+            for(int i = 0; i < path.size(); i += 2) {
+                Node child = path.get(i);
+                double result = winner == 0 ? 0.5 : (winner == MoveEncoding.getPlayer(child.move) ? 1 : 0);
+                synchronized(path.get(i + 1)) {
+                    child.wins += result;
+                }
+            }
+        }
+    }
+}
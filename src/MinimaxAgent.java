@@ -1,18 +1,109 @@
 import java.lang.reflect.Array;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 public class MinimaxAgent extends Agent {
+    // How the values of the states that can result from a move are combined (see setSearchEngine())
+    public enum SearchEngine {minimax, expectiminimax}
+
     private final int plyNumber;
     private final double stateSamplingRate;
     private final double returnSamplingRate;
-    private final ArrayList<Double> weights;
+    private final double[] weights;
+
+    // Number of parameters of the heuristic, and the values of the parameters of the state being evaluated
+    private static final int NUMBER_PARAMETERS = 10;
+    private final double[] parameters = new double[NUMBER_PARAMETERS];
+
+    // Range of each parameter of the heuristic (see getParameterValues()): scores lie between 0 and 22, and a single
+    // move gains at most 5 points from a card and 3 from a noble
+    private static final double[] PARAMETER_MIN = {-1, -1, 0, 0, 0, 0, 0, 0, 0, 0};
+    private static final double[] PARAMETER_MAX = {1, 1, 22, 22, 8, 12 * 5, 3 * 5, 5, 3, 10};
+    private static final int MAX_POINTS_PER_MOVE = 8;
+
+    // Detector of the purchases winning the game, used to compute the isWinning and maxImmediatePoints parameters
+    private final ThreatDetector threatDetector = new ThreatDetector();
+
+    // Undo records reused while searching, one per ply, and one for evaluating TakeTokensMoves
+    private GameState.Undo[] undoStack;
+    private final GameState.Undo heuristicUndo = new GameState.Undo();
+
+    // Available moves of each ply of the search, encoded by MoveEncoding, and the values of the TakeTokensMoves
+    // being reduced (see reduceTakeTokensMoves())
+    private int[][] moveStack;
+
+    // Outcomes of the chance node of each ply selected for search (see searchMove()). No move has more outcomes than
+    // the 40 cards of the tier 1 deck
+    private static final int MAX_OUTCOMES = 40;
+    private int[][] outcomeStack;
+    private final double[] takeTokensValues = new double[MoveEncoding.MAX_MOVES];
+    private final double[] takeTokensValuesSorted = new double[MoveEncoding.MAX_MOVES];
+
+    // Results of previously searched positions, or null if the agent does not use a transposition table
+    private TranspositionTable transpositionTable;
+    private final TranspositionTable.Entry tableEntry = new TranspositionTable.Entry();
+
+    private SearchEngine searchEngine = SearchEngine.minimax;
+
+    // Move ordering (see setMoveOrdering()): the order in which the moves of each ply are searched, as indices into
+    // the available moves, the scores the moves are ordered by, the two killer moves of each ply, and the history
+    // table, indexed by MoveEncoding.getIndex()
+    private boolean moveOrdering = true;
+    private static final long BUY_SCORE = 1L << 62, KILLER_SCORE = 1L << 61;
+    private int[][] orderStack;
+    private long[][] scoreStack;
+    private int[][] killerMoves;
+    private final long[] history = new long[MoveEncoding.NUMBER_INDICES];
+
+    // Statistics of the last search, and of all searches since the agent was created or the game statistics reset
+    private final SearchStatistics statistics = new SearchStatistics();
+    private final SearchStatistics gameStatistics = new SearchStatistics();
+
+    // Bounds on the values of the states that can result from the move of each ply, used by the expectiminimax search
+    private double[][] lowerBoundStack, upperBoundStack;
+
+    // Pool searching the moves at the root in parallel, or null if the agent searches on a single thread, and the
+    // searcher of each thread, created the first time the thread searches a root move
+    private ForkJoinPool forkJoinPool;
+    private final ThreadLocal<MinimaxAgent> searchers = ThreadLocal.withInitial(() -> new MinimaxAgent(this));
+
+    // Deepest search tried when searching with a time budget
+    private static final int MAX_PLY_NUMBER = 63;
+
+    // Time budget per move in milliseconds, or 0 to always search plyNumber plies
+    private long timeBudget = 0;
+    private long searchDeadline;
+    private boolean searchAborted;
+    private int lastSearchPlyNumber;
+
+    // Principal variation of each ply of the current search, as indices into the available moves, and that of the
+    // last completed search, which is searched first in the next iteration
+    private int[][] principalVariationTable;
+    private int[] principalVariationLength;
+    private int[] principalVariation = new int[0];
+    private boolean followingPrincipalVariation;
 
     public MinimaxAgent(int plyNumber, double stateSamplingRate, double returnSamplingRate, final ArrayList<Double> weights) {
         super();
         this.plyNumber = plyNumber;
         this.stateSamplingRate = stateSamplingRate;
         this.returnSamplingRate = returnSamplingRate;
-        this.weights = new ArrayList<>(weights);
+        this.weights = new double[weights.size()];
+        for(int i = 0; i < weights.size(); i ++)
+            this.weights[i] = weights.get(i);
+    }
+
+    // Agent searching root moves for another agent in a parallel search, with its own search records, reused for
+    // every root move searched on its thread (see prepareRootMoveSearch())
+    // The weights are shared, as the search only reads them
+    private MinimaxAgent(final MinimaxAgent agent) {
+        super();
+        this.plyNumber = agent.plyNumber;
+        this.stateSamplingRate = agent.stateSamplingRate;
+        this.returnSamplingRate = agent.returnSamplingRate;
+        this.weights = agent.weights;
     }
 
     public Move generateMove(final GameState state) {
@@ -20,109 +111,151 @@ public class MinimaxAgent extends Agent {
     }
 
     /**
-     * @param state - the game state of a game of splendor
-     * @return list of unique game states that can result from performing one action
+     * @param megabytes - memory to allocate for the transposition table; entries are kept between moves
+     */
+    public void enableTranspositionTable(int megabytes) {
+        transpositionTable = new TranspositionTable(megabytes);
+    }
+
+    /**
+     * @param milliseconds - time allowed per move, or 0 to search a fixed plyNumber plies
      *
-     * If the move is a TakeTokensMove, there will be only one possible next state. However,
-     * if it is a ReserveCardMove or BuyCardMove, we need to account for all possible cards that might replace
-     * the taken card in the marketplace
+     * With a time budget, the agent searches 3, 5, 7... plies, each iteration starting with the principal variation of
+     * the previous one, until the time runs out. It then plays the best move of the deepest completed iteration. The
+     * 3-ply iteration is always completed, so the budget may be exceeded on complex positions
      */
-    private ArrayList<GameState> getPossibleNextStates(final GameState state,final Move move) {
+    public void setTimeBudget(long milliseconds) {
+        timeBudget = milliseconds;
+    }
 
-        ArrayList<GameState> possibleNextStates = new ArrayList<>();
+    /**
+     * @param searchEngine - minimax to average the values of the sampled states that can result from a move, searching
+     * each with the window of the move (the default), or expectiminimax to search them as a chance node
+     *
+     * The expectiminimax search gives each state the window in which its value can still move the average out of the
+     * window of the move, and stops as soon as the average is known to fall outside of it, using the range of values
+     * the heuristic can take (*-minimax pruning). Its results are those of a full expectiminimax search of the sampled
+     * states
+     */
+    public void setSearchEngine(SearchEngine searchEngine) {
+        this.searchEngine = searchEngine;
+    }
 
-        if(move instanceof TakeTokensMove) {
-            GameState newState = new GameState(state);
-            newState.handleMove(move);
-            possibleNextStates.add(newState);
-        }
+    /**
+     * @param moveOrdering - true to order the moves of each node before searching them (the default), false to search
+     * them in the order in which they are generated
+     *
+     * The move of the previous iteration's principal variation or the transposition table is searched first, then the
+     * BuyCardMoves by the points they gain, then the two most recent moves that caused a cutoff at the same ply (killer
+     * moves), then the other moves by how often and how deep they caused cutoffs during the search (history heuristic)
+     */
+    public void setMoveOrdering(boolean moveOrdering) {
+        this.moveOrdering = moveOrdering;
+    }
 
-        if(move instanceof BuyCardMove || move instanceof ReserveCardMove) {
-            int tier;
-            int index;
-            if(move instanceof  BuyCardMove) {
-                tier = ((BuyCardMove) move).getCardSource();
-                index = ((BuyCardMove) move).getCardIndex();
-            }
-            else {
-                tier = ((ReserveCardMove) move).getCardTier();
-                index = ((ReserveCardMove) move).getCardIndex();
-            }
+    /**
+     * @param threads - number of threads to search with; 1 searches on the calling thread
+     *
+     * With several threads, the first move at the root is searched on its own to obtain a bound for the others
+     * (young brothers wait), after which the remaining root moves are searched in parallel, each with that bound as
+     * alpha, by one searcher per thread working on its own copy of the state. A root move is searched with the same
+     * window, move ordering records and random choices whichever thread searches it and whenever, so the move chosen
+     * does not depend on how the threads are scheduled, unless the transposition table is enabled (the threads then
+     * read each other's entries as they are stored) or the time budget runs out
+     */
+    public void setThreads(int threads) {
+        if(forkJoinPool != null)
+            forkJoinPool.shutdown();
+        forkJoinPool = threads > 1 ? new ForkJoinPool(threads) : null;
+    }
 
-            // Add each state that can be obtained after buying the card
-            GameState newState = new GameState(state);
-            newState.handleMove(move);
-            possibleNextStates.add(newState);
-
-            // Move is not a blind reserve or a buy from reserve
-            if(tier > 0  && index < 4) {
-                int deckSize = switch(tier) {
-                    case 1 -> state.getTier1Deck().getSize();
-                    case 2 -> state.getTier2Deck().getSize();
-                    case 3 -> state.getTier3Deck().getSize();
-                    default -> 0;
-                };
-
-                // To obtain possible outcomes, first handle the move. Then, swap the newly replaced card with
-                // another card in the same deck, that it could have been instead. Since the agent cannot see the
-                // content of the deck, there is no need to actually return the card to the deck as long as the deck
-                // size remains correct
-                for(int i = 0; i < deckSize - 1; i ++) {
-                    newState = new GameState(state);
-                    newState.handleMove(move);
-                    DevelopmentCard cardFromDeck = switch(tier) {
-                        case 1 -> newState.getTier1Deck().getCard(i);
-                        case 2 -> newState.getTier2Deck().getCard(i);
-                        case 3 -> newState.getTier3Deck().getCard(i);
-                        default -> null;
-                    };
-
-                    ArrayList<DevelopmentCard> market = switch(tier) {
-                        case 1 -> newState.getTier1Market();
-                        case 2 -> newState.getTier2Market();
-                        case 3 -> newState.getTier3Market();
-                        default -> null;
-                    };
-
-                    market.set(index, cardFromDeck);
-                    possibleNextStates.add(newState);
-                }
-            }
-            // Move is a blind reserve
-            else if(index == 4) {
-                int deckSize = switch(tier) {
-                    case 1 -> state.getTier1Deck().getSize();
-                    case 2 -> state.getTier2Deck().getSize();
-                    case 3 -> state.getTier3Deck().getSize();
-                    default -> 0;
-                };
-
-                for(int i = 0; i < deckSize - 1; i ++) {
-
-                    newState = new GameState(state);
-                    newState.handleMove(move);
-                    DevelopmentCard cardFromDeck = switch (tier) {
-                        case 1 -> newState.getTier1Deck().getCard(i);
-                        case 2 -> newState.getTier2Deck().getCard(i);
-                        case 3 -> newState.getTier3Deck().getCard(i);
-                        default -> null;
-                    };
-
-                    ArrayList<DevelopmentCard> reserve = switch (move.getPlayer()) {
-                        case 1 -> newState.getPlayer1Reserve();
-                        case 2 -> newState.getPlayer2Reserve();
-                        default -> null;
-                    };
-
-                    if(reserve.size() > 0)
-                    reserve.set(reserve.size() - 1, cardFromDeck);
-                    possibleNextStates.add(newState);
-                }
+    /**
+     * @return number of nodes visited by the last search, including leaves and positions found in the transposition
+     * table
+     */
+    public long getVisitedNodes() {
+        return statistics.getVisitedNodes();
+    }
 
-            }
-        }
+    /**
+     * @return number of nodes whose moves were searched by the last search
+     */
+    public long getExpandedNodes() {
+        return statistics.getExpandedNodes();
+    }
 
-        return possibleNextStates;
+    /**
+     * @return number of nodes of the last search whose remaining moves were cut off by alpha-beta pruning; divided by
+     * getExpandedNodes(), the cutoff rate
+     */
+    public long getCutoffNodes() {
+        return statistics.getCutoffNodes();
+    }
+
+    /**
+     * @return number of nodes of the last search cut off by the first move searched; divided by getCutoffNodes(), the
+     * rate at which the move ordering finds a refutation first
+     */
+    public long getFirstMoveCutoffNodes() {
+        return statistics.getFirstMoveCutoffNodes();
+    }
+
+    /**
+     * @return number of plies of the last completed search
+     */
+    public int getLastSearchPlyNumber() {
+        return lastSearchPlyNumber;
+    }
+
+    /**
+     * @return statistics of the last search: nodes visited per ply, leaf evaluations, chance nodes, cutoffs, state
+     * copies and time taken. The object is reused by the next search
+     */
+    public SearchStatistics getLastSearchStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @return statistics of all searches since the agent was created or resetGameStatistics() was called, which is a
+     * single game when agents are created per game, as by Tournament
+     */
+    public SearchStatistics getGameStatistics() {
+        return gameStatistics;
+    }
+
+    public void resetGameStatistics() {
+        gameStatistics.reset();
+    }
+
+    /**
+     * @return the transposition table used by the agent, or null if there is none
+     */
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+
+    /**
+     * @param state - the game state of a game of splendor
+     * @param move - move to be made from the state, encoded by MoveEncoding
+     * @return number of states that can result from the move
+     *
+     * If the move is a TakeTokensMove, there will be only one possible next state. However, if it is a ReserveCardMove
+     * or BuyCardMove, we need to account for all possible cards that might replace the taken card in the marketplace,
+     * or be drawn by a blind reserve. Outcome 0 is the state with the card actually drawn from the deck, and outcome
+     * k > 0 the state where card k - 1 of the deck was drawn instead (see GameState.exchangeDrawnCard())
+     */
+    private int countPossibleNextStates(final GameState state, final int move) {
+        if(MoveEncoding.getType(move) == Move.Type.takeTokens)
+            return 1;
+
+        int deckSize = switch(MoveEncoding.getCardSource(move)) {
+            case 1 -> state.getTier1Deck().getSize();
+            case 2 -> state.getTier2Deck().getSize();
+            case 3 -> state.getTier3Deck().getSize();
+            default -> 0;
+        };
+
+        return Math.max(deckSize, 1);
     }
 
     /**
@@ -130,38 +263,115 @@ public class MinimaxAgent extends Agent {
      * @return move chosen by the minimax algorithm for the current state
      */
     private Move minimaxSearch(final GameState state) {
-        // For alpha-beta pruning, alpha starts at negative infinity and beta at infinity
-        int chosenMove = (minimax(state, state.getPlayerToMove(), 1, plyNumber, -2000000000, 2000000000)).intValue();
-        ArrayList<Move> availableMoves = reduceTakeTokensMoves(getAvailableMoves(state), state);
+        long startTime = System.nanoTime();
+        statistics.reset();
+
+        // The search applies and undoes moves on a single working copy of the state, using one undo record per ply
+        GameState searchState = new GameState(state);
+        statistics.countStateCopy();
+        if(transpositionTable != null)
+            transpositionTable.newSearch();
+
+        // History scores carry over from previous moves, but count for less than those of the current search
+        for(int i = 0; i < history.length; i ++)
+            history[i] >>= 1;
+
+        int chosenMove;
+        if(timeBudget > 0)
+            chosenMove = iterativeDeepeningSearch(searchState);
+        else {
+            prepareSearch(plyNumber, Long.MAX_VALUE);
+            // For alpha-beta pruning, alpha starts at negative infinity and beta at infinity
+            chosenMove = (int) minimax(searchState, state.getPlayerToMove(), 1, plyNumber, -2000000000, 2000000000);
+            lastSearchPlyNumber = plyNumber;
+        }
+        int[] availableMoves = new int[MoveEncoding.MAX_MOVES];
+        int numberMoves = reduceTakeTokensMoves(availableMoves, getAvailableMoves(state, availableMoves), state);
 
         // Check if agent attempts to do nothing, and whether they would have better available moves
         // This helps prevent it from putting off rewards
-        Move moveToMake = availableMoves.get(chosenMove);
-        Move bestMove = moveToMake;
-        if(moveToMake instanceof TakeTokensMove) {
-            boolean doesNothing = true;
-            for(int i = 0; i < 5; i ++)
-                if(((TakeTokensMove) moveToMake).getTokensToTake()[i] != ((TakeTokensMove) moveToMake).getTokensToReturn()[i])
-                    doesNothing = false;
+        int moveToMake = availableMoves[chosenMove];
+        Move bestMove = MoveEncoding.toMove(moveToMake);
+        if(MoveEncoding.getType(moveToMake) == Move.Type.takeTokens) {
+            boolean doesNothing = Arrays.equals(MoveEncoding.getTokensToTake(moveToMake),
+                    MoveEncoding.getTokensToReturn(moveToMake));
 
             // If the program does nothing, check for moves that could earn points, then moves that buy cards
             if(doesNothing) {
                 int pointsAdded = 0;
-                for (Move possibleMove : availableMoves) {
-                    if (possibleMove instanceof BuyCardMove) {
-                        if(getPointsFromMove(state, (BuyCardMove)possibleMove) > pointsAdded) {
+                for (int i = 0; i < numberMoves; i ++) {
+                    if (MoveEncoding.getType(availableMoves[i]) == Move.Type.buyCard) {
+                        BuyCardMove possibleMove = (BuyCardMove) MoveEncoding.toMove(availableMoves[i]);
+                        if(getPointsFromMove(state, possibleMove) > pointsAdded) {
                             bestMove = possibleMove;
-                            pointsAdded = getPointsFromMove(state, (BuyCardMove) possibleMove);
+                            pointsAdded = getPointsFromMove(state, possibleMove);
                         }
                     }
                 }
             }
         }
 
-
+        statistics.countDecision(System.nanoTime() - startTime, lastSearchPlyNumber);
+        gameStatistics.add(statistics);
         return bestMove;
     }
 
+    /**
+     * @param state - state from which to search, left unchanged
+     * @return index of the best move found by the deepest search completed within the time budget
+     */
+    private int iterativeDeepeningSearch(final GameState state) {
+        long deadline = System.nanoTime() + timeBudget * 1000000;
+        principalVariation = new int[0];
+        int chosenMove = 0;
+
+        for(int depth = 3; depth <= MAX_PLY_NUMBER; depth += 2) {
+            // The first iteration always runs to completion, so that there is a move to play
+            prepareSearch(depth, depth == 3 ? Long.MAX_VALUE : deadline);
+            int move = (int) minimax(state, state.getPlayerToMove(), 1, depth, -2000000000, 2000000000);
+            if(searchAborted)
+                break;
+
+            chosenMove = move;
+            lastSearchPlyNumber = depth;
+            principalVariation = Arrays.copyOf(principalVariationTable[1], principalVariationLength[1]);
+            if(System.nanoTime() >= deadline)
+                break;
+        }
+
+        return chosenMove;
+    }
+
+    /**
+     * @param depth - number of plies of the search
+     * @param deadline - System.nanoTime() value at which the search is aborted
+     */
+    private void prepareSearch(int depth, long deadline) {
+        // The search applies and undoes moves on a single working copy of the state, using one undo record per ply
+        // The records are kept as long as the depth does not change
+        if(undoStack == null || undoStack.length != depth + 1) {
+            undoStack = new GameState.Undo[depth + 1];
+            for(int i = 0; i < undoStack.length; i ++)
+                undoStack[i] = new GameState.Undo();
+            moveStack = new int[depth + 1][MoveEncoding.MAX_MOVES];
+            outcomeStack = new int[depth + 1][MAX_OUTCOMES];
+            lowerBoundStack = new double[depth + 1][MAX_OUTCOMES];
+            upperBoundStack = new double[depth + 1][MAX_OUTCOMES];
+            orderStack = new int[depth + 1][MoveEncoding.MAX_MOVES];
+            scoreStack = new long[depth + 1][MoveEncoding.MAX_MOVES];
+            killerMoves = new int[depth + 1][2];
+            principalVariationTable = new int[depth + 1][depth + 1];
+            principalVariationLength = new int[depth + 1];
+        }
+        for(int[] killers : killerMoves)
+            Arrays.fill(killers, MoveEncoding.NONE);
+        Arrays.fill(principalVariationLength, 0);
+        followingPrincipalVariation = true;
+        searchDeadline = deadline;
+        searchAborted = false;
+        statistics.reservePlies(depth);
+    }
+
     /**
      * @param state - state from which to start (or continue) minimax search
      * @param currentPly - the level of the graph the search is currently in
@@ -169,44 +379,87 @@ public class MinimaxAgent extends Agent {
      * @return if ply is 1, return index of the best move. Otherwise, return the expected value of the state resulted from
      * picking the best move for the current player
      */
-    private Double minimax(final GameState state, final int player, final int currentPly,final int plyNumber, double alpha, double beta) {
-        ArrayList<Move> availableMoves = getAvailableMoves(state);
-        reduceTakeTokensMoves(availableMoves, state);
+    private double minimax(final GameState state, final int player, final int currentPly,final int plyNumber, double alpha, double beta) {
+        // Stop searching once the time budget runs out; the value returned is discarded
+        if(searchAborted || System.nanoTime() > searchDeadline) {
+            searchAborted = true;
+            return 0.0;
+        }
+        principalVariationLength[currentPly] = currentPly;
+        statistics.countNode(currentPly);
+
+        // Look up the position in the transposition table. A stored result is used if it was searched at least as deep
+        // and its value is exact or a bound that causes a cutoff. Otherwise, its best move is searched first
+        // The root is always searched, as it must return a move index
+        long key = 0;
+        int depth = plyNumber - currentPly;
+        int storedBestMove = -1;
+        if(transpositionTable != null) {
+            key = TranspositionTable.key(state.getZobristKey(), player, currentPly % 2 == 1);
+            if(transpositionTable.probe(key, tableEntry)) {
+                storedBestMove = tableEntry.getBestMove();
+                if(currentPly != 1 && tableEntry.getDepth() >= depth) {
+                    double storedValue = tableEntry.getValue();
+                    switch(tableEntry.getBound()) {
+                        case TranspositionTable.EXACT:
+                            return storedValue;
+                        case TranspositionTable.LOWER_BOUND:
+                            if(storedValue >= beta)
+                                return storedValue;
+                            break;
+                        case TranspositionTable.UPPER_BOUND:
+                            if(storedValue <= alpha)
+                                return storedValue;
+                            break;
+                    }
+                }
+            }
+        }
 
-        if(currentPly == plyNumber) {
+        // A state in which the game is over is a leaf at any depth, as no move can be applied to it
+        if(currentPly == plyNumber || (currentPly > 1 && state.isGameOver())) {
             if(currentPly == 1) {
                 System.out.println("Minimum value for plyNumber should be 3. Lookahead failed for Minimax agent.");
                 System.exit(1);
             }
-            return linearHeuristic(state, player);
+            double value = linearHeuristic(state, player);
+            statistics.countLeafEvaluation();
+            if(transpositionTable != null)
+                transpositionTable.store(key, depth, value, TranspositionTable.EXACT, -1);
+            return value;
         }
         else {
+            int[] availableMoves = moveStack[currentPly];
+            int numberMoves = reduceTakeTokensMoves(availableMoves, getAvailableMoves(state, availableMoves), state);
+            double initialAlpha = alpha, initialBeta = beta;
+
+            // The move of the previous iteration's principal variation or the stored best move, if any, is searched
+            // first, followed by the other moves in order (see orderMoves())
+            int preferredMove = storedBestMove;
+            if(followingPrincipalVariation && currentPly < principalVariation.length)
+                preferredMove = principalVariation[currentPly];
+            int[] order = orderStack[currentPly];
+            orderMoves(state, availableMoves, numberMoves, preferredMove, currentPly);
+            int firstMove = order[0];
+            statistics.countExpansion();
+
+            if(currentPly == 1 && forkJoinPool != null && numberMoves > 1)
+                return (double)parallelRootSearch(state, player, plyNumber, availableMoves, numberMoves, firstMove, key);
 
             // Value for every move is calculated as an average of the values of (some of the) states that could result
             // from it
-            int bestMoveIndex = 0;
+            int bestMoveIndex = firstMove;
             double bestMoveValue = 0;
-            for(int i = 0; i < availableMoves.size(); i ++) {
-                // Generate all possible states that may result from move i, then reduce the search space by selecting a
-                // random subset of states to consider further, according to the sampling rate
-                ArrayList<GameState> possibleStates = getPossibleNextStates(state, availableMoves.get(i));
-                Collections.shuffle(possibleStates);
-                int numberPossibleStates = possibleStates.size();
-                int numberStatesToSearch = (int)Math.max(Math.floor(numberPossibleStates * stateSamplingRate), 1);
-                if (numberPossibleStates - numberStatesToSearch > 0) {
-                    possibleStates.subList(0, numberPossibleStates - numberStatesToSearch).clear();
-                }
-
-                double valueSum = 0;
-                for (GameState possibleState : possibleStates) {
-                    valueSum += minimax(possibleState, player, currentPly + 1, plyNumber, alpha, beta);
-                }
-                double moveValue = valueSum/possibleStates.size();
+            for(int n = 0; n < numberMoves; n ++) {
+                int i = moveOrdering && n > 0 ? selectNextMove(currentPly, n, numberMoves) : order[n];
 
-                //System.out.println("Move: " + availableMoves.get(i) + "; Value - " + moveValue);
+                double moveValue = searchMove(state, availableMoves[i], player, currentPly, plyNumber, alpha, beta);
+                if(searchAborted)
+                    return 0.0;
 
-                if(i == 0) {
+                if(n == 0) {
                     bestMoveValue = moveValue;
+                    updatePrincipalVariation(currentPly, i);
                     if(currentPly % 2 == 1) {
                         if(moveValue > alpha) {
                             alpha = moveValue;
@@ -223,6 +476,7 @@ public class MinimaxAgent extends Agent {
                         if(moveValue > bestMoveValue) {
                             bestMoveIndex = i;
                             bestMoveValue = moveValue;
+                            updatePrincipalVariation(currentPly, i);
                         }
                         if(moveValue > alpha) {
                             alpha = moveValue;
@@ -232,6 +486,7 @@ public class MinimaxAgent extends Agent {
                         if(moveValue < bestMoveValue) {
                             bestMoveIndex = i;
                             bestMoveValue = moveValue;
+                            updatePrincipalVariation(currentPly, i);
                         }
                         if(moveValue < beta) {
                             beta = moveValue;
@@ -241,9 +496,13 @@ public class MinimaxAgent extends Agent {
 
                 // Carry out alpha beta pruning
                 if (alpha >= beta) {
+                    recordCutoff(availableMoves[i], currentPly, depth, n);
                     break;
                 }
             }
+
+            storeResult(key, depth, bestMoveValue, initialAlpha, initialBeta, bestMoveIndex);
+
             if(currentPly != 1)
                 return bestMoveValue;
             else {
@@ -252,11 +511,490 @@ public class MinimaxAgent extends Agent {
         }
     }
 
+    /**
+     * @param state - state in which the move is made, left unchanged
+     * @param move - move to evaluate, encoded by MoveEncoding
+     * @param currentPly - ply at which the move is made
+     * @return the value of the move, the average value of the (sampled) states that can result from it
+     */
+    private double searchMove(final GameState state, final int move, final int player, final int currentPly,
+                              final int plyNumber, double alpha, double beta) {
+        // Consider all possible states that may result from the move, then reduce the search space by selecting a
+        // random subset of states to consider further, according to the sampling rate
+        // Only the selected outcomes are drawn, and each state is only built, in place, when it is searched
+        int numberPossibleStates = countPossibleNextStates(state, move);
+        int numberStatesToSearch = (int)Math.max(Math.floor(numberPossibleStates * stateSamplingRate), 1);
+        numberStatesToSearch = Math.min(numberStatesToSearch, numberPossibleStates);
+        int[] possibleStates = outcomeStack[currentPly];
+        sampleOutcomes(possibleStates, numberPossibleStates, numberStatesToSearch);
+        if(numberPossibleStates > 1)
+            statistics.countChanceNode(numberStatesToSearch);
+        if(searchEngine == SearchEngine.expectiminimax)
+            return searchChanceNode(state, move, player, currentPly, plyNumber, alpha, beta, numberStatesToSearch);
+
+        // Walk each selected state in place, undoing the move afterwards
+        double valueSum = 0;
+        GameState.Undo undo = state.applyTrustedMove(move, undoStack[currentPly]);
+        for (int s = 0; s < numberStatesToSearch; s ++) {
+            int possibleState = possibleStates[s];
+            if(possibleState > 0)
+                state.exchangeDrawnCard(undo, possibleState - 1);
+            valueSum += minimax(state, player, currentPly + 1, plyNumber, alpha, beta);
+            followingPrincipalVariation = false;
+            if(possibleState > 0)
+                state.exchangeDrawnCard(undo, possibleState - 1);
+        }
+        state.undoMove(undo);
+        if(searchAborted)
+            return 0.0;
+        return valueSum/numberStatesToSearch;
+    }
+
+    /**
+     * @param state - state in which the move is made, left unchanged
+     * @param move - move to evaluate, encoded by MoveEncoding
+     * @param currentPly - ply at which the move is made
+     * @param numberStates - number of states that can result from the move selected for search, whose outcomes are
+     * listed in outcomeStack[currentPly]
+     * @return the average value of the selected states if it lies within (alpha, beta), otherwise a bound on it that
+     * lies outside of the window
+     *
+     * Star1: as every state value lies within the bounds given by getValueBound(), the values found so far bound the
+     * average.
+     * Each state is searched with the window in which its value can still move the average across alpha or beta, and
+     * the search stops as soon as the average is known to fall outside of (alpha, beta)
+     * Star2: if the states are not leaves, the first move of each is searched first (probed), which bounds the value of
+     * the state from below if the player moves next, and from above if the opponent does. Probes can cut the node off
+     * without searching any state in full, and otherwise tighten the windows of the states searched in full
+     */
+    private double searchChanceNode(final GameState state, final int move, final int player, final int currentPly,
+                                    final int plyNumber, double alpha, double beta, final int numberStates) {
+        GameState.Undo undo = state.applyTrustedMove(move, undoStack[currentPly]);
+        double minimumValue = getValueBound(state, player, plyNumber - currentPly - 1, false);
+        double maximumValue = getValueBound(state, player, plyNumber - currentPly - 1, true);
+
+        int[] possibleStates = outcomeStack[currentPly];
+        double[] lowerBounds = lowerBoundStack[currentPly], upperBounds = upperBoundStack[currentPly];
+        Arrays.fill(lowerBounds, 0, numberStates, minimumValue);
+        Arrays.fill(upperBounds, 0, numberStates, maximumValue);
+        double lowerSum = numberStates * minimumValue, upperSum = numberStates * maximumValue;
+        boolean playerMovesNext = (currentPly + 1) % 2 == 1;
+        double value = Double.NaN;
+
+        // Probe the states, until a bound on the average falls outside of the window
+        if(numberStates > 1 && currentPly + 1 < plyNumber) {
+            for(int s = 0; s < numberStates; s ++) {
+                value = getCutoffValue(lowerSum, upperSum, numberStates, alpha, beta);
+                if(!Double.isNaN(value))
+                    break;
+
+                // A state is only probed if the bound its probe gives can cut the node off on its own
+                double probeAlpha = numberStates * alpha - (upperSum - upperBounds[s]);
+                double probeBeta = numberStates * beta - (lowerSum - lowerBounds[s]);
+                if(playerMovesNext ? probeBeta > maximumValue : probeAlpha < minimumValue)
+                    continue;
+                probeAlpha = Math.max(probeAlpha, minimumValue);
+                probeBeta = Math.min(probeBeta, maximumValue);
+
+                exchangeOutcome(state, undo, possibleStates[s]);
+                double probeValue = probeFirstMove(state, player, currentPly + 1, plyNumber, probeAlpha, probeBeta);
+                exchangeOutcome(state, undo, possibleStates[s]);
+                if(searchAborted)
+                    break;
+
+                // A probe failing low only bounds the first move from above, and one failing high from below
+                if(playerMovesNext && probeValue > probeAlpha && probeValue > lowerBounds[s]) {
+                    lowerSum += probeValue - lowerBounds[s];
+                    lowerBounds[s] = probeValue;
+                }
+                else if(!playerMovesNext && probeValue < probeBeta && probeValue < upperBounds[s]) {
+                    upperSum += probeValue - upperBounds[s];
+                    upperBounds[s] = probeValue;
+                }
+            }
+        }
+
+        // Search the states in full, until a bound on the average falls outside of the window
+        double valueSum = 0;
+        for(int s = 0; s < numberStates && !searchAborted; s ++) {
+            value = getCutoffValue(lowerSum, upperSum, numberStates, alpha, beta);
+            if(!Double.isNaN(value))
+                break;
+
+            double otherLowerSum = lowerSum - lowerBounds[s], otherUpperSum = upperSum - upperBounds[s];
+            double stateAlpha = numberStates * alpha - otherUpperSum, stateBeta = numberStates * beta - otherLowerSum;
+
+            exchangeOutcome(state, undo, possibleStates[s]);
+            double stateValue = minimax(state, player, currentPly + 1, plyNumber, Math.max(stateAlpha, minimumValue),
+                    Math.min(stateBeta, maximumValue));
+            followingPrincipalVariation = false;
+            exchangeOutcome(state, undo, possibleStates[s]);
+
+            // A value failing high is only a lower bound on the value of the state, and one failing low an upper bound
+            valueSum += stateValue;
+            if(stateValue >= stateBeta) {
+                value = (otherLowerSum + stateValue) / numberStates;
+                break;
+            }
+            if(stateValue <= stateAlpha) {
+                value = (otherUpperSum + stateValue) / numberStates;
+                break;
+            }
+            lowerSum = otherLowerSum + stateValue;
+            upperSum = otherUpperSum + stateValue;
+        }
+
+        state.undoMove(undo);
+        if(searchAborted)
+            return 0.0;
+        return Double.isNaN(value) ? valueSum / numberStates : value;
+    }
+
+    /**
+     * @param state - state to be considered
+     * @param movesLeft - number of moves made from the state before the states reached are evaluated
+     * @param upper - true for an upper bound, false for a lower bound
+     * @return bound on the heuristic value of the states that can be reached from the state in movesLeft moves
+     *
+     * Scores never decrease, and each player gains at most 8 points per move. The game cannot end, nor can a player
+     * win on their next move, while no score can come close to 15, unless a stalemate occurs, which cannot happen before
+     * the colored tokens of the supply run out or the turn limit is reached
+     */
+    private double getValueBound(final GameState state, final int player, final int movesLeft, final boolean upper) {
+        int playerScore = player == 1 ? state.getPlayer1Score() : state.getPlayer2Score();
+        int opponentScore = player == 1 ? state.getPlayer2Score() : state.getPlayer1Score();
+        int movesPerPlayer = (movesLeft + 1) / 2;
+        int maximumScore = Math.max(playerScore, opponentScore) + movesPerPlayer * MAX_POINTS_PER_MOVE;
+
+        int supplyTokens = 0;
+        for(int i = 0; i < 5; i ++)
+            supplyTokens += state.getSupplyTokens()[i];
+        boolean gameCanEnd = state.isGameOver() || state.isLastTurn() || maximumScore >= 15 ||
+                supplyTokens <= 3 * movesLeft || state.getTurnNumber() + movesPerPlayer >= 299;
+        boolean gameCanBeWon = gameCanEnd || maximumScore + MAX_POINTS_PER_MOVE >= 15;
+
+        double bound = 0;
+        for(int i = 0; i < NUMBER_PARAMETERS; i ++) {
+            double minimum = PARAMETER_MIN[i], maximum = PARAMETER_MAX[i];
+            switch(i) {
+                case 0 -> {
+                    if(!gameCanEnd)
+                        minimum = maximum = 0;
+                }
+                case 1 -> {
+                    if(!gameCanBeWon)
+                        minimum = maximum = 0;
+                }
+                case 2 -> {
+                    minimum = playerScore;
+                    maximum = Math.min(playerScore + movesPerPlayer * MAX_POINTS_PER_MOVE, maximum);
+                }
+                case 3 -> {
+                    minimum = opponentScore;
+                    maximum = Math.min(opponentScore + movesPerPlayer * MAX_POINTS_PER_MOVE, maximum);
+                }
+            }
+            bound += upper ? Math.max(weights[i] * minimum, weights[i] * maximum) :
+                    Math.min(weights[i] * minimum, weights[i] * maximum);
+        }
+        return bound;
+    }
+
+    /**
+     * @param lowerSum - lower bound on the sum of the values of the states that can result from a move
+     * @param upperSum - upper bound on the sum
+     * @param numberStates - number of states
+     * @return the corresponding bound on the average value of the states if it falls outside of (alpha, beta),
+     * otherwise NaN
+     */
+    private static double getCutoffValue(double lowerSum, double upperSum, int numberStates, double alpha, double beta) {
+        if(lowerSum >= numberStates * beta)
+            return lowerSum / numberStates;
+        if(upperSum <= numberStates * alpha)
+            return upperSum / numberStates;
+        return Double.NaN;
+    }
+
+    /**
+     * @param state - state to probe, left unchanged
+     * @param currentPly - ply of the state
+     * @return value of the first move available in the state, searched with the window (alpha, beta), or the value of
+     * the state if it has no moves
+     */
+    private double probeFirstMove(final GameState state, final int player, final int currentPly, final int plyNumber,
+                                  double alpha, double beta) {
+        if(state.isGameOver())
+            return minimax(state, player, currentPly, plyNumber, alpha, beta);
+        int[] availableMoves = moveStack[currentPly];
+        int numberMoves = reduceTakeTokensMoves(availableMoves, getAvailableMoves(state, availableMoves), state);
+        if(numberMoves == 0)
+            return minimax(state, player, currentPly, plyNumber, alpha, beta);
+        orderMoves(state, availableMoves, numberMoves, -1, currentPly);
+        return searchMove(state, availableMoves[orderStack[currentPly][0]], player, currentPly, plyNumber, alpha, beta);
+    }
+
+    /**
+     * @param moves - available moves of the node, encoded by MoveEncoding
+     * @param numberMoves - number of available moves
+     * @param preferredMove - index of the move to search first, or -1 if there is none
+     * @param currentPly - ply of the node
+     *
+     * Starts the order in which the moves of the node are searched, in orderStack[currentPly]: the first move is
+     * placed first, and the others are selected as the search goes by selectNextMove(), so that no time is spent
+     * ordering the moves that are cut off. Without move ordering, the moves are searched in their usual order after
+     * the preferred move
+     */
+    private void orderMoves(final GameState state, final int[] moves, final int numberMoves, int preferredMove,
+                            final int currentPly) {
+        int[] order = orderStack[currentPly];
+        if(preferredMove >= numberMoves)
+            preferredMove = -1;
+
+        if(!moveOrdering) {
+            int firstMove = Math.max(preferredMove, 0);
+            order[0] = firstMove;
+            for(int i = 0, n = 1; i < numberMoves; i ++)
+                if(i != firstMove)
+                    order[n ++] = i;
+            return;
+        }
+
+        long[] scores = scoreStack[currentPly];
+        int[] killers = killerMoves[currentPly];
+        for(int i = 0; i < numberMoves; i ++) {
+            int move = moves[i];
+            order[i] = i;
+            if(i == preferredMove)
+                scores[i] = Long.MAX_VALUE;
+            else if(MoveEncoding.getType(move) == Move.Type.buyCard)
+                scores[i] = BUY_SCORE + getPointsFromMove(state, move);
+            else if(move == killers[0])
+                scores[i] = KILLER_SCORE + 1;
+            else if(move == killers[1])
+                scores[i] = KILLER_SCORE;
+            else
+                scores[i] = history[MoveEncoding.getIndex(move)];
+        }
+        if(numberMoves > 0)
+            selectNextMove(currentPly, 0, numberMoves);
+    }
+
+    /**
+     * @param currentPly - ply of the node
+     * @param n - number of moves of the node already searched
+     * @param numberMoves - number of available moves
+     * @return index of the move to search next, the one with the highest score among those not searched yet; ties
+     * go to the first move generated
+     */
+    private int selectNextMove(final int currentPly, final int n, final int numberMoves) {
+        int[] order = orderStack[currentPly];
+        long[] scores = scoreStack[currentPly];
+
+        int best = n;
+        for(int k = n + 1; k < numberMoves; k ++)
+            if(scores[order[k]] > scores[order[best]] ||
+                    (scores[order[k]] == scores[order[best]] && order[k] < order[best]))
+                best = k;
+
+        int move = order[best];
+        order[best] = order[n];
+        order[n] = move;
+        return move;
+    }
+
+    /**
+     * @param move - move that caused a cutoff, encoded by MoveEncoding
+     * @param currentPly - ply at which the move was made
+     * @param depth - number of plies searched below the node
+     * @param n - number of moves searched before the move
+     *
+     * Counts the cutoff, and makes the move a killer move of the ply and raises its history score, more so if the
+     * subtree it cut off was deep. BuyCardMoves are already searched early, so they do not become killer moves
+     */
+    private void recordCutoff(final int move, final int currentPly, final int depth, final int n) {
+        statistics.countCutoff(n == 0);
+
+        history[MoveEncoding.getIndex(move)] += (long) depth * depth;
+        int[] killers = killerMoves[currentPly];
+        if(MoveEncoding.getType(move) != Move.Type.buyCard && killers[0] != move) {
+            killers[1] = killers[0];
+            killers[0] = move;
+        }
+    }
+
+    /**
+     * Swaps in the card drawn in the given outcome of the recorded move, or swaps it back out (see
+     * countPossibleNextStates())
+     */
+    private static void exchangeOutcome(final GameState state, final GameState.Undo undo, int outcome) {
+        if(outcome > 0)
+            state.exchangeDrawnCard(undo, outcome - 1);
+    }
+
+    /**
+     * @param outcomes - array of at least numberOutcomes elements, in which the selected outcomes are written
+     * @param numberOutcomes - number of states that can result from a move
+     * @param numberSelected - number of outcomes to select
+     *
+     * Selects numberSelected distinct outcomes uniformly at random, in random order, by running only the first
+     * numberSelected steps of a Fisher-Yates shuffle
+     */
+    private void sampleOutcomes(final int[] outcomes, int numberOutcomes, int numberSelected) {
+        for(int k = 0; k < numberOutcomes; k ++)
+            outcomes[k] = k;
+
+        for(int k = 0; k < numberSelected; k ++) {
+            int j = k + random.nextInt(numberOutcomes - k);
+            int outcome = outcomes[j];
+            outcomes[j] = outcomes[k];
+            outcomes[k] = outcome;
+        }
+    }
+
+    /**
+     * @param state - root state of the search, left unchanged
+     * @param availableMoves - moves available at the root, encoded by MoveEncoding
+     * @param numberMoves - number of moves available at the root
+     * @param firstMove - index of the move to search first, on its own
+     * @param key - transposition table key of the root
+     * @return index of the best move
+     *
+     * Searches the first move, then the other moves in parallel, all with the value of the first move as alpha. The
+     * results are combined in the order of the moves, with ties going to the first move found
+     */
+    private int parallelRootSearch(final GameState state, final int player, final int plyNumber,
+                                   final int[] availableMoves, final int numberMoves, final int firstMove,
+                                   final long key) {
+        double bestMoveValue = searchMove(state, availableMoves[firstMove], player, 1, plyNumber, -2000000000, 2000000000);
+        if(searchAborted)
+            return 0;
+        int bestMoveIndex = firstMove;
+        updatePrincipalVariation(1, firstMove);
+
+        // Each move draws its random choices from its own generator, split from the agent's in the order of the moves
+        ArrayList<RootMoveTask> tasks = new ArrayList<>();
+        for(int i = 0; i < numberMoves; i ++)
+            if(i != firstMove)
+                tasks.add(new RootMoveTask(this, state, availableMoves[i], i, player, plyNumber, bestMoveValue,
+                        random.split()));
+        forkJoinPool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+
+        for(RootMoveTask task : tasks) {
+            statistics.add(task.statistics);
+            if(task.aborted) {
+                searchAborted = true;
+                return 0;
+            }
+            if(task.value > bestMoveValue) {
+                bestMoveIndex = task.moveIndex;
+                bestMoveValue = task.value;
+                System.arraycopy(task.principalVariation, 0, principalVariationTable[2], 0,
+                        task.principalVariation.length);
+                principalVariationLength[2] = task.principalVariation.length;
+                updatePrincipalVariation(1, bestMoveIndex);
+            }
+        }
+
+        storeResult(key, plyNumber - 1, bestMoveValue, -2000000000, 2000000000, bestMoveIndex);
+        return bestMoveIndex;
+    }
+
+    /**
+     * @param agent - agent whose root move is to be searched
+     * @param random - source of the random choices of the search of the move
+     *
+     * Readies this searcher to search a root move for the agent, with the agent's settings, and with the move
+     * ordering records and statistics of a new searcher, so that the search does not depend on the moves the
+     * searcher searched before
+     */
+    private void prepareRootMoveSearch(final MinimaxAgent agent, final int plyNumber, final SplittableRandom random) {
+        transpositionTable = agent.transpositionTable;
+        searchEngine = agent.searchEngine;
+        moveOrdering = agent.moveOrdering;
+        this.random = random;
+        Arrays.fill(history, 0);
+        statistics.reset();
+        prepareSearch(plyNumber, agent.searchDeadline);
+        followingPrincipalVariation = false;
+    }
+
+    // Search of a single root move, run by the searcher of the thread running the task on its own copy of the state
+    // The task keeps the results of the search, as the searcher goes on to other moves
+    @SuppressWarnings("serial")
+    private static class RootMoveTask extends RecursiveAction {
+        private final MinimaxAgent agent;
+        private final GameState state;
+        private final int move, moveIndex, player, plyNumber;
+        private final double alpha;
+        private final SplittableRandom random;
+
+        private double value;
+        private boolean aborted;
+        private int[] principalVariation;
+        private final SearchStatistics statistics = new SearchStatistics();
+
+        RootMoveTask(MinimaxAgent agent, GameState state, int move, int moveIndex, int player, int plyNumber,
+                     double alpha, SplittableRandom random) {
+            this.agent = agent;
+            this.state = state;
+            this.move = move;
+            this.moveIndex = moveIndex;
+            this.player = player;
+            this.plyNumber = plyNumber;
+            this.alpha = alpha;
+            this.random = random;
+        }
+
+        @Override
+        protected void compute() {
+            MinimaxAgent searcher = agent.searchers.get();
+            searcher.prepareRootMoveSearch(agent, plyNumber, random);
+            searcher.statistics.countStateCopy();
+            value = searcher.searchMove(new GameState(state), move, player, 1, plyNumber, alpha, 2000000000);
+            aborted = searcher.searchAborted;
+            principalVariation = Arrays.copyOf(searcher.principalVariationTable[2],
+                    searcher.principalVariationLength[2]);
+            statistics.add(searcher.statistics);
+        }
+    }
+
+    /**
+     * Stores the result of a search in the transposition table, if there is one
+     * A value outside of the initial window is only a bound on the value of the position
+     */
+    private void storeResult(long key, int depth, double value, double initialAlpha, double initialBeta, int bestMove) {
+        if(transpositionTable == null)
+            return;
+        int bound = TranspositionTable.EXACT;
+        if(value <= initialAlpha)
+            bound = TranspositionTable.UPPER_BOUND;
+        else if(value >= initialBeta)
+            bound = TranspositionTable.LOWER_BOUND;
+        transpositionTable.store(key, depth, value, bound, bestMove);
+    }
+
+    /**
+     * @param currentPly - ply of the node whose best move changed
+     * @param moveIndex - index of the new best move
+     *
+     * The principal variation of the node becomes the move followed by that of the child just searched
+     */
+    private void updatePrincipalVariation(int currentPly, int moveIndex) {
+        int[] line = principalVariationTable[currentPly];
+        int[] childLine = principalVariationTable[currentPly + 1];
+        line[currentPly] = moveIndex;
+        for(int p = currentPly + 1; p < principalVariationLength[currentPly + 1]; p ++)
+            line[p] = childLine[p];
+        principalVariationLength[currentPly] = Math.max(principalVariationLength[currentPly + 1], currentPly + 1);
+    }
+
     /**
      * @param state - the game state of a game of splendor
      * @return heuristic value of the state for the current player to move
+     *
+     * Package-private so that the benchmarks can measure it on its own
      */
-    private Double linearHeuristic(final GameState state, final int player)
+    double linearHeuristic(final GameState state, final int player)
     {
         /* Obtain parameter values from state
         Parameter list, in order:
@@ -271,18 +1009,18 @@ public class MinimaxAgent extends Agent {
         -numCardsToReserve
         -totalTokens
          */
-        ArrayList<Double> parameters = getParameterValues(state, player);
+        getParameterValues(state, player, parameters);
 
         double value = 0;
-        for(int i = 0; i < parameters.size(); i ++)
-            value += parameters.get(i) * weights.get(i);
+        for(int i = 0; i < NUMBER_PARAMETERS; i ++)
+            value += parameters[i] * weights[i];
 
         return value;
     }
 
     /**
      * @param state - game state being analyzed (from perspective of playerToMove)
-     * @return array of parameter values, as specified below:
+     * @param parameters - array of NUMBER_PARAMETERS elements, filled in with the parameter values, as specified below:
      * -hasWon - 1 if the player has won, -1 if the player has lost, 0 in case game is not over or there is a draw
      * -isWinning - 1 if the player can make a move that is a guaranteed win, -1 if the player has no choice but to
      * make a move that allows the opponent to win on their turn (is losing), 0 otherwise
@@ -297,7 +1035,7 @@ public class MinimaxAgent extends Agent {
      * -numCardsToReserve - number of cards the player can reserve until they reach the reserve limit
      * -totalTokens - number of tokens the player has
      */
-    private ArrayList<Double> getParameterValues(final GameState state, final int player) {
+    private void getParameterValues(final GameState state, final int player, final double[] parameters) {
 
         // If game has ended or is about to end, evaluate whether player has won or will win
         // Can be 1 if winning, 0 if a draw will happen, and -1 if losing, assuming optimal play from opponent
@@ -332,23 +1070,15 @@ public class MinimaxAgent extends Agent {
                 }
 
                 // Check if player can match or exceed opponent score
-                boolean isDraw = false, isWin = false;
-                ArrayList<BuyCardMove> availableBuyCardMoves = getAvailableBuyCardMoves(state);
-                for(BuyCardMove move : availableBuyCardMoves) {
-                    int additionalPoints = getPointsFromMove(state, move);
-                    if(additionalPoints > maxImmediatePoints)
-                        maxImmediatePoints = additionalPoints;
-                    if (playerScore + additionalPoints > opponentScore)
-                        isWin = true;
-                    if (playerScore + additionalPoints == opponentScore)
-                        isDraw = true;
-                }
+                int additionalPoints = threatDetector.getMaxPoints(state, player, 0, 0);
+                maxImmediatePoints = Math.max(additionalPoints, 0);
 
-                if(isWin)
-                    isWinning = 1;
-                else if(isDraw)
+                if(additionalPoints == ThreatDetector.NO_PURCHASE || playerScore + additionalPoints < opponentScore)
+                    isWinning = -1;
+                else if(playerScore + additionalPoints == opponentScore)
                     isWinning = 0;
-                else isWinning = -1;
+                else
+                    isWinning = 1;
             }
             // Opponent has one turn to match or exceed player score, else they lose
             else {
@@ -363,25 +1093,14 @@ public class MinimaxAgent extends Agent {
                 }
 
                 // Check if opponent can match or exceed player score
-                boolean isDraw = false, isLoss = false;
-                ArrayList<BuyCardMove> opponentBuyCardMoves = getAvailableBuyCardMoves(state);
-                for(BuyCardMove move : opponentBuyCardMoves) {
-                    int additionalPoints = getPointsFromMove(state, move);
-                    if (opponentScore + additionalPoints > playerScore)
-                        isLoss = true;
-                    if (opponentScore + additionalPoints == playerScore)
-                        isDraw = true;
-                }
+                int additionalPoints = threatDetector.getMaxPoints(state, state.getPlayerToMove(), 0, 0);
 
-                if(isLoss) {
-                    isWinning = -1;
-                }
-                else if(isDraw) {
-                    isWinning = 0;
-                }
-                else {
+                if(additionalPoints == ThreatDetector.NO_PURCHASE || opponentScore + additionalPoints < playerScore)
                     isWinning = 1;
-                }
+                else if(opponentScore + additionalPoints == playerScore)
+                    isWinning = 0;
+                else
+                    isWinning = -1;
             }
         }
         // Check if player can get over 15 points in one move (only if it's player's turn)
@@ -397,55 +1116,11 @@ public class MinimaxAgent extends Agent {
                 playerScore = state.getPlayer1Score();
             }
 
-            ArrayList<BuyCardMove> availableBuyCardMoves = getAvailableBuyCardMoves(state);
-
-            // Getting 15 points or more is winning
-            if(state.getPlayerStarted() != player) {
-                for(BuyCardMove move : availableBuyCardMoves) {
-                    int additionalPoints = getPointsFromMove(state, move);
-                    if(additionalPoints > maxImmediatePoints)
-                        maxImmediatePoints = additionalPoints;
-                    if(playerScore + additionalPoints >= 15) {
-                        isWinning = 1;
-                        break;
-                    }
-                }
-
-            }
-            // Need to evaluate opponent's options before deciding if player is winning
-            else {
-                for(BuyCardMove move: availableBuyCardMoves) {
-                    int additionalPoints = getPointsFromMove(state, move);
-                    if(additionalPoints > maxImmediatePoints)
-                        maxImmediatePoints = additionalPoints;
-
-                    if(playerScore + additionalPoints >= 15) {
-                        int newPlayerScore = playerScore + additionalPoints;
-
-                        // Ignore possibility that freshly replaced card is the one bought by opponent, for performance
-                        // purposes
-                        GameState nextState = getPossibleNextStates(state, move).get(0);
-                        ArrayList<BuyCardMove> opponentBuyCardMoves = getAvailableBuyCardMoves(nextState);
-
-                        boolean opponentHasMove = false;
-                        for(BuyCardMove opponentMove : opponentBuyCardMoves)
-                            if(opponentMove.getCardIndex() != move.getCardIndex() ||
-                                    opponentMove.getCardSource() != move.getCardSource() ||
-                                    opponentMove.getCardSource() == 0) {
-                                if(opponentScore + getPointsFromMove(nextState, opponentMove) >= newPlayerScore) {
-                                    opponentHasMove = true;
-                                    break;
-                                }
-                            }
-
-                        if(!opponentHasMove) {
-                            isWinning = 1;
-                            break;
-                        }
-                    }
-                }
-            }
-
+            // Getting 15 points or more is winning, unless player started and opponent can match their score
+            if(threatDetector.findWinningPurchase(state, player, playerScore, opponentScore,
+                    state.getPlayerStarted() == player))
+                isWinning = 1;
+            maxImmediatePoints = Math.max(threatDetector.getMaxPointsExamined(), 0);
         }
         // Check if opponent can get over 15 points in one move (only if it's opponent's turn)
         // IsWinning stays 0 if player has a response that could lead to a draw or win
@@ -460,75 +1135,20 @@ public class MinimaxAgent extends Agent {
                 playerScore = state.getPlayer1Score();
             }
 
-            ArrayList<BuyCardMove> opponentBuyCardMoves = getAvailableBuyCardMoves(state);
-
-            // Getting 15 points or more is winning for opponent
-            if(state.getPlayerStarted() != state.getPlayerToMove()) {
-                for (BuyCardMove move : opponentBuyCardMoves) {
-                    int additionalPoints = getPointsFromMove(state, move);
-                    if (opponentScore + additionalPoints >= 15) {
-                        isWinning = -1;
-                        break;
-                    }
-                }
-            }
-            // Otherwise, need to evaluate player's options before deciding if opponent is winning
-            else {
-                for(BuyCardMove move: opponentBuyCardMoves) {
-                    int additionalPoints = getPointsFromMove(state, move);
-
-                    if(opponentScore + additionalPoints >= 15) {
-                        int newOpponentScore = opponentScore + additionalPoints;
-
-                        // Ignore possibility that freshly replaced card is the one bought by player, for performance
-                        // purposes
-                        GameState nextState = getPossibleNextStates(state, move).get(0);
-                        ArrayList<BuyCardMove> playerBuyCardMoves = getAvailableBuyCardMoves(nextState);
-
-                        boolean playerHasMove = false;
-                        for(BuyCardMove playerMove : playerBuyCardMoves)
-                            if(playerMove.getCardIndex() != move.getCardIndex() ||
-                                    playerMove.getCardSource() != move.getCardSource() ||
-                                    playerMove.getCardSource() == 0) {
-                                if(playerScore + getPointsFromMove(nextState, playerMove) >= newOpponentScore) {
-                                    playerHasMove = true;
-                                    break;
-                                }
-                            }
-
-                        if(!playerHasMove) {
-                            isWinning = -1;
-                            break;
-                        }
-                    }
-                }
-            }
+            // Getting 15 points or more is winning for opponent, unless opponent started and player can match their
+            // score
+            if(threatDetector.findWinningPurchase(state, state.getPlayerToMove(), opponentScore, playerScore,
+                    state.getPlayerStarted() == state.getPlayerToMove()))
+                isWinning = -1;
 
             // In this case, we also need to compute the maximum immediate points the player could win, provided
             // opponent doesn't take that card first
-            // For this purpose, opponent will first make an imaginary move,if possible a TakeTokens one
-            boolean imaginaryMoveMade = false;
-            GameState imaginaryState = new GameState(state);
-            ArrayList<Move> opponentMoves = getAvailableMoves(imaginaryState);
-            for (Move opponentMove : opponentMoves) {
-                if (opponentMove instanceof TakeTokensMove) {
-                    imaginaryState.handleMove(opponentMove);
-                    imaginaryMoveMade = true;
-                    break;
-                }
-            }
-            if(!imaginaryMoveMade) {
-                imaginaryState.handleMove(opponentMoves.get(0));
-            }
-
-            // Get maximum points that can be made by the player
-            ArrayList<BuyCardMove> playerImaginaryMoves = getAvailableBuyCardMoves(imaginaryState);
-            for(BuyCardMove playerMove : playerImaginaryMoves) {
-                int additionalPoints = getPointsFromMove(imaginaryState, playerMove);
-
-                if(additionalPoints > maxImmediatePoints)
-                    maxImmediatePoints = additionalPoints;
-            }
+            // For this purpose, opponent will first make an imaginary move, if possible a TakeTokens one, which leaves
+            // the cards the player can buy unchanged
+            if(hasTokensToTake(state))
+                maxImmediatePoints = Math.max(threatDetector.getMaxPoints(state, player, 0, 0), 0);
+            else
+                maxImmediatePoints = getMaxImmediatePointsAfterImaginaryMove(state);
         }
 
         double currentPoints = switch (player) {
@@ -576,83 +1196,81 @@ public class MinimaxAgent extends Agent {
         assert tokens != null;
         for (int token : tokens) totalTokens += token;
 
-        ArrayList<Double> parameters = new ArrayList<>();
-        parameters.add(hasWon);
-        parameters.add(isWinning);
-        parameters.add(currentPoints);
-        parameters.add(opponentPoints);
-        parameters.add(maxImmediatePoints);
-        parameters.add(buyFromMarketIndex);
-        parameters.add(buyFromReserveIndex);
-        parameters.add(attractNobleIndex);
-        parameters.add(numCardsToReserve);
-        parameters.add(totalTokens);
-
-        return parameters;
+        parameters[0] = hasWon;
+        parameters[1] = isWinning;
+        parameters[2] = currentPoints;
+        parameters[3] = opponentPoints;
+        parameters[4] = maxImmediatePoints;
+        parameters[5] = buyFromMarketIndex;
+        parameters[6] = buyFromReserveIndex;
+        parameters[7] = attractNobleIndex;
+        parameters[8] = numCardsToReserve;
+        parameters[9] = totalTokens;
     }
 
     /**
-     * @param movesList - list of available moves for a given state
+     * @param moves - available moves for a given state, encoded by MoveEncoding, reduced in place
+     * @param numberMoves - number of available moves
      * @param state - state being considered
-     * @return - reduced list of moves, such that only the top returnSamplingRate/1.0 % of moves including returns
+     * @return - number of moves left, such that only the top returnSamplingRate/1.0 % of moves including returns
      * are considered. The moves are selected according to the takeTokensHeuristic. All moves not including any returns
-     * will still be considered.
+     * will still be considered. The moves kept stay in the same order
      */
-    private ArrayList<Move> reduceTakeTokensMoves(ArrayList<Move> movesList, final GameState state) {
-        ArrayList<Double> takeTokensValues = new ArrayList<>();
+    private int reduceTakeTokensMoves(int[] moves, int numberMoves, final GameState state) {
+        int numberTakeTokensMoves = 0;
 
         // Set heuristic values
-        for (Move move : movesList) {
-            if (move instanceof TakeTokensMove) {
-                takeTokensValues.add(takeTokensHeuristic((TakeTokensMove) move, state));
+        for (int i = 0; i < numberMoves; i ++) {
+            if (MoveEncoding.getType(moves[i]) == Move.Type.takeTokens) {
+                takeTokensValues[numberTakeTokensMoves ++] = takeTokensHeuristic(moves[i], state);
             }
         }
 
-        if(takeTokensValues.size() == 0)
-            return movesList;
+        if(numberTakeTokensMoves == 0)
+            return numberMoves;
 
-        ArrayList<Double> takeTokensValuesSorted = new ArrayList<>(takeTokensValues);
-        Collections.sort(takeTokensValuesSorted);
+        System.arraycopy(takeTokensValues, 0, takeTokensValuesSorted, 0, numberTakeTokensMoves);
+        Arrays.sort(takeTokensValuesSorted, 0, numberTakeTokensMoves);
 
         // Determine number of moves that need to be considered
-        int numMovesToConsider = (int)(1.0 * takeTokensValues.size() * returnSamplingRate);
-        if(numMovesToConsider < 1 && takeTokensValues.size() > 0)
+        int numMovesToConsider = (int)(1.0 * numberTakeTokensMoves * returnSamplingRate);
+        if(numMovesToConsider < 1)
             numMovesToConsider = 1;
 
         // Find threshold for moves to be considered
-        double thresholdValue = takeTokensValuesSorted.get(takeTokensValuesSorted.size() - numMovesToConsider);
+        double thresholdValue = takeTokensValuesSorted[numberTakeTokensMoves - numMovesToConsider];
 
         // Remove moves worse than the threshold
         int index = 0;
-        int numberRemoved = 0;
-        for(int i = 0; i < movesList.size(); i ++) {
-            if(movesList.get(i) instanceof TakeTokensMove) {
-                if(takeTokensValues.get(index) < thresholdValue && numberRemoved < takeTokensValues.size()) {
-                    movesList.remove(i);
-                    i--;
-                    numberRemoved ++;
-                }
-                index ++;
+        int numberKept = 0;
+        for(int i = 0; i < numberMoves; i ++) {
+            if(MoveEncoding.getType(moves[i]) == Move.Type.takeTokens) {
+                if(takeTokensValues[index ++] < thresholdValue)
+                    continue;
             }
+            moves[numberKept ++] = moves[i];
         }
 
-        return movesList;
+        return numberKept;
     }
 
     /**
      * Determine the value of a takeTokensMove according to indices of buying power, both from market and from reserve
-     * @param move - takeTokensMove to be considered
+     * @param move - takeTokensMove to be considered, encoded by MoveEncoding
      * @param state - current game state
      * @return value of move according to heuristic
      */
-    private double takeTokensHeuristic(final TakeTokensMove move, final GameState state) {
+    private double takeTokensHeuristic(final int move, final GameState state) {
         double marketWeight = 1.0, reserveWeight = 5.0;
+        int player = MoveEncoding.getPlayer(move);
 
-        GameState resultState = new GameState(state);
-        resultState.handleTakeTokensMove(move);
+        // Evaluate the resulting state in place, restoring the state afterwards
+        GameState.Undo undo = state.applyTrustedMove(move, heuristicUndo);
+        double value = marketWeight * buyFromMarketIndex(state, player) +
+                reserveWeight * buyFromReserveIndex(state, player);
+        state.undoMove(undo);
 
-        return marketWeight * buyFromMarketIndex(resultState, move.getPlayer()) +
-                reserveWeight * buyFromReserveIndex(resultState, move.getPlayer());
+        return value;
     }
 
     /**
@@ -660,32 +1278,12 @@ public class MinimaxAgent extends Agent {
      * Calculated using formula: sum_market(pointValue/(numTokensNeeded + 1))
      * That way, the number will be high when the player is close to buying high value cards, and moderate when the
      * player is close to buying low value cards
+     * The index is maintained by the state as it changes (see ProgressIndices)
      * @param state - current state to be considered
      * @return value of index for state
      */
     private double buyFromMarketIndex(final GameState state, final int player) {
-        double buyFromMarketIndex = 0;
-
-        for(int i = 0; i < state.getTier1Market().size(); i ++) {
-            DevelopmentCard card = state.getTier1Market().get(i);
-            int tokensNeeded = countTokensToBuy(state, player, card);
-
-            buyFromMarketIndex += 1.0*card.getPointValue()/(tokensNeeded + 1);
-        }
-        for(int i = 0; i < state.getTier2Market().size(); i ++) {
-            DevelopmentCard card = state.getTier2Market().get(i);
-            int tokensNeeded = countTokensToBuy(state, player, card);
-
-            buyFromMarketIndex += 1.0*card.getPointValue()/(tokensNeeded + 1);
-        }
-        for(int i = 0; i < state.getTier3Market().size(); i ++) {
-            DevelopmentCard card = state.getTier3Market().get(i);
-            int tokensNeeded = countTokensToBuy(state, player, card);
-
-            buyFromMarketIndex += 1.0*card.getPointValue()/(tokensNeeded + 1);
-        }
-
-        return buyFromMarketIndex;
+        return state.getProgressIndices().getBuyFromMarketIndex(player);
     }
 
     /**
@@ -695,14 +1293,7 @@ public class MinimaxAgent extends Agent {
      * Calculated using formula sum_nobles(1/(cardsNeeded+1))
      */
     private double attractNobleIndex(final GameState state, final int player) {
-        double attractNobleIndex = 0;
-
-        for(int i = 0; i < state.getNoblesMarket().size(); i ++) {
-            int cardsNeeded = countCardsToAttract(state, player, state.getNoblesMarket().get(i));
-                attractNobleIndex += 1.0/(cardsNeeded + 1);
-        }
-
-        return attractNobleIndex;
+        return state.getProgressIndices().getAttractNobleIndex(player);
     }
 
     /**
@@ -712,20 +1303,64 @@ public class MinimaxAgent extends Agent {
      * Calculated using formula: sum_reserve(pointValue/(numTokensNeeded + 1))
      */
     private double buyFromReserveIndex(final GameState state, final int player) {
-        double buyFromReserveIndex = 0;
+        return state.getProgressIndices().getBuyFromReserveIndex(player);
+    }
 
-        ArrayList<DevelopmentCard> reserve = switch(player) {
-            case 1 -> state.getPlayer1Reserve();
-            case 2 -> state.getPlayer2Reserve();
-            default -> null;
-        };
-        assert reserve != null;
-        for (DevelopmentCard developmentCard : reserve) {
-            int tokensNeeded = countTokensToBuy(state, player, developmentCard);
-            buyFromReserveIndex += 1.0 * developmentCard.getPointValue() / (tokensNeeded + 1);
+    /**
+     * @param state - current state to be considered
+     * @return true if the player to move can take at least one colored token, in which case they have a TakeTokensMove
+     */
+    private boolean hasTokensToTake(final GameState state) {
+        for(int i = 0; i < 5; i ++)
+            if(state.getSupplyTokens()[i] > 0)
+                return true;
+        return false;
+    }
+
+    /**
+     * @param state - current state to be considered, in which the opponent of the player is to move
+     * @return maximum points the player could make in a single move, after the opponent makes an imaginary move,
+     * if possible a TakeTokens one
+     */
+    private int getMaxImmediatePointsAfterImaginaryMove(final GameState state) {
+        boolean imaginaryMoveMade = false;
+        GameState imaginaryState = new GameState(state);
+        statistics.countStateCopy();
+        ArrayList<Move> opponentMoves = getAvailableMoves(imaginaryState);
+        for (Move opponentMove : opponentMoves) {
+            if (opponentMove instanceof TakeTokensMove) {
+                imaginaryState.handleMove(opponentMove);
+                imaginaryMoveMade = true;
+                break;
+            }
+        }
+        if(!imaginaryMoveMade) {
+            imaginaryState.handleMove(opponentMoves.get(0));
         }
 
-        return buyFromReserveIndex;
+        // Get maximum points that can be made by the player
+        int maxImmediatePoints = 0;
+        ArrayList<BuyCardMove> playerImaginaryMoves = getAvailableBuyCardMoves(imaginaryState);
+        for(BuyCardMove playerMove : playerImaginaryMoves) {
+            int additionalPoints = getPointsFromMove(imaginaryState, playerMove);
+
+            if(additionalPoints > maxImmediatePoints)
+                maxImmediatePoints = additionalPoints;
+        }
+        return maxImmediatePoints;
+    }
+
+    /**
+     * @param move - BuyCardMove, encoded by MoveEncoding
+     * @return points gained by the move, from the card and the noble it attracts
+     */
+    private int getPointsFromMove(final GameState state, final int move) {
+        int cardSource = MoveEncoding.getCardSource(move), cardIndex = MoveEncoding.getCardIndex(move);
+        int slot = cardSource == 0 ? ProgressIndices.RESERVE_SLOT + cardIndex : (cardSource - 1) * 4 + cardIndex;
+        int points = state.getProgressIndices().getPoints(MoveEncoding.getPlayer(move), slot);
+        if(MoveEncoding.getChosenNobleIndex(move) != -1)
+            points += 3;
+        return points;
     }
 
     private int getPointsFromMove(final GameState state, final BuyCardMove move) {
@@ -746,59 +1381,4 @@ public class MinimaxAgent extends Agent {
         return points;
     }
 
-    /**
-     * @param state - current state of the game
-     * @param card - card being considered
-     * @return number of tokens the player to move still needs to acquire in order to purchase a card
-     */
-    private int countTokensToBuy(final GameState state, final int player, final DevelopmentCard card) {
-        int[] tokens;
-        int[] cards;
-        if(player == 1) {
-            tokens = state.getPlayer1Tokens();
-            cards = state.getPlayer1Cards();
-        }
-        else {
-            tokens = state.getPlayer2Tokens();
-            cards = state.getPlayer2Cards();
-        }
-
-        int tokensNeeded = 0;
-
-        for(int i = 0; i < card.getCostArray().length; i ++) {
-            int colorTokensNeeded = card.getCostArray()[i] - tokens[i] - cards[i];
-            if(colorTokensNeeded > 0)
-                tokensNeeded += colorTokensNeeded;
-        }
-
-        if(tokens[5] > tokensNeeded)
-            tokensNeeded = 0;
-        else tokensNeeded -= tokens[5];
-
-        return tokensNeeded;
-    }
-
-    /**
-     * @param state - current state of the game
-     * @param tile - noble time being considered
-     * @return number of cards the player to move still needs to acquire in order to attract a noble
-     */
-    private int countCardsToAttract(final GameState state, final int player, final NobleTile tile) {
-        int cardsNeeded = 0;
-        int[] cards = switch(player) {
-            case 1 -> state.getPlayer1Cards();
-            case 2 -> state.getPlayer2Cards();
-            default -> null;
-        };
-
-        for(int i = 0; i < tile.getRequiredArray().length; i ++) {
-            assert cards != null;
-            int colorCardsNeeded = tile.getRequiredArray()[i] - cards[i];
-            if(colorCardsNeeded  > 0)
-                cardsNeeded += colorCardsNeeded;
-        }
-
-        return cardsNeeded;
-    }
-
 }
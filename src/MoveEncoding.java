@@ -0,0 +1,149 @@
+// Encoding of a move as a single int, so that moves can be generated, stored and applied without allocating objects
+// The Move classes remain the representation used outside of search; toMove() and encode() convert between the two
+// Bits 0-1 hold the type of the move (in the order of Move.Type), bits 2-3 the player, bits 4-5 the card source (the
+// tier, or 0 for the reserve), bits 6-8 the card index, bits 9-11 the chosen noble index + 1, and bits 12-22 the
+// tokens taken and returned, as a TokenPatterns code. A reserve move only returns tokens, so its take pattern is
+// TAKE_NONE; the gold token it takes is implied
+public final class MoveEncoding {
+    public static final int TAKE_TOKENS = 0;
+    public static final int RESERVE_CARD = 1;
+    public static final int BUY_CARD = 2;
+
+    // Value returned by encode() for moves that cannot be encoded (none of which are legal)
+    public static final int NONE = -1;
+
+    // Largest number of moves that can be available in a state: buying any of 3 reserved and 12 market cards with
+    // any of up to 5 nobles or none, reserving any of 12 market cards or 3 deck cards returning any single token or
+    // none, and the TakeTokensMoves
+    public static final int MAX_MOVES = 6 * 15 + 5 * 15 + TokenPatterns.MAX_MOVES;
+
+    // Number of values of getIndex(): for each player, the TokenPatterns codes of the TakeTokensMoves, then the reserve
+    // moves by card and return pattern, then the buy moves by card and chosen noble
+    private static final int RESERVE_INDICES = TokenPatterns.encode(TokenPatterns.NUMBER_TAKE_PATTERNS, 0);
+    private static final int BUY_INDICES = RESERVE_INDICES + 3 * 5 * TokenPatterns.NUMBER_RETURN_PATTERNS;
+    private static final int INDICES_PER_PLAYER = BUY_INDICES + 4 * 4 * 6;
+    public static final int NUMBER_INDICES = 2 * INDICES_PER_PLAYER;
+
+    private static final int PLAYER_SHIFT = 2, SOURCE_SHIFT = 4, INDEX_SHIFT = 6, NOBLE_SHIFT = 9, TOKENS_SHIFT = 12;
+    private static final Move.Type[] TYPES = Move.Type.values();
+
+    private MoveEncoding() {
+    }
+
+    public static int encodeTakeTokens(int player, int tokenCode) {
+        return TAKE_TOKENS | player << PLAYER_SHIFT | tokenCode << TOKENS_SHIFT;
+    }
+
+    public static int encodeReserveCard(int player, int cardTier, int cardIndex, int returnPattern) {
+        return RESERVE_CARD | player << PLAYER_SHIFT | cardTier << SOURCE_SHIFT | cardIndex << INDEX_SHIFT |
+                TokenPatterns.encode(TokenPatterns.TAKE_NONE, returnPattern) << TOKENS_SHIFT;
+    }
+
+    public static int encodeBuyCard(int player, int cardSource, int cardIndex, int chosenNobleIndex) {
+        return BUY_CARD | player << PLAYER_SHIFT | cardSource << SOURCE_SHIFT | cardIndex << INDEX_SHIFT |
+                (chosenNobleIndex + 1) << NOBLE_SHIFT;
+    }
+
+    // Returns the code of the move, or NONE if one of its fields is out of range
+    public static int encode(Move move) {
+        int player = move.getPlayer();
+        if(player < 1 || player > 2)
+            return NONE;
+
+        if(move instanceof BuyCardMove buyMove) {
+            if(buyMove.getCardSource() < 0 || buyMove.getCardSource() > 3 || buyMove.getCardIndex() < 0 ||
+                    buyMove.getCardIndex() > 3 || buyMove.getChosenNobleIndex() < -1 || buyMove.getChosenNobleIndex() > 4)
+                return NONE;
+            return encodeBuyCard(player, buyMove.getCardSource(), buyMove.getCardIndex(), buyMove.getChosenNobleIndex());
+        }
+        if(move instanceof ReserveCardMove reserveMove) {
+            int returnPattern = TokenPatterns.findReturnPattern(reserveMove.getTokensToReturn());
+            if(reserveMove.getCardTier() < 1 || reserveMove.getCardTier() > 3 || reserveMove.getCardIndex() < 0 ||
+                    reserveMove.getCardIndex() > 4 || returnPattern < 0)
+                return NONE;
+            return encodeReserveCard(player, reserveMove.getCardTier(), reserveMove.getCardIndex(), returnPattern);
+        }
+        if(move instanceof TakeTokensMove takeMove) {
+            int takePattern = TokenPatterns.findTakePattern(takeMove.getTokensToTake());
+            int returnPattern = TokenPatterns.findReturnPattern(takeMove.getTokensToReturn());
+            if(takePattern < 0 || returnPattern < 0)
+                return NONE;
+            return encodeTakeTokens(player, TokenPatterns.encode(takePattern, returnPattern));
+        }
+        return NONE;
+    }
+
+    public static Move toMove(int move) {
+        return switch(getType(move)) {
+            case buyCard -> new BuyCardMove(getPlayer(move), getCardSource(move), getCardIndex(move),
+                    getChosenNobleIndex(move));
+            case reserveCard -> new ReserveCardMove(getPlayer(move), getCardIndex(move), getCardSource(move),
+                    getTokensToReturn(move));
+            case takeTokens -> TokenPatterns.toMove(getPlayer(move), getTokenCode(move));
+        };
+    }
+
+    // Returns a dense index of the move, between 0 and NUMBER_INDICES - 1, for tables indexed by move
+    public static int getIndex(int move) {
+        int index = switch(getType(move)) {
+            case takeTokens -> getTokenCode(move);
+            case reserveCard -> RESERVE_INDICES + ((getCardSource(move) - 1) * 5 + getCardIndex(move)) *
+                    TokenPatterns.NUMBER_RETURN_PATTERNS + TokenPatterns.getReturnPattern(getTokenCode(move));
+            case buyCard -> BUY_INDICES + (getCardSource(move) * 4 + getCardIndex(move)) * 6 +
+                    getChosenNobleIndex(move) + 1;
+        };
+        return (getPlayer(move) - 1) * INDICES_PER_PLAYER + index;
+    }
+
+    // Returns the code of the move of the given dense index, the inverse of getIndex()
+    public static int fromIndex(int index) {
+        int player = index / INDICES_PER_PLAYER + 1;
+        index %= INDICES_PER_PLAYER;
+        if(index < RESERVE_INDICES)
+            return encodeTakeTokens(player, index);
+        if(index < BUY_INDICES) {
+            index -= RESERVE_INDICES;
+            int slot = index / TokenPatterns.NUMBER_RETURN_PATTERNS;
+            return encodeReserveCard(player, slot / 5 + 1, slot % 5, index % TokenPatterns.NUMBER_RETURN_PATTERNS);
+        }
+        index -= BUY_INDICES;
+        int slot = index / 6;
+        return encodeBuyCard(player, slot / 4, slot % 4, index % 6 - 1);
+    }
+
+    public static Move.Type getType(int move) {
+        return TYPES[move & 3];
+    }
+
+    public static int getPlayer(int move) {
+        return move >>> PLAYER_SHIFT & 3;
+    }
+
+    // Tier of the card for reserve and buy moves, or 0 for a card bought from the reserve
+    public static int getCardSource(int move) {
+        return move >>> SOURCE_SHIFT & 3;
+    }
+
+    public static int getCardIndex(int move) {
+        return move >>> INDEX_SHIFT & 7;
+    }
+
+    public static int getChosenNobleIndex(int move) {
+        return (move >>> NOBLE_SHIFT & 7) - 1;
+    }
+
+    // TokenPatterns code of the tokens taken and returned
+    public static int getTokenCode(int move) {
+        return move >>> TOKENS_SHIFT;
+    }
+
+    // Returns the tokens taken by a TakeTokensMove; the array is shared and must not be modified
+    public static int[] getTokensToTake(int move) {
+        return TokenPatterns.getTokensToTake(getTokenCode(move));
+    }
+
+    // Returns the tokens returned by the move; the array is shared and must not be modified
+    public static int[] getTokensToReturn(int move) {
+        return TokenPatterns.getTokensToReturn(getTokenCode(move));
+    }
+}
@@ -1,15 +1,20 @@
 // A noble tile, represented by name, required cards to attract noble, and pointValue
 // (default 3 as per the rules of Splendor)
+// Tiles are immutable and shared by all states (see CardCatalog); the array returned by getRequiredArray() must not be
+// modified
 public class NobleTile {
+    // Stable identifier of the tile within the 10 nobles of the game, or -1 for tiles created outside SplendorNobles
+    private final int id;
     private final String name;
     private final int requiredBlack, requiredBlue, requiredGreen, requiredRed, requiredWhite;
     private final int[] requiredArray;
     private final int pointValue;
 
-    // Construct a NobleTile object, taking as parameters the name of the figure on the tile
+    // Construct a NobleTile object, taking as parameters its id, the name of the figure on the tile
     // (for easier identification) and the array representing the required number of cards
     // of each color to attract the noble
-    public NobleTile(String name, int[] requiredArray) {
+    public NobleTile(int id, String name, int[] requiredArray) {
+        this.id = id;
         this.name = name;
         requiredBlack = requiredArray[0];
         requiredBlue = requiredArray[1];
@@ -20,16 +25,8 @@ public class NobleTile {
         pointValue = 3;
     }
 
-    // Deep copy of a NobleTile object
-    public NobleTile(NobleTile nobleTile) {
-        this.name = nobleTile.getName();
-        requiredBlack = nobleTile.getRequiredBlack();
-        requiredBlue = nobleTile.getRequiredBlue();
-        requiredGreen = nobleTile.getRequiredGreen();
-        requiredRed = nobleTile.getRequiredRed();
-        requiredWhite = nobleTile.getRequiredWhite();
-        requiredArray = new int[]{requiredBlack, requiredBlue, requiredGreen, requiredRed, requiredWhite};
-        pointValue = nobleTile.getPointValue();
+    public NobleTile(String name, int[] requiredArray) {
+        this(-1, name, requiredArray);
     }
 
     @Override
@@ -58,6 +55,10 @@ public class NobleTile {
     }
 
     // Getters
+    public int getId() {
+        return id;
+    }
+
     public String getName() {
         return name;
     }
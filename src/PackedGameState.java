@@ -0,0 +1,283 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// Compact, fixed-layout encoding of a GameState, held in a single long[] so that it can be copied with one
+// System.arraycopy instead of allocating the arrays, lists, decks and cards of a GameState
+// Every field occupies one byte lane (8 lanes per long). Cards and nobles are stored by their CardCatalog id, with EMPTY
+// marking unused market, reserve and noble slots.
+// The encoding converts losslessly to and from GameState, including the order of the cards left in each deck.
+// In addition, the cards left in the decks are kept as a bitset indexed by card id
+public class PackedGameState {
+    public static final int EMPTY = 0xFF;
+
+    // Byte lanes of the layout
+    private static final int PLAYER_TO_MOVE = 0;
+    private static final int PLAYER_STARTED = 1;
+    private static final int FLAGS = 2; // bit 0 - lastTurn, bit 1 - gameOver
+    private static final int TURN_NUMBER = 3; // 2 lanes, low byte first
+    private static final int PLAYER1_SCORE = 5;
+    private static final int PLAYER2_SCORE = 6;
+    private static final int SUPPLY_TOKENS = 8; // 6 lanes: black, blue, green, red, white, gold
+    private static final int PLAYER1_TOKENS = 14; // 6 lanes
+    private static final int PLAYER2_TOKENS = 20; // 6 lanes
+    private static final int PLAYER1_CARDS = 26; // 5 lanes: black, blue, green, red, white
+    private static final int PLAYER2_CARDS = 31; // 5 lanes
+    private static final int MARKET = 36; // 4 lanes per tier, tiers 1 to 3
+    private static final int PLAYER1_RESERVE = 48; // 3 lanes
+    private static final int PLAYER2_RESERVE = 51; // 3 lanes
+    private static final int NOBLES = 54; // 3 lanes
+    private static final int DECK_SIZES = 57; // 3 lanes, tiers 1 to 3
+    // Cards of each deck, bottom of the deck first; tier 1 holds up to 40 cards, tier 2 up to 30 and tier 3 up to 20
+    private static final int[] DECK_OFFSETS = {-1, 64, 104, 134};
+    private static final int LANE_WORDS = 20;
+
+    // Two words holding the bitset of the cards left in the decks
+    private static final int DECK_BITSET = LANE_WORDS;
+
+    public static final int WORDS = LANE_WORDS + 2;
+    public static final int BYTES = WORDS * 8;
+
+    private final long[] words;
+
+    // Encodes the given state
+    // Throws IllegalArgumentException if the state holds cards or nobles without an id
+    public PackedGameState(GameState state) {
+        words = new long[WORDS];
+
+        setLane(PLAYER_TO_MOVE, state.getPlayerToMove());
+        setLane(PLAYER_STARTED, state.getPlayerStarted());
+        setLane(FLAGS, (state.isLastTurn() ? 1 : 0) | (state.isGameOver() ? 2 : 0));
+        setLane(TURN_NUMBER, state.getTurnNumber() & 0xFF);
+        setLane(TURN_NUMBER + 1, state.getTurnNumber() >>> 8);
+        setLane(PLAYER1_SCORE, state.getPlayer1Score());
+        setLane(PLAYER2_SCORE, state.getPlayer2Score());
+
+        for(int i = 0; i < 6; i ++) {
+            setLane(SUPPLY_TOKENS + i, state.getSupplyTokens()[i]);
+            setLane(PLAYER1_TOKENS + i, state.getPlayer1Tokens()[i]);
+            setLane(PLAYER2_TOKENS + i, state.getPlayer2Tokens()[i]);
+        }
+        for(int i = 0; i < 5; i ++) {
+            setLane(PLAYER1_CARDS + i, state.getPlayer1Cards()[i]);
+            setLane(PLAYER2_CARDS + i, state.getPlayer2Cards()[i]);
+        }
+
+        setCardLanes(MARKET, 4, state.getTier1Market());
+        setCardLanes(MARKET + 4, 4, state.getTier2Market());
+        setCardLanes(MARKET + 8, 4, state.getTier3Market());
+        setCardLanes(PLAYER1_RESERVE, 3, state.getPlayer1Reserve());
+        setCardLanes(PLAYER2_RESERVE, 3, state.getPlayer2Reserve());
+
+        for(int i = 0; i < 3; i ++) {
+            if(i < state.getNoblesMarket().size())
+                setLane(NOBLES + i, checkedId(state.getNoblesMarket().get(i).getId(), CardCatalog.NUMBER_NOBLES));
+            else
+                setLane(NOBLES + i, EMPTY);
+        }
+
+        setDeckLanes(1, state.getTier1Deck());
+        setDeckLanes(2, state.getTier2Deck());
+        setDeckLanes(3, state.getTier3Deck());
+    }
+
+    // Blank encoding, to be overwritten by copyFrom() or readFrom()
+    public PackedGameState() {
+        words = new long[WORDS];
+    }
+
+    // Copy of an encoded state
+    public PackedGameState(PackedGameState packed) {
+        words = new long[WORDS];
+        copyFrom(packed);
+    }
+
+    // Overwrites this encoding with the given one, without allocating
+    public void copyFrom(PackedGameState packed) {
+        System.arraycopy(packed.words, 0, words, 0, WORDS);
+    }
+
+    // Writes the encoding at the position of the buffer, which must have BYTES bytes remaining
+    public void writeTo(ByteBuffer buffer) {
+        for(long word : words)
+            buffer.putLong(word);
+    }
+
+    // Overwrites this encoding with the one written by writeTo() at the given index of the buffer, without allocating
+    // or moving the position of the buffer
+    public void readFrom(ByteBuffer buffer, int index) {
+        for(int i = 0; i < WORDS; i ++)
+            words[i] = buffer.getLong(index + i * 8);
+    }
+
+    // Decodes the state into a new GameState
+    public GameState toGameState() {
+        return new GameState(this);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof PackedGameState && Arrays.equals(words, ((PackedGameState) other).words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+
+    // ----- Field access -----
+
+    public int getPlayerToMove() {
+        return getLane(PLAYER_TO_MOVE);
+    }
+
+    public int getPlayerStarted() {
+        return getLane(PLAYER_STARTED);
+    }
+
+    public boolean isLastTurn() {
+        return (getLane(FLAGS) & 1) != 0;
+    }
+
+    public boolean isGameOver() {
+        return (getLane(FLAGS) & 2) != 0;
+    }
+
+    public int getTurnNumber() {
+        return getLane(TURN_NUMBER) | getLane(TURN_NUMBER + 1) << 8;
+    }
+
+    public int getPlayerScore(int player) {
+        return getLane(player == 1 ? PLAYER1_SCORE : PLAYER2_SCORE);
+    }
+
+    // Color index 0-5, in the order black, blue, green, red, white, gold
+    public int getSupplyTokens(int color) {
+        return getLane(SUPPLY_TOKENS + color);
+    }
+
+    public int getPlayerTokens(int player, int color) {
+        return getLane((player == 1 ? PLAYER1_TOKENS : PLAYER2_TOKENS) + color);
+    }
+
+    // Color index 0-4, in the order black, blue, green, red, white
+    public int getPlayerCards(int player, int color) {
+        return getLane((player == 1 ? PLAYER1_CARDS : PLAYER2_CARDS) + color);
+    }
+
+    // Returns the id of the card in the given market slot, or EMPTY
+    public int getMarketCardId(int tier, int slot) {
+        return getLane(MARKET + (tier - 1) * 4 + slot);
+    }
+
+    // Returns the id of the card in the given reserve slot, or EMPTY
+    public int getReserveCardId(int player, int slot) {
+        return getLane((player == 1 ? PLAYER1_RESERVE : PLAYER2_RESERVE) + slot);
+    }
+
+    // Returns the id of the noble in the given slot, or EMPTY
+    public int getNobleId(int slot) {
+        return getLane(NOBLES + slot);
+    }
+
+    public int getDeckSize(int tier) {
+        return getLane(DECK_SIZES + tier - 1);
+    }
+
+    // Returns the id of the card at the given position of the deck, where 0 is the bottom of the deck
+    public int getDeckCardId(int tier, int index) {
+        return getLane(DECK_OFFSETS[tier] + index);
+    }
+
+    // Returns true if the card is still in one of the decks
+    public boolean deckContains(int cardId) {
+        return (words[DECK_BITSET + (cardId >>> 6)] & (1L << cardId)) != 0;
+    }
+
+    // ----- Conversion helpers, used by GameState(PackedGameState) -----
+
+    int[] getSupplyTokensArray() {
+        int[] tokens = new int[6];
+        for(int i = 0; i < 6; i ++)
+            tokens[i] = getSupplyTokens(i);
+        return tokens;
+    }
+
+    int[] getPlayerTokensArray(int player) {
+        int[] tokens = new int[6];
+        for(int i = 0; i < 6; i ++)
+            tokens[i] = getPlayerTokens(player, i);
+        return tokens;
+    }
+
+    int[] getPlayerCardsArray(int player) {
+        int[] cards = new int[5];
+        for(int i = 0; i < 5; i ++)
+            cards[i] = getPlayerCards(player, i);
+        return cards;
+    }
+
+    ArrayList<DevelopmentCard> getMarket(int tier) {
+        return getCards(MARKET + (tier - 1) * 4, 4);
+    }
+
+    ArrayList<DevelopmentCard> getReserve(int player) {
+        return getCards(player == 1 ? PLAYER1_RESERVE : PLAYER2_RESERVE, 3);
+    }
+
+    ArrayList<NobleTile> getNobles() {
+        ArrayList<NobleTile> nobles = new ArrayList<>();
+        for(int i = 0; i < 3 && getNobleId(i) != EMPTY; i ++)
+            nobles.add(CardCatalog.getNoble(getNobleId(i)));
+        return nobles;
+    }
+
+    ArrayList<DevelopmentCard> getDeckCards(int tier) {
+        ArrayList<DevelopmentCard> cards = new ArrayList<>();
+        for(int i = 0; i < getDeckSize(tier); i ++)
+            cards.add(CardCatalog.getCard(getDeckCardId(tier, i)));
+        return cards;
+    }
+
+    // ----- Private methods -----
+
+    private int getLane(int lane) {
+        return (int)(words[lane >>> 3] >>> ((lane & 7) << 3)) & 0xFF;
+    }
+
+    private void setLane(int lane, int value) {
+        int shift = (lane & 7) << 3;
+        words[lane >>> 3] = (words[lane >>> 3] & ~(0xFFL << shift)) | ((long)(value & 0xFF) << shift);
+    }
+
+    private void setCardLanes(int firstLane, int numberLanes, ArrayList<DevelopmentCard> cards) {
+        for(int i = 0; i < numberLanes; i ++) {
+            if(i < cards.size())
+                setLane(firstLane + i, checkedId(cards.get(i).getId(), CardCatalog.NUMBER_CARDS));
+            else
+                setLane(firstLane + i, EMPTY);
+        }
+    }
+
+    private void setDeckLanes(int tier, CardDeck deck) {
+        setLane(DECK_SIZES + tier - 1, deck.getSize());
+        for(int i = 0; i < deck.getSize(); i ++) {
+            int id = checkedId(deck.getCard(i).getId(), CardCatalog.NUMBER_CARDS);
+            setLane(DECK_OFFSETS[tier] + i, id);
+            words[DECK_BITSET + (id >>> 6)] |= 1L << id;
+        }
+    }
+
+    private ArrayList<DevelopmentCard> getCards(int firstLane, int numberLanes) {
+        ArrayList<DevelopmentCard> cards = new ArrayList<>();
+        for(int i = 0; i < numberLanes && getLane(firstLane + i) != EMPTY; i ++)
+            cards.add(CardCatalog.getCard(getLane(firstLane + i)));
+        return cards;
+    }
+
+    private static int checkedId(int id, int numberIds) {
+        if(id < 0 || id >= numberIds)
+            throw new IllegalArgumentException("Only cards and nobles of the standard game can be encoded, got id " + id);
+        return id;
+    }
+}
@@ -0,0 +1,466 @@
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+// Plays games from a GameState to the end with random moves, for Monte Carlo evaluation and for generating games
+// The game is copied into flat arrays of card and noble ids (see CardCatalog). Moves are sampled directly from masks of
+// the affordable cards and of the token piles, without listing the available moves, and applied without validation:
+// every sampled move is legal, and no Zobrist key or progress index is kept. The moves played are recorded, encoded by
+// MoveEncoding, so that a game can be replayed on a GameState
+// Moves follow a light policy: a random affordable card is bought if there is one, attracting a random noble among
+// those it attracts. Otherwise, a random card is reserved in 1 move out of RESERVE_ODDS, and random tokens are taken in
+// the others, returning random tokens over the limit of 10. A player who can do none of these passes
+// Each instance holds its own random number generator and buffers, so every thread needs its own instance (see split())
+public class Playout {
+    private static final int RESERVE_ODDS = 10;
+
+    // No game lasts more than 300 turns of 2 moves
+    private static final int MAX_GAME_MOVES = 602;
+
+    // Cost (5 colors per card), point value and bonus color of each card, and requirements (5 colors per noble) and
+    // point value of each noble, by id
+    private static final int[] CARD_COSTS = new int[5 * CardCatalog.NUMBER_CARDS];
+    // Cost of each card plus 8, one byte per color, so that the tokens lacking to buy it are found for all colors at
+    // once (see canAfford()); no card costs more than 7 tokens of a color
+    private static final long[] PACKED_COSTS = new long[CardCatalog.NUMBER_CARDS];
+    private static final int[] CARD_POINTS = new int[CardCatalog.NUMBER_CARDS];
+    private static final int[] CARD_BONUSES = new int[CardCatalog.NUMBER_CARDS];
+    private static final int[] NOBLE_REQUIREMENTS = new int[5 * CardCatalog.NUMBER_NOBLES];
+    private static final int[] NOBLE_POINTS = new int[CardCatalog.NUMBER_NOBLES];
+
+    // Take patterns taking different tokens from the piles of each mask of available piles: 3 tokens, or as many as
+    // there are piles if there are fewer than 3
+    private static final int[][] DIFFERENT_TAKES = new int[32][];
+
+    // Return pattern of each way of returning up to 3 tokens, indexed by the number of tokens of each color returned,
+    // 2 bits per color
+    private static final int[] RETURN_PATTERNS = new int[1 << 10];
+
+    static {
+        for(int id = 0; id < CardCatalog.NUMBER_CARDS; id ++) {
+            DevelopmentCard card = CardCatalog.getCard(id);
+            System.arraycopy(card.getCostArray(), 0, CARD_COSTS, 5 * id, 5);
+            for(int color = 0; color < 5; color ++)
+                PACKED_COSTS[id] |= (long) (card.getCostArray()[color] + 8) << (8 * color);
+            CARD_POINTS[id] = card.getPointValue();
+            CARD_BONUSES[id] = card.getBonusColor().getIndex();
+        }
+        for(int id = 0; id < CardCatalog.NUMBER_NOBLES; id ++) {
+            NobleTile noble = CardCatalog.getNoble(id);
+            System.arraycopy(noble.getRequiredArray(), 0, NOBLE_REQUIREMENTS, 5 * id, 5);
+            NOBLE_POINTS[id] = noble.getPointValue();
+        }
+
+        for(int piles = 0; piles < 32; piles ++) {
+            int size = Math.min(Integer.bitCount(piles), 3);
+            ArrayList<Integer> takes = new ArrayList<>();
+            for(int take = TokenPatterns.TAKE_ONE; take < TokenPatterns.TAKE_NONE; take ++)
+                if(TokenPatterns.getTakeSize(take) == size && (TokenPatterns.getTakeMask(take) & ~piles) == 0)
+                    takes.add(take);
+            DIFFERENT_TAKES[piles] = takes.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        for(int ret = 0; ret < TokenPatterns.NUMBER_RETURN_PATTERNS; ret ++) {
+            int[] tokensToReturn = TokenPatterns.getTokensToReturn(TokenPatterns.encode(TokenPatterns.TAKE_NONE, ret));
+            int key = 0;
+            for(int color = 0; color < 5; color ++)
+                key |= tokensToReturn[color] << (2 * color);
+            RETURN_PATTERNS[key] = ret;
+        }
+    }
+
+    private final SplittableRandom random;
+
+    // Supply tokens, then the tokens and bonuses of each player, at index (player - 1) * 6 + color and
+    // (player - 1) * 5 + color
+    private final int[] supplyTokens = new int[6];
+    private final int[] playerTokens = new int[12];
+    private final int[] playerCards = new int[10];
+    private final int[] scores = new int[2];
+
+    // Ids of the cards of the market, 4 slots per tier at (tier - 1) * 4 + index, and of the reserves, 3 slots per
+    // player from 12 + (player - 1) * 3, with their packed costs (see PACKED_COSTS). Then the ids of the nobles, and
+    // of the cards of each deck, top of the deck last
+    private final int[] cards = new int[18];
+    private final long[] costs = new long[18];
+    private final int[] marketSizes = new int[3];
+    private final int[] reserveSizes = new int[2];
+    private final int[] nobles = new int[5];
+    private int numberNobles;
+    private final int[][] decks = {new int[40], new int[30], new int[20]};
+    private final int[] deckSizes = new int[3];
+
+    private int playerToMove, playerStarted, turnNumber;
+    private boolean lastTurn, gameOver;
+
+    // Moves of the last game, encoded by MoveEncoding
+    private final int[] moves = new int[MAX_GAME_MOVES];
+    private int numberMoves;
+
+    public Playout() {
+        this(new SplittableRandom());
+    }
+
+    public Playout(SplittableRandom random) {
+        this.random = random;
+    }
+
+    // Returns a new instance whose random number generator is split from this one, for use on another thread
+    public Playout split() {
+        return new Playout(random.split());
+    }
+
+    // Copies the game state, from which the next game is played
+    public void load(GameState state) {
+        System.arraycopy(state.getSupplyTokens(), 0, supplyTokens, 0, 6);
+        System.arraycopy(state.getPlayer1Tokens(), 0, playerTokens, 0, 6);
+        System.arraycopy(state.getPlayer2Tokens(), 0, playerTokens, 6, 6);
+        System.arraycopy(state.getPlayer1Cards(), 0, playerCards, 0, 5);
+        System.arraycopy(state.getPlayer2Cards(), 0, playerCards, 5, 5);
+        scores[0] = state.getPlayer1Score();
+        scores[1] = state.getPlayer2Score();
+
+        loadCards(state.getTier1Market(), 0, marketSizes, 0);
+        loadCards(state.getTier2Market(), 4, marketSizes, 1);
+        loadCards(state.getTier3Market(), 8, marketSizes, 2);
+        loadCards(state.getPlayer1Reserve(), 12, reserveSizes, 0);
+        loadCards(state.getPlayer2Reserve(), 15, reserveSizes, 1);
+        loadDeck(state.getTier1Deck(), 1);
+        loadDeck(state.getTier2Deck(), 2);
+        loadDeck(state.getTier3Deck(), 3);
+
+        numberNobles = state.getNoblesMarket().size();
+        for(int i = 0; i < numberNobles; i ++)
+            nobles[i] = state.getNoblesMarket().get(i).getId();
+
+        playerToMove = state.getPlayerToMove();
+        playerStarted = state.getPlayerStarted();
+        turnNumber = state.getTurnNumber();
+        lastTurn = state.isLastTurn();
+        gameOver = state.isGameOver();
+        numberMoves = 0;
+    }
+
+    // Shuffles the decks of the loaded state, which the players cannot see, so that games from the same state draw
+    // different cards
+    public void shuffleDecks() {
+        for(int tier = 0; tier < 3; tier ++) {
+            int[] deck = decks[tier];
+            for(int i = deckSizes[tier] - 1; i > 0; i --) {
+                int j = random.nextInt(i + 1);
+                int card = deck[i];
+                deck[i] = deck[j];
+                deck[j] = card;
+            }
+        }
+    }
+
+    // Plays the loaded state until the game is over or maxMoves moves have been played, and returns the player with
+    // the most points: 1 or 2, or 0 for a draw
+    public int play(int maxMoves) {
+        numberMoves = 0;
+        while(!gameOver && numberMoves < maxMoves) {
+            int player = playerToMove;
+            int affordableSlots = getAffordableSlots(player);
+            boolean canTakeTokens = getAvailablePiles() != 0;
+            boolean canReserve = reserveSizes[player - 1] < 3 && hasCardToReserve();
+
+            if(affordableSlots != 0)
+                buyCard(player, selectBit(affordableSlots, random.nextInt(Integer.bitCount(affordableSlots))));
+            else if(canReserve && (!canTakeTokens || random.nextInt(RESERVE_ODDS) == 0))
+                reserveCard(player);
+            else if(canTakeTokens)
+                takeTokens(player);
+            else
+                moves[numberMoves ++] = MoveEncoding.encodeTakeTokens(player,
+                        TokenPatterns.encode(TokenPatterns.TAKE_NONE, TokenPatterns.RETURN_NONE));
+            endMove(player);
+        }
+        return getWinner();
+    }
+
+    // Player with the most points in the current state: 1 or 2, or 0 if the scores are equal
+    public int getWinner() {
+        return scores[0] > scores[1] ? 1 : (scores[1] > scores[0] ? 2 : 0);
+    }
+
+    public int getScore(int player) {
+        return scores[player - 1];
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    // Returns the moves of the last game, encoded by MoveEncoding; the array is shared and must not be modified
+    public int[] getMoves() {
+        return moves;
+    }
+
+    public int getNumberMoves() {
+        return numberMoves;
+    }
+
+    // +++ Moves +++
+
+    // Buys the card in the slot (market slots, then reserve slots from 12, as in ProgressIndices)
+    private void buyCard(int player, int slot) {
+        int p = player - 1;
+        int card = cards[slot < 12 ? slot : slot + 3 * p];
+
+        // Pay with tokens of the color first, then with gold (see GameState.payForCard())
+        int gold = 0;
+        for(int color = 0; color < 5; color ++) {
+            int needed = Math.max(CARD_COSTS[5 * card + color] - playerCards[5 * p + color], 0);
+            int paid = Math.min(needed, playerTokens[6 * p + color]);
+            playerTokens[6 * p + color] -= paid;
+            supplyTokens[color] += paid;
+            gold += needed - paid;
+        }
+        playerTokens[6 * p + 5] -= gold;
+        supplyTokens[5] += gold;
+
+        playerCards[5 * p + CARD_BONUSES[card]] ++;
+        scores[p] += CARD_POINTS[card];
+
+        int source, index;
+        if(slot < 12) {
+            source = slot / 4 + 1;
+            index = slot % 4;
+            replaceMarketCard(source, index);
+        }
+        else {
+            source = 0;
+            index = slot - 12;
+            removeCard(12 + 3 * p, reserveSizes, p, index);
+        }
+
+        // The player attracts one of the nobles whose requirements their cards now meet, if any
+        int attractedNobles = 0;
+        for(int i = 0; i < numberNobles; i ++) {
+            boolean attracted = true;
+            for(int color = 0; color < 5 && attracted; color ++)
+                attracted = playerCards[5 * p + color] >= NOBLE_REQUIREMENTS[5 * nobles[i] + color];
+            if(attracted)
+                attractedNobles |= 1 << i;
+        }
+        int nobleIndex = -1;
+        if(attractedNobles != 0) {
+            nobleIndex = selectBit(attractedNobles, random.nextInt(Integer.bitCount(attractedNobles)));
+            scores[p] += NOBLE_POINTS[nobles[nobleIndex]];
+            System.arraycopy(nobles, nobleIndex + 1, nobles, nobleIndex, numberNobles - nobleIndex - 1);
+            numberNobles --;
+        }
+
+        moves[numberMoves ++] = MoveEncoding.encodeBuyCard(player, source, index, nobleIndex);
+    }
+
+    // Reserves a random card of the market or the top card of a deck, taking a gold token if there is one left
+    private void reserveCard(int player) {
+        int p = player - 1;
+
+        // Pick a card among the market cards and the non-empty decks of every tier
+        int numberChoices = 0;
+        for(int tier = 0; tier < 3; tier ++)
+            numberChoices += marketSizes[tier] + (deckSizes[tier] > 0 ? 1 : 0);
+        int choice = random.nextInt(numberChoices);
+        int tier = 0;
+        while(choice >= marketSizes[tier] + (deckSizes[tier] > 0 ? 1 : 0)) {
+            choice -= marketSizes[tier] + (deckSizes[tier] > 0 ? 1 : 0);
+            tier ++;
+        }
+        int index = choice < marketSizes[tier] ? choice : 4;
+
+        // A player holding 10 tokens returns one after taking the gold token
+        int returnPattern = TokenPatterns.RETURN_NONE;
+        if(supplyTokens[5] > 0) {
+            supplyTokens[5] --;
+            playerTokens[6 * p + 5] ++;
+            if(getNumberTokens(p) > 10) {
+                int color = selectToken(p);
+                returnToken(p, color);
+                returnPattern = TokenPatterns.RETURN_FIRST[1] + color;
+            }
+        }
+
+        int card;
+        if(index == 4)
+            card = decks[tier][-- deckSizes[tier]];
+        else {
+            card = cards[4 * tier + index];
+            replaceMarketCard(tier + 1, index);
+        }
+        setCard(12 + 3 * p + reserveSizes[p] ++, card);
+
+        moves[numberMoves ++] = MoveEncoding.encodeReserveCard(player, tier + 1, index, returnPattern);
+    }
+
+    // Takes 2 tokens from a pile of 4 or more, or different tokens from the available piles, chosen at random among
+    // the ways the rules allow, then returns random tokens over the limit of 10
+    private void takeTokens(int player) {
+        int p = player - 1;
+        int availablePiles = getAvailablePiles(), fullPiles = 0;
+        for(int color = 0; color < 5; color ++)
+            if(supplyTokens[color] >= 4)
+                fullPiles |= 1 << color;
+
+        int[] differentTakes = DIFFERENT_TAKES[availablePiles];
+        int choice = random.nextInt(Integer.bitCount(fullPiles) + differentTakes.length);
+        int take = choice < Integer.bitCount(fullPiles) ?
+                TokenPatterns.TAKE_TWO_IDENTICAL + selectBit(fullPiles, choice) :
+                differentTakes[choice - Integer.bitCount(fullPiles)];
+
+        int[] tokensToTake = TokenPatterns.getTokensToTake(TokenPatterns.encode(take, TokenPatterns.RETURN_NONE));
+        for(int color = 0; color < 5; color ++) {
+            supplyTokens[color] -= tokensToTake[color];
+            playerTokens[6 * p + color] += tokensToTake[color];
+        }
+
+        int returned = 0;
+        for(int n = getNumberTokens(p) - 10; n > 0; n --) {
+            int color = selectToken(p);
+            returnToken(p, color);
+            returned += 1 << (2 * color);
+        }
+
+        moves[numberMoves ++] = MoveEncoding.encodeTakeTokens(player,
+                TokenPatterns.encode(take, RETURN_PATTERNS[returned]));
+    }
+
+    // Ends the move of the player as GameState does: counts the turn, checks whether the game is over and passes the
+    // move to the opponent
+    private void endMove(int player) {
+        if(player == playerStarted)
+            turnNumber ++;
+        if(scores[0] >= 15 || scores[1] >= 15)
+            lastTurn = true;
+        if((lastTurn && player != playerStarted) || isStalemate())
+            gameOver = true;
+        playerToMove = 3 - player;
+    }
+
+    // +++ Utility methods +++
+
+    // Returns the slots holding a card the player can afford, one bit per slot
+    // Every slot is checked, empty or not, and the empty slots are then masked out: this takes no branch, which matters
+    // more than the few slots saved
+    private int getAffordableSlots(int player) {
+        int p = player - 1;
+        long owned = getPackedOwned(p);
+        int gold = playerTokens[6 * p + 5];
+        int affordableSlots = 0;
+        for(int slot = 0; slot < 12; slot ++)
+            affordableSlots |= canAfford(costs[slot], owned, gold) << slot;
+        for(int index = 0; index < 3; index ++)
+            affordableSlots |= canAfford(costs[12 + 3 * p + index], owned, gold) << (12 + index);
+
+        int occupiedSlots = (1 << marketSizes[0]) - 1 | ((1 << marketSizes[1]) - 1) << 4 |
+                ((1 << marketSizes[2]) - 1) << 8 | ((1 << reserveSizes[p]) - 1) << 12;
+        return affordableSlots & occupiedSlots;
+    }
+
+    // Tokens and bonuses of each color of player p + 1, one byte per color, capped at 7 as no card costs more
+    private long getPackedOwned(int p) {
+        long owned = 0;
+        for(int color = 0; color < 5; color ++)
+            owned |= (long) Math.min(playerTokens[6 * p + color] + playerCards[5 * p + color], 7) << (8 * color);
+        return owned;
+    }
+
+    // Returns 1 if a player owning the given tokens and bonuses (see getPackedOwned()) and gold tokens can afford the
+    // card, or 0 otherwise. Each byte of the difference with the packed cost is 8 plus the tokens lacking of the color
+    // if the player lacks any, and less than 8 otherwise
+    private static int canAfford(long packedCost, long owned, int gold) {
+        long difference = packedCost - owned;
+        long lacking = difference & 0x0707070707L & ((difference >>> 3 & 0x0101010101L) * 0xFF);
+        return (int) ((lacking * 0x0101010101L >>> 32 & 0xFF) - gold - 1 >>> 63);
+    }
+
+    // Colored piles of the supply holding at least one token, one bit per color
+    private int getAvailablePiles() {
+        int availablePiles = 0;
+        for(int color = 0; color < 5; color ++)
+            availablePiles |= (-supplyTokens[color] >>> 31) << color;
+        return availablePiles;
+    }
+
+    private boolean hasCardToReserve() {
+        for(int tier = 0; tier < 3; tier ++)
+            if(marketSizes[tier] > 0 || deckSizes[tier] > 0)
+                return true;
+        return false;
+    }
+
+    // Same as GameState.isStalemate()
+    private boolean isStalemate() {
+        return (hasNoValidMoves(0) && hasNoValidMoves(1)) || turnNumber == 300;
+    }
+
+    // Same as GameState.playerHasNoValidMoves(), for player p + 1
+    private boolean hasNoValidMoves(int p) {
+        return getAvailablePiles() == 0 && reserveSizes[p] == 3 && (getAffordableSlots(p + 1) & 0xFFF) == 0;
+    }
+
+    private int getNumberTokens(int p) {
+        int numberTokens = 0;
+        for(int color = 0; color < 6; color ++)
+            numberTokens += playerTokens[6 * p + color];
+        return numberTokens;
+    }
+
+    // Returns the color of a random colored token of player p + 1, each token being equally likely
+    private int selectToken(int p) {
+        int numberColoredTokens = 0;
+        for(int color = 0; color < 5; color ++)
+            numberColoredTokens += playerTokens[6 * p + color];
+        int token = random.nextInt(numberColoredTokens);
+        int color = 0;
+        while(token >= playerTokens[6 * p + color])
+            token -= playerTokens[6 * p + color ++];
+        return color;
+    }
+
+    private void returnToken(int p, int color) {
+        playerTokens[6 * p + color] --;
+        supplyTokens[color] ++;
+    }
+
+    // Replaces the market card taken from the slot by the top card of the deck, or removes the slot, shifting the
+    // cards after it, if the deck is empty
+    private void replaceMarketCard(int tier, int index) {
+        if(deckSizes[tier - 1] > 0)
+            setCard(4 * (tier - 1) + index, decks[tier - 1][-- deckSizes[tier - 1]]);
+        else
+            removeCard(4 * (tier - 1), marketSizes, tier - 1, index);
+    }
+
+    private void setCard(int slot, int card) {
+        cards[slot] = card;
+        costs[slot] = PACKED_COSTS[card];
+    }
+
+    // Removes the card at index of the list of slots starting at offset, shifting the cards after it
+    private void removeCard(int offset, int[] sizes, int list, int index) {
+        System.arraycopy(cards, offset + index + 1, cards, offset + index, sizes[list] - index - 1);
+        System.arraycopy(costs, offset + index + 1, costs, offset + index, sizes[list] - index - 1);
+        sizes[list] --;
+    }
+
+    // Returns the index of the n-th set bit of the mask, counting from 0
+    private static int selectBit(int mask, int n) {
+        for(int i = 0; i < n; i ++)
+            mask &= mask - 1;
+        return Integer.numberOfTrailingZeros(mask);
+    }
+
+    private void loadCards(ArrayList<DevelopmentCard> list, int offset, int[] sizes, int index) {
+        for(int i = 0; i < list.size(); i ++)
+            setCard(offset + i, list.get(i).getId());
+        sizes[index] = list.size();
+    }
+
+    private void loadDeck(CardDeck deck, int tier) {
+        deckSizes[tier - 1] = deck.getSize();
+        for(int i = 0; i < deck.getSize(); i ++)
+            decks[tier - 1][i] = deck.getCard(i).getId();
+    }
+}
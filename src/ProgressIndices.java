@@ -0,0 +1,233 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// Indices measuring how close each player is to buying the cards in the market and in their reserve, and to attracting
+// the nobles in play, as used by MinimaxAgent's heuristic. GameState updates them as it changes, so reading an index
+// takes constant time
+// For each player and each card slot (12 market slots, (tier - 1) * 4 + index, then 3 reserve slots), the indices keep
+// the cost and point value of the card and the number of colored tokens the player lacks to buy it, ignoring gold.
+// A move only updates the slots whose card it changes, or whose card costs tokens of a color the move gives to or
+// takes from the player. The slots also tell which cards the player can afford (see ThreatDetector)
+// The market and reserve indices are the sums of pointValue / (tokensNeeded + 1) over the cards, where gold makes up
+// for missing tokens, and the noble index is the sum of 1 / (cardsNeeded + 1) over the nobles. Each slot keeps its
+// term, and the getters add the terms up in the order of the slots, the order in which the cards were summed when the
+// indices were computed from the state, so that the indices are the same to the last bit
+public class ProgressIndices {
+    public static final int SLOTS = 15, RESERVE_SLOT = 12;
+
+    // Slots hold the cost of the card in bits 0-19 (4 bits per color), its point value in bits 20-23, the tokens the
+    // player lacks in bits 24-28 and the color of its bonus in bits 29-31. Empty slots are 0, and add nothing to the
+    // indices
+    private static final int POINTS_SHIFT = 20, LACKING_SHIFT = 24, BONUS_SHIFT = 29;
+
+    // Term of a card in its index, by point value and number of tokens needed
+    private static final double[][] TERMS = new double[16][64];
+
+    static {
+        for(int points = 0; points < 16; points ++)
+            for(int tokensNeeded = 0; tokensNeeded < 64; tokensNeeded ++)
+                TERMS[points][tokensNeeded] = 1.0 * points / (tokensNeeded + 1);
+    }
+
+    // Slots of each player (index player - 1), the term of each slot, and the noble index of each player
+    private final int[] slots = new int[2 * SLOTS];
+    private final double[] terms = new double[2 * SLOTS];
+    private final double[] nobleIndices = new double[2];
+
+    // Computes all the indices of the state from scratch
+    public void compute(GameState state) {
+        Arrays.fill(slots, 0);
+        Arrays.fill(terms, 0);
+        for(int player = 1; player <= 2; player ++) {
+            for(int slot = 0; slot < SLOTS; slot ++)
+                refreshSlot(state, player, slot);
+            refreshNobles(state, player);
+        }
+    }
+
+    public void copyFrom(ProgressIndices indices) {
+        System.arraycopy(indices.slots, 0, slots, 0, slots.length);
+        System.arraycopy(indices.terms, 0, terms, 0, terms.length);
+        System.arraycopy(indices.nobleIndices, 0, nobleIndices, 0, nobleIndices.length);
+    }
+
+    // Updates the indices after the player received amount tokens of the color, or gave them back if amount is negative
+    public void tokensChanged(GameState state, int player, int color, int amount) {
+        int gold = getTokens(state, player)[5];
+        if(color == 5) {
+            // Gold changes how many tokens every card needs, but not how many colored tokens are lacking
+            for(int i = (player - 1) * SLOTS; i < player * SLOTS; i ++)
+                terms[i] = getTerm(slots[i], gold);
+        }
+        else
+            colorChanged(state, player, color, amount, gold);
+    }
+
+    // Updates the indices after the player received a card with a bonus of the given color
+    public void bonusAdded(GameState state, int player, int color) {
+        colorChanged(state, player, color, 1, getTokens(state, player)[5]);
+        refreshNobles(state, player);
+    }
+
+    // Updates the indices after the card in a market slot was replaced
+    public void marketSlotChanged(GameState state, int tier, int index) {
+        refreshSlot(state, 1, (tier - 1) * 4 + index);
+        refreshSlot(state, 2, (tier - 1) * 4 + index);
+    }
+
+    // Updates the indices after cards of a tier of the market were removed or inserted, shifting the others
+    public void marketChanged(GameState state, int tier) {
+        for(int index = 0; index < 4; index ++)
+            marketSlotChanged(state, tier, index);
+    }
+
+    // Updates the indices after cards were added to or removed from the player's reserve
+    public void reserveChanged(GameState state, int player) {
+        for(int slot = RESERVE_SLOT; slot < SLOTS; slot ++)
+            refreshSlot(state, player, slot);
+    }
+
+    // Updates the indices after nobles were removed or added
+    public void noblesChanged(GameState state) {
+        refreshNobles(state, 1);
+        refreshNobles(state, 2);
+    }
+
+    public double getBuyFromMarketIndex(int player) {
+        return sumTerms(player, 0, RESERVE_SLOT);
+    }
+
+    public double getBuyFromReserveIndex(int player) {
+        return sumTerms(player, RESERVE_SLOT, SLOTS);
+    }
+
+    public double getAttractNobleIndex(int player) {
+        return nobleIndices[player - 1];
+    }
+
+    // Returns the slots holding a card the player can afford with their tokens, bonuses and the given number of gold
+    // tokens, one bit per slot
+    public int getAffordableSlots(int player, int gold) {
+        int affordableSlots = 0;
+        for(int slot = 0; slot < SLOTS; slot ++) {
+            int value = slots[(player - 1) * SLOTS + slot];
+            if(value != 0 && (value >>> LACKING_SHIFT & 0x1F) <= gold)
+                affordableSlots |= 1 << slot;
+        }
+        return affordableSlots;
+    }
+
+    // Point value of the card in the slot, or 0 if the slot is empty
+    public int getPoints(int player, int slot) {
+        return slots[(player - 1) * SLOTS + slot] >>> POINTS_SHIFT & 0xF;
+    }
+
+    // Color index of the bonus of the card in the slot, or 0 if the slot is empty
+    public int getBonusColor(int player, int slot) {
+        return slots[(player - 1) * SLOTS + slot] >>> BONUS_SHIFT;
+    }
+
+    // Two sets of indices are equal if they hold the same slots, terms and noble indices
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ProgressIndices indices && Arrays.equals(slots, indices.slots) &&
+                Arrays.equals(terms, indices.terms) && Arrays.equals(nobleIndices, indices.nobleIndices);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(slots);
+    }
+
+    // Updates the slots whose card costs tokens of the color, after the player's tokens or bonuses of the color
+    // increased by amount
+    private void colorChanged(GameState state, int player, int color, int amount, int gold) {
+        int owned = getTokens(state, player)[color] + getCards(state, player)[color];
+        int previouslyOwned = owned - amount;
+        for(int slot = 0; slot < SLOTS; slot ++) {
+            int i = (player - 1) * SLOTS + slot;
+            int value = slots[i];
+            int cost = value >>> (4 * color) & 0xF;
+            int change = Math.max(cost - owned, 0) - Math.max(cost - previouslyOwned, 0);
+            if(change != 0) {
+                slots[i] = value + (change << LACKING_SHIFT);
+                terms[i] = getTerm(slots[i], gold);
+            }
+        }
+    }
+
+    private void refreshSlot(GameState state, int player, int slot) {
+        int i = (player - 1) * SLOTS + slot;
+        int[] tokens = getTokens(state, player);
+        DevelopmentCard card = getCard(state, player, slot);
+
+        int value = 0;
+        if(card != null) {
+            int[] cards = getCards(state, player);
+            int[] cost = card.getCostArray();
+            int lacking = 0;
+            for(int color = 0; color < 5; color ++) {
+                lacking += Math.max(cost[color] - tokens[color] - cards[color], 0);
+                value |= cost[color] << (4 * color);
+            }
+            value |= card.getPointValue() << POINTS_SHIFT | lacking << LACKING_SHIFT |
+                    card.getBonusColor().getIndex() << BONUS_SHIFT;
+        }
+
+        slots[i] = value;
+        terms[i] = getTerm(value, tokens[5]);
+    }
+
+    private void refreshNobles(GameState state, int player) {
+        int[] cards = getCards(state, player);
+        double attractNobleIndex = 0;
+        for(NobleTile noble : state.getNoblesMarket()) {
+            int cardsNeeded = 0;
+            for(int color = 0; color < 5; color ++)
+                cardsNeeded += Math.max(noble.getRequiredArray()[color] - cards[color], 0);
+            attractNobleIndex += 1.0 / (cardsNeeded + 1);
+        }
+        nobleIndices[player - 1] = attractNobleIndex;
+    }
+
+    // Term of the card of a slot in its index, for a player holding the given number of gold tokens
+    private static double getTerm(int value, int gold) {
+        int tokensNeeded = Math.max((value >>> LACKING_SHIFT & 0x1F) - gold, 0);
+        return TERMS[value >>> POINTS_SHIFT & 0xF][Math.min(tokensNeeded, 63)];
+    }
+
+    // Sum of the terms of the player's slots from firstSlot to lastSlot - 1, added up in order
+    private double sumTerms(int player, int firstSlot, int lastSlot) {
+        double sum = 0;
+        for(int i = (player - 1) * SLOTS + firstSlot; i < (player - 1) * SLOTS + lastSlot; i ++)
+            sum += terms[i];
+        return sum;
+    }
+
+    // Returns the card in the slot, or null if the slot is empty
+    private static DevelopmentCard getCard(GameState state, int player, int slot) {
+        ArrayList<DevelopmentCard> cards;
+        int index;
+        if(slot >= RESERVE_SLOT) {
+            cards = player == 1 ? state.getPlayer1Reserve() : state.getPlayer2Reserve();
+            index = slot - RESERVE_SLOT;
+        }
+        else {
+            cards = switch(slot / 4) {
+                case 0 -> state.getTier1Market();
+                case 1 -> state.getTier2Market();
+                default -> state.getTier3Market();
+            };
+            index = slot % 4;
+        }
+        return index < cards.size() ? cards.get(index) : null;
+    }
+
+    private static int[] getTokens(GameState state, int player) {
+        return player == 1 ? state.getPlayer1Tokens() : state.getPlayer2Tokens();
+    }
+
+    private static int[] getCards(GameState state, int player) {
+        return player == 1 ? state.getPlayer1Cards() : state.getPlayer2Cards();
+    }
+}
@@ -6,8 +6,6 @@ public class RandomMoveAgent extends Agent {
         if(availableMoves.isEmpty())
             return null;
 
-        int numberAvailableMoves = availableMoves.size();
-        int chosenMoveIndex = (int)Math.floor(Math.random() * numberAvailableMoves);
-        return availableMoves.get(chosenMoveIndex);
+        return availableMoves.get(random.nextInt(availableMoves.size()));
     }
 }
@@ -0,0 +1,242 @@
+import java.util.Arrays;
+
+// Counts of the work done by the searches of a MinimaxAgent, either for a single decision or added up over several
+// (see MinimaxAgent.getLastSearchStatistics() and getGameStatistics())
+// The counters are plain fields, incremented by the thread running the search: the searchers of a parallel search
+// each count on their own, and their statistics are added to those of the agent once they are done
+public class SearchStatistics {
+    // Column names of the rows written by toCsvRow()
+    public static final String CSV_HEADER = "decisions,plies,elapsedNanos,visitedNodes,nodesPerSecond,expandedNodes," +
+            "leafEvaluations,chanceNodes,chanceOutcomes,cutoffNodes,firstMoveCutoffNodes,stateCopies,nodesPerPly";
+
+    // Nodes visited at each ply, the root being at ply 1 (index 0 is unused)
+    private long[] nodesPerPly = new long[0];
+
+    // Nodes whose moves were searched, and nodes evaluated by the heuristic
+    private long expandedNodes, leafEvaluations;
+
+    // Moves searched as chance nodes, with more than one card that could be drawn, and number of resulting states
+    // sampled for search at those nodes
+    private long chanceNodes, chanceOutcomes;
+
+    // Nodes whose remaining moves were cut off by alpha-beta pruning, in total and by the first move searched
+    private long cutoffNodes, firstMoveCutoffNodes;
+
+    // GameState copies made by the search and by the heuristic
+    private long stateCopies;
+
+    // Number of decisions counted, wall-clock time they took, and number of plies of the deepest completed search
+    private int decisions;
+    private long elapsedNanos;
+    private int plies;
+
+    public void reset() {
+        Arrays.fill(nodesPerPly, 0);
+        expandedNodes = leafEvaluations = chanceNodes = chanceOutcomes = 0;
+        cutoffNodes = firstMoveCutoffNodes = stateCopies = 0;
+        decisions = plies = 0;
+        elapsedNanos = 0;
+    }
+
+    /**
+     * Adds the counts of other to these. The number of plies becomes the deepest of the two
+     */
+    public void add(final SearchStatistics other) {
+        reservePlies(other.nodesPerPly.length - 1);
+        for(int p = 0; p < other.nodesPerPly.length; p ++)
+            nodesPerPly[p] += other.nodesPerPly[p];
+        expandedNodes += other.expandedNodes;
+        leafEvaluations += other.leafEvaluations;
+        chanceNodes += other.chanceNodes;
+        chanceOutcomes += other.chanceOutcomes;
+        cutoffNodes += other.cutoffNodes;
+        firstMoveCutoffNodes += other.firstMoveCutoffNodes;
+        stateCopies += other.stateCopies;
+        decisions += other.decisions;
+        elapsedNanos += other.elapsedNanos;
+        plies = Math.max(plies, other.plies);
+    }
+
+    // Makes room for the counts of a search of the given number of plies
+    void reservePlies(int plyNumber) {
+        if(plyNumber >= nodesPerPly.length)
+            nodesPerPly = Arrays.copyOf(nodesPerPly, plyNumber + 1);
+    }
+
+    // Counting, called by the search. The node counts of a ply must have been reserved
+    void countNode(int currentPly) {
+        nodesPerPly[currentPly] ++;
+    }
+
+    void countExpansion() {
+        expandedNodes ++;
+    }
+
+    void countLeafEvaluation() {
+        leafEvaluations ++;
+    }
+
+    void countChanceNode(int numberOutcomes) {
+        chanceNodes ++;
+        chanceOutcomes += numberOutcomes;
+    }
+
+    void countCutoff(boolean firstMove) {
+        cutoffNodes ++;
+        if(firstMove)
+            firstMoveCutoffNodes ++;
+    }
+
+    void countStateCopy() {
+        stateCopies ++;
+    }
+
+    // Records a completed decision, which took the given time and searched the given number of plies
+    void countDecision(long nanos, int plyNumber) {
+        decisions ++;
+        elapsedNanos += nanos;
+        plies = Math.max(plies, plyNumber);
+    }
+
+    /**
+     * @return number of nodes visited, including leaves and positions found in the transposition table
+     */
+    public long getVisitedNodes() {
+        long visitedNodes = 0;
+        for(long nodes : nodesPerPly)
+            visitedNodes += nodes;
+        return visitedNodes;
+    }
+
+    /**
+     * @param ply - ply of the search, 1 being the root
+     * @return number of nodes visited at the ply, over all iterations of an iterative deepening search
+     */
+    public long getVisitedNodes(int ply) {
+        return ply < nodesPerPly.length ? nodesPerPly[ply] : 0;
+    }
+
+    /**
+     * @return number of nodes whose moves were searched
+     */
+    public long getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    /**
+     * @return number of nodes evaluated by the heuristic
+     */
+    public long getLeafEvaluations() {
+        return leafEvaluations;
+    }
+
+    /**
+     * @return number of moves searched as chance nodes, which can draw more than one card
+     */
+    public long getChanceNodes() {
+        return chanceNodes;
+    }
+
+    /**
+     * @return number of states sampled for search at chance nodes; divided by getChanceNodes(), the average number of
+     * outcomes searched per chance node
+     */
+    public long getChanceOutcomes() {
+        return chanceOutcomes;
+    }
+
+    /**
+     * @return number of nodes whose remaining moves were cut off by alpha-beta pruning; divided by
+     * getExpandedNodes(), the cutoff rate
+     */
+    public long getCutoffNodes() {
+        return cutoffNodes;
+    }
+
+    /**
+     * @return number of nodes cut off by the first move searched; divided by getCutoffNodes(), the rate at which the
+     * move ordering finds a refutation first
+     */
+    public long getFirstMoveCutoffNodes() {
+        return firstMoveCutoffNodes;
+    }
+
+    /**
+     * @return number of copies of the GameState made by the search and the heuristic
+     */
+    public long getStateCopies() {
+        return stateCopies;
+    }
+
+    /**
+     * @return number of decisions counted
+     */
+    public int getDecisions() {
+        return decisions;
+    }
+
+    /**
+     * @return wall-clock time taken by the decisions, in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return number of plies of the deepest search completed
+     */
+    public int getPlies() {
+        return plies;
+    }
+
+    /**
+     * @return nodes visited per second of wall-clock time, over all search threads
+     */
+    public double getNodesPerSecond() {
+        return elapsedNanos > 0 ? getVisitedNodes() * 1e9 / elapsedNanos : 0;
+    }
+
+    /**
+     * @return the statistics as a JSON object, with the nodes visited per ply as an array starting at ply 1
+     */
+    public String toJson() {
+        return "{\"decisions\":" + decisions + ",\"plies\":" + plies + ",\"elapsedNanos\":" + elapsedNanos +
+                ",\"visitedNodes\":" + getVisitedNodes() + ",\"nodesPerSecond\":" + Math.round(getNodesPerSecond()) +
+                ",\"expandedNodes\":" + expandedNodes + ",\"leafEvaluations\":" + leafEvaluations +
+                ",\"chanceNodes\":" + chanceNodes + ",\"chanceOutcomes\":" + chanceOutcomes +
+                ",\"cutoffNodes\":" + cutoffNodes + ",\"firstMoveCutoffNodes\":" + firstMoveCutoffNodes +
+                ",\"stateCopies\":" + stateCopies + ",\"nodesPerPly\":[" + joinNodesPerPly(",") + "]}";
+    }
+
+    /**
+     * @return the statistics as a line of comma-separated values, in the order of CSV_HEADER, with the nodes visited
+     * per ply separated by spaces in the last column
+     */
+    public String toCsvRow() {
+        return decisions + "," + plies + "," + elapsedNanos + "," + getVisitedNodes() + "," +
+                Math.round(getNodesPerSecond()) + "," + expandedNodes + "," + leafEvaluations + "," + chanceNodes +
+                "," + chanceOutcomes + "," + cutoffNodes + "," + firstMoveCutoffNodes + "," + stateCopies + "," +
+                joinNodesPerPly(" ");
+    }
+
+    @Override
+    public String toString() {
+        return getVisitedNodes() + " nodes in " + elapsedNanos / 1000000 + " ms (" + Math.round(getNodesPerSecond()) +
+                " nodes/s, " + plies + " plies), " + leafEvaluations + " leaves, " + chanceNodes + " chance nodes, " +
+                cutoffNodes + " cutoffs, " + stateCopies + " state copies";
+    }
+
+    // Nodes visited per ply from ply 1 to the deepest ply reached, separated by the delimiter
+    private String joinNodesPerPly(String delimiter) {
+        int deepestPly = nodesPerPly.length - 1;
+        while(deepestPly > 0 && nodesPerPly[deepestPly] == 0)
+            deepestPly --;
+        StringBuilder nodes = new StringBuilder();
+        for(int p = 1; p <= deepestPly; p ++) {
+            if(p > 1)
+                nodes.append(delimiter);
+            nodes.append(nodesPerPly[p]);
+        }
+        return nodes.toString();
+    }
+}
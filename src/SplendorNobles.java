@@ -1,5 +1,6 @@
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.random.RandomGenerator;
 
 // Collection of Nobles, as represented in the game of Splendor, in a random order
 // Provides methods for extracting 3, 4, or 5 nobles, for use in a game of Splendor
@@ -7,21 +8,22 @@ public class SplendorNobles {
     private ArrayList<NobleTile> nobleTilesArray;
 
     public SplendorNobles() {
-        nobleTilesArray = new ArrayList<>();
-        nobleTilesArray.add(new NobleTile("Mary Stuart", new int[]{0,0,4,4,0}));
-        nobleTilesArray.add(new NobleTile("Charles Quint", new int[]{3,0,0,3,3}));
-        nobleTilesArray.add(new NobleTile("Macchiavelli", new int[]{0,4,0,0,4}));
-        nobleTilesArray.add(new NobleTile("Isabel of Castille", new int[]{4,0,0,0,4}));
-        nobleTilesArray.add(new NobleTile("Soliman the Magnificent", new int[]{0,4,4,0,0}));
-        nobleTilesArray.add(new NobleTile("Catherine of Medicis", new int[]{0,3,3,3,0}));
-        nobleTilesArray.add(new NobleTile("Anne of Brittany", new int[]{0,3,3,0,3}));
-        nobleTilesArray.add(new NobleTile("Henri VIII", new int[]{4,0,0,4,0}));
-        nobleTilesArray.add(new NobleTile("Elisabeth of Austria", new int[]{3,3,0,0,3}));
-        nobleTilesArray.add(new NobleTile("Francis I of France", new int[]{3,0,3,3,0}));
-
+        nobleTilesArray = new ArrayList<>(CardCatalog.getNobles());
         Collections.shuffle(nobleTilesArray);
     }
 
+    // Nobles shuffled with the given source of randomness
+    public SplendorNobles(RandomGenerator random) {
+        nobleTilesArray = new ArrayList<>(CardCatalog.getNobles());
+        for(int i = nobleTilesArray.size() - 1; i > 0; i --)
+            Collections.swap(nobleTilesArray, i, random.nextInt(i + 1));
+    }
+
+    // Returns all 10 noble tiles, in their current order
+    public ArrayList<NobleTile> getNobleTiles() {
+        return new ArrayList<>(nobleTilesArray);
+    }
+
     // Extracts k Noble tiles (2<k<6) and returns an array containing the tiles; Returns null if k is invalid
     public NobleTile[] extract(int k) {
         return switch (k) {
@@ -0,0 +1,102 @@
+// Detects whether a player can reach a score with a single purchase, as MinimaxAgent's heuristic needs to know when
+// the game is about to end, without building states or BuyCardMoves
+// Purchases are read from the slots the player can afford (see ProgressIndices: 12 market slots, (tier - 1) * 4 +
+// index, then 3 reserve slots) and from the nobles the bonus of each card would attract. A purchase gains the point
+// value of the card, and 3 points if it attracts a noble
+public class ThreatDetector {
+    // Value returned by getMaxPoints() when the player cannot buy any card
+    public static final int NO_PURCHASE = -1;
+
+    // Slots in the order in which Agent generates BuyCardMoves: the reserve, then the market by tier
+    private static final int[] SLOT_ORDER = {12, 13, 14, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11};
+
+    // Largest number of points gained by the purchases examined by the last call to findWinningPurchase()
+    private int maxPointsExamined;
+
+    // Returns the largest number of points the player can gain by buying a card, or NO_PURCHASE if they cannot buy
+    // any. Cards in excludedSlots and nobles in excludedNobles (one bit per index in the nobles market) are ignored
+    public int getMaxPoints(GameState state, int player, int excludedSlots, int excludedNobles) {
+        if(state.isGameOver())
+            return NO_PURCHASE;
+
+        ProgressIndices indices = state.getProgressIndices();
+        int affordableSlots = indices.getAffordableSlots(player, getTokens(state, player)[5]) & ~excludedSlots;
+        int attractedNobles = state.getNobleTriggers(player);
+
+        int maxPoints = NO_PURCHASE;
+        for(int slot = 0; slot < ProgressIndices.SLOTS; slot ++)
+            if((affordableSlots & 1 << slot) != 0) {
+                int nobles = attractedNobles >>> 5 * indices.getBonusColor(player, slot) & 0x1F & ~excludedNobles;
+                maxPoints = Math.max(maxPoints, indices.getPoints(player, slot) + (nobles != 0 ? 3 : 0));
+            }
+        return maxPoints;
+    }
+
+    // Looks for a purchase bringing the player from score to 15 points or more. If opponentHasLastTurn, the purchase
+    // only wins if the opponent cannot then match the player's new score from opponentScore by buying a card other
+    // than the one replacing the purchased card in the market
+    // Purchases are examined in the order in which Agent generates BuyCardMoves, one per noble they can attract, up to
+    // the first winning one; getMaxPointsExamined() then returns the largest number of points they gain
+    public boolean findWinningPurchase(GameState state, int player, int score, int opponentScore,
+                                       boolean opponentHasLastTurn) {
+        maxPointsExamined = NO_PURCHASE;
+        if(state.isGameOver())
+            return false;
+
+        ProgressIndices indices = state.getProgressIndices();
+        int affordableSlots = indices.getAffordableSlots(player, getTokens(state, player)[5]);
+        if(affordableSlots == 0)
+            return false;
+        int attractedNobles = state.getNobleTriggers(player);
+
+        int opponent = 3 - player;
+
+        for(int nobleIndex = -1; nobleIndex < state.getNoblesMarket().size(); nobleIndex ++)
+            for(int slot : SLOT_ORDER) {
+                if((affordableSlots & 1 << slot) == 0)
+                    continue;
+
+                // A purchase must choose a noble if it attracts any
+                int nobles = attractedNobles >>> 5 * indices.getBonusColor(player, slot) & 0x1F;
+                if(nobleIndex < 0 ? nobles != 0 : (nobles & 1 << nobleIndex) == 0)
+                    continue;
+
+                int points = indices.getPoints(player, slot) + (nobleIndex < 0 ? 0 : 3);
+                maxPointsExamined = Math.max(maxPointsExamined, points);
+                if(score + points < 15)
+                    continue;
+                if(!opponentHasLastTurn)
+                    return true;
+
+                // The card drawn to replace a market card is not available to the opponent. If the deck is empty, the
+                // market shifts instead, and the card moving into the slot is not available either
+                int excludedSlots = 0;
+                if(slot < ProgressIndices.RESERVE_SLOT) {
+                    excludedSlots = 1 << slot;
+                    if(getDeck(state, slot / 4 + 1).isEmpty() && slot % 4 < 3)
+                        excludedSlots |= 1 << slot + 1;
+                }
+                int opponentPoints = getMaxPoints(state, opponent, excludedSlots, nobleIndex < 0 ? 0 : 1 << nobleIndex);
+                if(opponentPoints == NO_PURCHASE || opponentScore + opponentPoints < score + points)
+                    return true;
+            }
+
+        return false;
+    }
+
+    public int getMaxPointsExamined() {
+        return maxPointsExamined;
+    }
+
+    private static int[] getTokens(GameState state, int player) {
+        return player == 1 ? state.getPlayer1Tokens() : state.getPlayer2Tokens();
+    }
+
+    private static CardDeck getDeck(GameState state, int tier) {
+        return switch(tier) {
+            case 1 -> state.getTier1Deck();
+            case 2 -> state.getTier2Deck();
+            default -> state.getTier3Deck();
+        };
+    }
+}
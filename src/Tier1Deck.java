@@ -1,57 +1,25 @@
+import java.util.List;
+import java.util.random.RandomGenerator;
 
 // A deck of development cards, initialized to contain all Tier 1 cards in Splendor, in random order
 public class Tier1Deck extends CardDeck {
     public Tier1Deck() {
-        super();
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.BLACK, new int[]{0,1,1,1,1}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.BLACK, new int[]{0,2,1,1,1}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.BLACK, new int[]{0,2,0,1,2}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.BLACK, new int[]{1,0,1,3,0}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.BLACK, new int[]{0,0,2,1,0}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.BLACK, new int[]{0,0,2,0,2}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.BLACK, new int[]{0,0,3,0,0}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.BLACK, new int[]{0,4,0,0,0}, 1));
-
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.BLUE, new int[]{1,0,1,1,1}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.BLUE, new int[]{1,0,1,2,1}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.BLUE, new int[]{0,0,2,2,1}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.BLUE, new int[]{0,1,3,1,0}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.BLUE, new int[]{2,0,0,0,1}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.BLUE, new int[]{2,0,2,0,0}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.BLUE, new int[]{3,0,0,0,0}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.BLUE, new int[]{0,0,0,4,0}, 1));
-
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.GREEN, new int[]{1,1,0,1,1}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.GREEN, new int[]{2,1,0,1,1}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.GREEN, new int[]{2,1,0,2,0}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.GREEN, new int[]{0,3,1,0,1}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.GREEN, new int[]{0,1,0,0,2}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.GREEN, new int[]{0,2,0,2,0}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.GREEN, new int[]{0,0,0,3,0}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.GREEN, new int[]{4,0,0,0,0}, 1));
-
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.RED, new int[]{1,1,1,0,1}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.RED, new int[]{1,1,1,0,2}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.RED, new int[]{2,0,1,0,2}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.RED, new int[]{3,0,0,1,1}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.RED, new int[]{0,2,1,0,0}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.RED, new int[]{0,0,0,2,2}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.RED, new int[]{0,0,0,0,3}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.RED, new int[]{0,0,0,0,4}, 1));
+        super(CardCatalog.getTierCards(1));
+        this.shuffle();
+    }
 
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.WHITE, new int[]{1,1,1,1,0}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.WHITE, new int[]{1,1,2,1,0}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.WHITE, new int[]{1,2,2,0,0}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.WHITE, new int[]{1,1,0,0,3}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.WHITE, new int[]{1,0,0,2,0}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.WHITE, new int[]{2,2,0,0,0}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.WHITE, new int[]{0,3,0,0,0}));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.WHITE, new int[]{0,0,4,0,0}, 1));
+    // Tier 1 deck shuffled with the given source of randomness
+    public Tier1Deck(RandomGenerator random) {
+        super(CardCatalog.getTierCards(1));
+        this.shuffle(random);
+    }
 
-        this.shuffle();
+    // Tier 1 deck holding the given cards, in order; the last card in the list is the top of the deck
+    public Tier1Deck(List<DevelopmentCard> cards) {
+        super(cards);
     }
 
-    // Deep copy of a Tier1Deck objects
+    // Copy of a Tier1Deck object, sharing its cards
     public Tier1Deck(Tier1Deck deck) {
         super(deck);
     }
@@ -1,47 +1,25 @@
+import java.util.List;
+import java.util.random.RandomGenerator;
+
 // A deck of development cards, initialized to contain all Tier 2 cards in Splendor, in random order
 public class Tier2Deck extends CardDeck {
     public Tier2Deck() {
-        super();
-
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.BLACK, new int[]{0,2,2,0,3},1));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.BLACK, new int[]{2,0,3,0,3},1));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.BLACK, new int[]{0,1,4,2,0},2));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.BLACK, new int[]{0,0,5,3,0},2));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.BLACK, new int[]{0,0,0,0,5},2));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.BLACK, new int[]{6,0,0,0,0},3));
-
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.BLUE, new int[]{0,2,2,3,0},1));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.BLUE, new int[]{3,2,3,0,0},1));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.BLUE, new int[]{0,3,0,0,5},2));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.BLUE, new int[]{4,0,0,1,2},2));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.BLUE, new int[]{0,5,0,0,0},2));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.BLUE, new int[]{0,6,0,0,0},3));
-
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.GREEN, new int[]{0,0,2,3,3},1));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.GREEN, new int[]{2,3,0,0,2},1));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.GREEN, new int[]{1,2,0,0,4},2));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.GREEN, new int[]{0,5,3,0,0},2));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.GREEN, new int[]{0,0,5,0,0},2));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.GREEN, new int[]{0,0,6,0,0},3));
-
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.RED, new int[]{3,0,0,2,2},1));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.RED, new int[]{3,3,0,2,0},1));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.RED, new int[]{0,4,2,0,1},2));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.RED, new int[]{5,0,0,0,3},2));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.RED, new int[]{5,0,0,0,0},2));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.RED, new int[]{0,0,0,6,0},3));
+        super(CardCatalog.getTierCards(2));
+        this.shuffle();
+    }
 
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.WHITE, new int[]{2,0,3,2,0},1));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.WHITE, new int[]{0,3,0,3,2},1));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.WHITE, new int[]{2,0,1,4,0},2));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.WHITE, new int[]{3,0,0,5,0},2));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.WHITE, new int[]{0,0,0,5,0},2));
-        this.addCard(new DevelopmentCard(DevelopmentCard.Color.WHITE, new int[]{0,0,0,0,6},3));
+    // Tier 2 deck shuffled with the given source of randomness
+    public Tier2Deck(RandomGenerator random) {
+        super(CardCatalog.getTierCards(2));
+        this.shuffle(random);
+    }
 
-        this.shuffle();
+    // Tier 2 deck holding the given cards, in order; the last card in the list is the top of the deck
+    public Tier2Deck(List<DevelopmentCard> cards) {
+        super(cards);
     }
 
-    // Deep copy of a Tier2Deck objects
+    // Copy of a Tier2Deck object, sharing its cards
     public Tier2Deck(Tier2Deck deck) {
         super(deck);
     }
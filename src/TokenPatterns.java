@@ -0,0 +1,160 @@
+import java.util.Arrays;
+
+// Table of every way of taking tokens from the supply and of returning tokens to it, used to generate TakeTokensMoves
+// without building token arrays for each candidate
+// A (take, return) pair is encoded as a small int, holding the index of the take pattern and the index of the return
+// pattern. Patterns are 5-element arrays in the order black, blue, green, red, white; gold is never taken nor returned
+// The patterns are listed in the order in which moves have always been generated, so generating moves from the table
+// yields the same moves in the same order
+public final class TokenPatterns {
+    // Take patterns: 2 identical tokens, 1 token, 2 different tokens, 3 different tokens, and taking no tokens
+    public static final int TAKE_TWO_IDENTICAL = 0;
+    public static final int TAKE_ONE = 5;
+    public static final int TAKE_TWO_DIFFERENT = 10;
+    public static final int TAKE_THREE_DIFFERENT = 20;
+    public static final int TAKE_NONE = 30;
+    public static final int NUMBER_TAKE_PATTERNS = 31;
+
+    // Return pattern 0 returns nothing; returning n tokens uses patterns RETURN_FIRST[n] to RETURN_FIRST[n + 1] - 1
+    public static final int RETURN_NONE = 0;
+    public static final int[] RETURN_FIRST = {0, 1, 6, 21, 56};
+    public static final int NUMBER_RETURN_PATTERNS = 56;
+
+    // Largest number of TakeTokensMoves that can be available in a state: 2 identical tokens of any color and 3
+    // different tokens, each with any way of returning 2 or 3 tokens, and the move taking no tokens
+    public static final int MAX_MOVES = 5 * (RETURN_FIRST[3] - RETURN_FIRST[2]) +
+            10 * (RETURN_FIRST[4] - RETURN_FIRST[3]) + 1;
+
+    private static final int RETURN_BITS = 6;
+
+    private static final int[][] TAKE = new int[NUMBER_TAKE_PATTERNS][];
+    private static final int[][] RETURN = new int[NUMBER_RETURN_PATTERNS][];
+    private static final int[] TAKE_SIZE = new int[NUMBER_TAKE_PATTERNS];
+    // Colors taken by each take pattern, one bit per color
+    private static final int[] TAKE_MASK = new int[NUMBER_TAKE_PATTERNS];
+    // For each return pattern, the colors of which it returns at least 1, 2 and 3 tokens
+    private static final int[][] RETURN_MASKS = new int[NUMBER_RETURN_PATTERNS][3];
+
+    static {
+        int t = 0;
+        for(int i = 0; i < 5; i ++)
+            TAKE[t ++] = pattern(i, 2);
+        for(int i = 0; i < 5; i ++)
+            TAKE[t ++] = pattern(i, 1);
+        for(int i = 0; i < 4; i ++)
+            for(int j = i + 1; j < 5; j ++)
+                TAKE[t ++] = pattern(i, 1, j, 1);
+        for(int i = 0; i < 3; i ++)
+            for(int j = i + 1; j < 4; j ++)
+                for(int k = j + 1; k < 5; k ++)
+                    TAKE[t ++] = pattern(i, 1, j, 1, k, 1);
+        TAKE[t] = new int[5];
+
+        int r = 0;
+        RETURN[r ++] = new int[5];
+        // 1 token
+        for(int i = 0; i < 5; i ++)
+            RETURN[r ++] = pattern(i, 1);
+        // 2 identical tokens, then 2 different tokens
+        for(int i = 0; i < 5; i ++)
+            RETURN[r ++] = pattern(i, 2);
+        for(int i = 0; i < 4; i ++)
+            for(int j = i + 1; j < 5; j ++)
+                RETURN[r ++] = pattern(i, 1, j, 1);
+        // 3 identical tokens, then 2 tokens of one color and 1 of another, then 3 different tokens
+        for(int i = 0; i < 5; i ++)
+            RETURN[r ++] = pattern(i, 3);
+        for(int i = 0; i < 4; i ++) {
+            for(int j = i + 1; j < 5; j ++)
+                RETURN[r ++] = pattern(i, 1, j, 2);
+            for(int j = i + 1; j < 5; j ++)
+                RETURN[r ++] = pattern(i, 2, j, 1);
+        }
+        for(int i = 0; i < 3; i ++)
+            for(int j = i + 1; j < 4; j ++)
+                for(int k = j + 1; k < 5; k ++)
+                    RETURN[r ++] = pattern(i, 1, j, 1, k, 1);
+
+        for(int i = 0; i < NUMBER_TAKE_PATTERNS; i ++)
+            for(int color = 0; color < 5; color ++) {
+                TAKE_SIZE[i] += TAKE[i][color];
+                if(TAKE[i][color] > 0)
+                    TAKE_MASK[i] |= 1 << color;
+            }
+        for(int i = 0; i < NUMBER_RETURN_PATTERNS; i ++)
+            for(int color = 0; color < 5; color ++)
+                for(int n = 1; n <= RETURN[i][color]; n ++)
+                    RETURN_MASKS[i][n - 1] |= 1 << color;
+    }
+
+    private TokenPatterns() {
+    }
+
+    public static int encode(int takePattern, int returnPattern) {
+        return takePattern << RETURN_BITS | returnPattern;
+    }
+
+    public static int getTakePattern(int code) {
+        return code >>> RETURN_BITS;
+    }
+
+    public static int getReturnPattern(int code) {
+        return code & ((1 << RETURN_BITS) - 1);
+    }
+
+    // Returns the tokens taken by the move; the array is shared and must not be modified
+    public static int[] getTokensToTake(int code) {
+        return TAKE[getTakePattern(code)];
+    }
+
+    // Returns the tokens returned by the move; the array is shared and must not be modified
+    public static int[] getTokensToReturn(int code) {
+        return RETURN[getReturnPattern(code)];
+    }
+
+    public static TakeTokensMove toMove(int player, int code) {
+        return new TakeTokensMove(player, getTokensToTake(code), getTokensToReturn(code));
+    }
+
+    // Returns the index of the take pattern equal to the first 5 elements of tokensToTake, or -1 if there is none
+    public static int findTakePattern(int[] tokensToTake) {
+        return find(TAKE, tokensToTake);
+    }
+
+    // Returns the index of the return pattern equal to the first 5 elements of tokensToReturn, or -1 if there is none
+    public static int findReturnPattern(int[] tokensToReturn) {
+        return find(RETURN, tokensToReturn);
+    }
+
+    public static int getTakeSize(int takePattern) {
+        return TAKE_SIZE[takePattern];
+    }
+
+    // Colors taken by the take pattern, one bit per color
+    public static int getTakeMask(int takePattern) {
+        return TAKE_MASK[takePattern];
+    }
+
+    // Returns true if a player holding the given number of tokens of each color (one bit per color in atLeastOne,
+    // atLeastTwo and atLeastThree) can return the tokens of the return pattern
+    public static boolean canReturn(int returnPattern, int atLeastOne, int atLeastTwo, int atLeastThree) {
+        int[] masks = RETURN_MASKS[returnPattern];
+        return (masks[0] & ~atLeastOne) == 0 && (masks[1] & ~atLeastTwo) == 0 && (masks[2] & ~atLeastThree) == 0;
+    }
+
+    private static int find(int[][] patterns, int[] tokens) {
+        if(tokens.length < 5)
+            return -1;
+        for(int i = 0; i < patterns.length; i ++)
+            if(Arrays.equals(patterns[i], 0, 5, tokens, 0, 5))
+                return i;
+        return -1;
+    }
+
+    private static int[] pattern(int... colorsAndCounts) {
+        int[] pattern = new int[5];
+        for(int i = 0; i < colorsAndCounts.length; i += 2)
+            pattern[colorsAndCounts[i]] = colorsAndCounts[i + 1];
+        return pattern;
+    }
+}
@@ -0,0 +1,208 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+// Plays a series of games between two agents without any output, running several games at the same time
+// Every game gets its own GameState and its own agents, created by the given factories, so agents keeping search
+// records between moves never share them. Results are gathered in thread-safe counters
+public class Tournament {
+    private final Supplier<Agent> player1Factory, player2Factory;
+    private final int threads;
+
+    // Source of the seeds of the games, or null if the games are not seeded (see setSeed())
+    private SplittableRandom seeds;
+
+    // Log the games are recorded to, or null if they are not recorded (see setGameLog())
+    private GameRecordWriter gameLog;
+
+    private final AtomicInteger gamesPlayed = new AtomicInteger();
+    private final AtomicInteger player1Wins = new AtomicInteger();
+    private final AtomicInteger player2Wins = new AtomicInteger();
+    private final AtomicInteger draws = new AtomicInteger();
+    // Games abandoned because an agent made an illegal move or no move at all
+    private final AtomicInteger errors = new AtomicInteger();
+    // Games whose record could not be written to the log, and the first error writing one
+    private final AtomicInteger logErrors = new AtomicInteger();
+    private final AtomicReference<IOException> firstLogError = new AtomicReference<>();
+    // Sums of the turn numbers of the games won by each player
+    private final AtomicLong player1WinTurns = new AtomicLong();
+    private final AtomicLong player2WinTurns = new AtomicLong();
+    private long elapsedMillis;
+
+    public Tournament(Supplier<Agent> player1Factory, Supplier<Agent> player2Factory, int threads) {
+        this.player1Factory = player1Factory;
+        this.player2Factory = player2Factory;
+        this.threads = Math.max(threads, 1);
+    }
+
+    // Makes the games the same on every run: each game draws its own seed, in the order in which the games are
+    // started, and sets up its GameState and seeds its agents from it. Agents searching with a time budget or on
+    // several threads can still play differently from run to run
+    public void setSeed(long seed) {
+        seeds = new SplittableRandom(seed);
+    }
+
+    // Records every game to the log once it is over, including the games abandoned after an illegal move, which have
+    // no winner. A game whose record cannot be written still counts towards the results, and is counted in
+    // getLogErrors()
+    public void setGameLog(GameRecordWriter gameLog) {
+        this.gameLog = gameLog;
+    }
+
+    // Plays the given number of games, returning once all of them are over
+    // Results add up over several calls
+    public void run(int numberOfGames) throws InterruptedException {
+        long startTime = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            ArrayList<Future<?>> games = new ArrayList<>();
+            for(int i = 0; i < numberOfGames; i ++) {
+                SplittableRandom gameRandom = seeds != null ? seeds.split() : null;
+                games.add(executor.submit(() -> playGame(gameRandom)));
+            }
+            for(Future<?> game : games) {
+                try {
+                    game.get();
+                }
+                catch(ExecutionException e) {
+                    // An agent failed; the game is counted as an error
+                    errors.incrementAndGet();
+                    gamesPlayed.incrementAndGet();
+                }
+            }
+        }
+        finally {
+            executor.shutdownNow();
+            elapsedMillis += System.currentTimeMillis() - startTime;
+        }
+    }
+
+    // Plays a single game and records its result
+    // random seeds the game and its agents, or is null for an unseeded game
+    private void playGame(SplittableRandom random) {
+        GameState state = random != null ? new GameState(random) : new GameState();
+        Agent agent1 = player1Factory.get();
+        Agent agent2 = player2Factory.get();
+        if(random != null) {
+            agent1.setSeed(random.nextLong());
+            agent2.setSeed(random.nextLong());
+        }
+
+        GameRecord record = gameLog != null ? new GameRecord(state) : null;
+
+        while(!state.isGameOver()) {
+            Move move = state.getPlayerToMove() == 1 ? agent1.generateMove(state) : agent2.generateMove(state);
+            if(move == null || state.handleMove(move) == null) {
+                errors.incrementAndGet();
+                gamesPlayed.incrementAndGet();
+                writeRecord(record);
+                return;
+            }
+            if(record != null)
+                record.addMove(move);
+        }
+
+        switch(state.getWinner()) {
+            case 1 -> {
+                player1Wins.incrementAndGet();
+                player1WinTurns.addAndGet(state.getTurnNumber());
+            }
+            case 2 -> {
+                player2Wins.incrementAndGet();
+                player2WinTurns.addAndGet(state.getTurnNumber());
+            }
+            default -> draws.incrementAndGet();
+        }
+        gamesPlayed.incrementAndGet();
+
+        if(record != null)
+            record.setWinner(state.getWinner());
+        writeRecord(record);
+    }
+
+    // Writes the record of a game to the log, if the games are recorded, counting it in logErrors if it cannot be
+    // written
+    private void writeRecord(GameRecord record) {
+        if(record == null)
+            return;
+        try {
+            gameLog.write(record);
+        }
+        catch(IOException e) {
+            logErrors.incrementAndGet();
+            firstLogError.compareAndSet(null, e);
+        }
+    }
+
+    // Getters
+
+    public int getGamesPlayed() {
+        return gamesPlayed.get();
+    }
+
+    public int getPlayer1Wins() {
+        return player1Wins.get();
+    }
+
+    public int getPlayer2Wins() {
+        return player2Wins.get();
+    }
+
+    public int getDraws() {
+        return draws.get();
+    }
+
+    public int getErrors() {
+        return errors.get();
+    }
+
+    // Number of games whose record could not be written to the game log
+    public int getLogErrors() {
+        return logErrors.get();
+    }
+
+    // First error writing a record to the game log, or null if every record was written
+    public IOException getFirstLogError() {
+        return firstLogError.get();
+    }
+
+    // Average turn number of the games won by the player, or 0 if they won none
+    public double getAverageWinTurns(int player) {
+        int wins = player == 1 ? player1Wins.get() : player2Wins.get();
+        long turns = player == 1 ? player1WinTurns.get() : player2WinTurns.get();
+        return wins == 0 ? 0 : (double) turns / wins;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getGamesPerSecond() {
+        return elapsedMillis == 0 ? 0 : gamesPlayed.get() * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        int games = Math.max(gamesPlayed.get(), 1);
+        String errorString = errors.get() == 0 ? "" : "There were " + errors.get() + " games abandoned after an illegal move.\n";
+        String logErrorString = logErrors.get() == 0 ? "" : "There were " + logErrors.get() +
+                " games that could not be recorded to the game log (" + firstLogError.get() + ").\n";
+        return "All " + gamesPlayed.get() + " games over! Player 1 won " + player1Wins.get() + " games (" +
+                player1Wins.get() * 100.0 / games + "%)\n" +
+                "Player 2 won " + player2Wins.get() + " games (" +
+                player2Wins.get() * 100.0 / games + "%)\n" +
+                "There were " + draws.get() + " draws.\n" + errorString + logErrorString +
+                "The average turn number for player 1 was " + getAverageWinTurns(1) + ".\n" +
+                "The average turn number for player 2 was " + getAverageWinTurns(2) + ".\n" +
+                "Total time for the games: " + elapsedMillis / 1000.0 + " seconds (" +
+                String.format("%.2f", getGamesPerSecond()) + " games per second, " + threads + " threads)";
+    }
+}
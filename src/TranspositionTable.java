@@ -0,0 +1,149 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+// Fixed-size table of search results, indexed by position key (see Zobrist), used by MinimaxAgent to avoid searching
+// the same position twice. All memory is allocated up front
+// Entries are grouped in buckets of two: the first slot keeps the deepest result seen for its bucket (unless it was
+// stored by an earlier search), the second slot is always replaced
+// Each entry holds the remaining search depth, the value, whether the value is exact or a bound, and the index of the
+// best move in the list of available moves
+// The table can be shared by several search threads without locking: each slot's key is stored XOR-ed with its value
+// and information, so an entry torn by concurrent writes fails the key check and reads as a miss
+public class TranspositionTable {
+    public static final int EXACT = 0;
+    public static final int LOWER_BOUND = 1;
+    public static final int UPPER_BOUND = 2;
+
+    // Bytes per entry: key, value and packed entry information
+    private static final int ENTRY_BYTES = 24;
+
+    // Flag marking used slots in the entry information
+    private static final long USED = 1L << 42;
+
+    // Keys XOR-ed into a position key, as the value of a position also depends on the player the search is run for
+    // and on whether the node maximizes or minimizes
+    private static final long PLAYER_TWO_KEY = 0x6A09E667F3BCC909L;
+    private static final long MINIMIZING_KEY = 0xBB67AE8584CAA73BL;
+
+    private final long[] keys;
+    private final long[] values;
+    // Bits 0-7 depth, 8-9 bound type, 10-25 best move index + 1, 26-41 generation, 42 set for used slots
+    private final long[] information;
+    private final int bucketMask;
+
+    private volatile int generation;
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder(), stores = new LongAdder();
+
+    // Copy of an entry, filled in by probe()
+    public static class Entry {
+        private int depth, bound, bestMove;
+        private double value;
+
+        public int getDepth() {
+            return depth;
+        }
+
+        public double getValue() {
+            return value;
+        }
+
+        public int getBound() {
+            return bound;
+        }
+
+        public int getBestMove() {
+            return bestMove;
+        }
+    }
+
+    // Allocates a table taking up at most the given number of megabytes (at least one bucket)
+    public TranspositionTable(int megabytes) {
+        long numberEntries = Math.max((long) megabytes * 1024 * 1024 / ENTRY_BYTES, 2);
+        int numberBuckets = Integer.highestOneBit((int) Math.min(numberEntries / 2, 1 << 28));
+
+        keys = new long[numberBuckets * 2];
+        values = new long[numberBuckets * 2];
+        information = new long[numberBuckets * 2];
+        bucketMask = numberBuckets - 1;
+    }
+
+    // Combines a position key with the root player of the search and the type of node
+    public static long key(long positionKey, int player, boolean maximizing) {
+        return positionKey ^ (player == 2 ? PLAYER_TWO_KEY : 0) ^ (maximizing ? 0 : MINIMIZING_KEY);
+    }
+
+    // Copies the entry for the key into the given entry and returns true, or returns false if there is none
+    public boolean probe(long key, Entry entry) {
+        int slot = ((int) key & bucketMask) << 1;
+        if(read(slot, key, entry) || read(slot + 1, key, entry)) {
+            hits.increment();
+            return true;
+        }
+        misses.increment();
+        return false;
+    }
+
+    // Stores a search result; bestMove is -1 if there is no best move (e.g. for leaf evaluations)
+    public void store(long key, int depth, double value, int bound, int bestMove) {
+        int slot = ((int) key & bucketMask) << 1;
+        long entry = (depth & 0xFF) | (long) bound << 8 | (long) ((bestMove + 1) & 0xFFFF) << 10 |
+                (long) generation << 26 | USED;
+        long valueBits = Double.doubleToRawLongBits(value);
+
+        // Replace the depth-preferred entry if the new result is at least as deep, is for the same position, or the
+        // old one is left over from an earlier search. Otherwise, use the always-replace slot
+        long oldEntry = information[slot];
+        if(oldEntry != 0 && (keys[slot] ^ values[slot] ^ oldEntry) != key && depth < (int) (oldEntry & 0xFF) &&
+                (int) (oldEntry >>> 26 & 0xFFFF) == generation)
+            slot ++;
+
+        keys[slot] = key ^ valueBits ^ entry;
+        values[slot] = valueBits;
+        information[slot] = entry;
+        stores.increment();
+    }
+
+    // Marks the start of a new search, so that entries of previous searches are replaced first
+    public void newSearch() {
+        generation = (generation + 1) & 0xFFFF;
+    }
+
+    // Removes all entries and resets the counters
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, 0);
+        Arrays.fill(information, 0);
+        hits.reset();
+        misses.reset();
+        stores.reset();
+    }
+
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getStores() {
+        return stores.sum();
+    }
+
+    private boolean read(int slot, long key, Entry entry) {
+        long information = this.information[slot];
+        long valueBits = values[slot];
+        if(information == 0 || (keys[slot] ^ valueBits ^ information) != key)
+            return false;
+
+        entry.depth = (int) information & 0xFF;
+        entry.bound = (int) (information >>> 8) & 3;
+        entry.bestMove = ((int) (information >>> 10) & 0xFFFF) - 1;
+        entry.value = Double.longBitsToDouble(valueBits);
+        return true;
+    }
+}
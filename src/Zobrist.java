@@ -0,0 +1,128 @@
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+// Zobrist keys for GameState positions
+// A position's key is the XOR of one random 64-bit key per (component, value) pair: supply and player token counts,
+// bonuses, scores, market slots, reserved cards, nobles in play, player to move and end-of-game flags. Since XOR is its
+// own inverse, GameState keeps its key up to date by XOR-ing out the key of a value it overwrites and XOR-ing in the key
+// of the new value. The keys are generated from a fixed seed, so they are the same in every run
+// Deck order and the turn counter are not part of the key
+public final class Zobrist {
+    private static final long SEED = 0x5B1E4D0C0FFEEL;
+
+    private static final long[][] SUPPLY_TOKENS = new long[6][16];
+    private static final long[][][] PLAYER_TOKENS = new long[2][6][16];
+    private static final long[][][] BONUSES = new long[2][5][32];
+    private static final long[][] SCORES = new long[2][64];
+    // Indexed by market slot ((tier - 1) * 4 + index) and card id
+    private static final long[][] MARKET_CARDS = new long[12][CardCatalog.NUMBER_CARDS];
+    private static final long[][] RESERVED_CARDS = new long[2][CardCatalog.NUMBER_CARDS];
+    private static final long[] NOBLES = new long[CardCatalog.NUMBER_NOBLES];
+
+    public static final long PLAYER_TWO_TO_MOVE;
+    public static final long LAST_TURN;
+    public static final long GAME_OVER;
+
+    static {
+        SplittableRandom random = new SplittableRandom(SEED);
+        fill(SUPPLY_TOKENS, random);
+        for(long[][] table : PLAYER_TOKENS)
+            fill(table, random);
+        for(long[][] table : BONUSES)
+            fill(table, random);
+        fill(SCORES, random);
+        fill(MARKET_CARDS, random);
+        fill(RESERVED_CARDS, random);
+        for(int i = 0; i < NOBLES.length; i ++)
+            NOBLES[i] = random.nextLong();
+        PLAYER_TWO_TO_MOVE = random.nextLong();
+        LAST_TURN = random.nextLong();
+        GAME_OVER = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    // Color index 0-5, in the order black, blue, green, red, white, gold
+    public static long supplyTokens(int color, int count) {
+        return SUPPLY_TOKENS[color][count & 15];
+    }
+
+    public static long playerTokens(int player, int color, int count) {
+        return PLAYER_TOKENS[player - 1][color][count & 15];
+    }
+
+    // Color index 0-4, in the order black, blue, green, red, white
+    public static long bonuses(int player, int color, int count) {
+        return BONUSES[player - 1][color][count & 31];
+    }
+
+    public static long score(int player, int score) {
+        return SCORES[player - 1][score & 63];
+    }
+
+    // Key of a card lying in the given slot (0-3) of the given tier's market
+    // Cards outside of the catalog (id -1) do not contribute to the key
+    public static long marketCard(int tier, int slot, DevelopmentCard card) {
+        return card.getId() < 0 ? 0 : MARKET_CARDS[(tier - 1) * 4 + slot][card.getId()];
+    }
+
+    // Key of a card in the player's reserve; the order of the reserve does not matter
+    public static long reservedCard(int player, DevelopmentCard card) {
+        return card.getId() < 0 ? 0 : RESERVED_CARDS[player - 1][card.getId()];
+    }
+
+    public static long noble(NobleTile tile) {
+        return tile.getId() < 0 ? 0 : NOBLES[tile.getId()];
+    }
+
+    // Combined key of all cards in a tier's market
+    public static long market(int tier, ArrayList<DevelopmentCard> market) {
+        long key = 0;
+        for(int i = 0; i < market.size(); i ++)
+            key ^= marketCard(tier, i, market.get(i));
+        return key;
+    }
+
+    // Computes the key of a state from scratch
+    public static long computeKey(GameState state) {
+        long key = 0;
+
+        for(int i = 0; i < 6; i ++) {
+            key ^= supplyTokens(i, state.getSupplyTokens()[i]);
+            key ^= playerTokens(1, i, state.getPlayer1Tokens()[i]);
+            key ^= playerTokens(2, i, state.getPlayer2Tokens()[i]);
+        }
+        for(int i = 0; i < 5; i ++) {
+            key ^= bonuses(1, i, state.getPlayer1Cards()[i]);
+            key ^= bonuses(2, i, state.getPlayer2Cards()[i]);
+        }
+        key ^= score(1, state.getPlayer1Score());
+        key ^= score(2, state.getPlayer2Score());
+
+        key ^= market(1, state.getTier1Market());
+        key ^= market(2, state.getTier2Market());
+        key ^= market(3, state.getTier3Market());
+        for(DevelopmentCard card : state.getPlayer1Reserve())
+            key ^= reservedCard(1, card);
+        for(DevelopmentCard card : state.getPlayer2Reserve())
+            key ^= reservedCard(2, card);
+        for(NobleTile tile : state.getNoblesMarket())
+            key ^= noble(tile);
+
+        if(state.getPlayerToMove() == 2)
+            key ^= PLAYER_TWO_TO_MOVE;
+        if(state.isLastTurn())
+            key ^= LAST_TURN;
+        if(state.isGameOver())
+            key ^= GAME_OVER;
+
+        return key;
+    }
+
+    private static void fill(long[][] table, SplittableRandom random) {
+        for(long[] row : table)
+            for(int i = 0; i < row.length; i ++)
+                row[i] = random.nextLong();
+    }
+}
@@ -0,0 +1,145 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GameLogIndexTest {
+    private static final int NUMBER_GAMES = 30;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void statesMatchRecordsAtEveryPly() throws IOException {
+        Path log = directory.resolve("games.log");
+        ArrayList<GameRecord> records = writeGames(log, NUMBER_GAMES);
+        for(int snapshotInterval : new int[] {1, 3, 16}) {
+            GameLogIndex index = GameLogIndex.build(log, directory.resolve("games.idx"), snapshotInterval);
+            assertEquals(snapshotInterval, index.getSnapshotInterval());
+            assertMatches(index, records);
+        }
+    }
+
+    @Test
+    void threadsReadAtTheSameTime() throws Exception {
+        Path log = directory.resolve("games.log");
+        ArrayList<GameRecord> records = writeGames(log, NUMBER_GAMES);
+        GameLogIndex index = GameLogIndex.build(log, directory.resolve("games.idx"), 4);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            ArrayList<Future<?>> readers = new ArrayList<>();
+            for(int thread = 0; thread < 4; thread ++)
+                readers.add(executor.submit(() -> {
+                    assertMatches(index, records);
+                    return null;
+                }));
+            for(Future<?> reader : readers)
+                reader.get();
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void skipsTruncatedTrailingRecord() throws IOException {
+        Path log = directory.resolve("games.log");
+        ArrayList<GameRecord> records = writeGames(log, 3);
+        try(FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 50);
+        }
+
+        GameLogIndex index = GameLogIndex.build(log, directory.resolve("games.idx"), 8);
+        assertMatches(index, records.subList(0, 2));
+    }
+
+    @Test
+    void deletesIndexWhenBuildFails() throws IOException {
+        Path log = directory.resolve("games.log");
+        writeGames(log, 3);
+        // Make the first move of the second game an index no move has
+        byte[] bytes = Files.readAllBytes(log);
+        int move = GameRecordWriter.FILE_HEADER_BYTES + RecordedGames.play(0).getSize() + GameRecord.HEADER_BYTES;
+        bytes[move] = (byte) 0xFF;
+        bytes[move + 1] = (byte) 0xFF;
+        Files.write(log, bytes);
+
+        Path indexFile = directory.resolve("games.idx");
+        assertThrows(IOException.class, () -> GameLogIndex.build(log, indexFile, 8));
+        assertFalse(Files.exists(indexFile));
+    }
+
+    @Test
+    void rejectsLogShorterThanIndexed() throws IOException {
+        Path log = directory.resolve("games.log");
+        Path indexFile = directory.resolve("games.idx");
+        writeGames(log, 3);
+        GameLogIndex.build(log, indexFile, 8);
+        try(FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+
+        assertThrows(IOException.class, () -> new GameLogIndex(log, indexFile));
+    }
+
+    @Test
+    void rejectsGamesAndPliesOutOfRange() throws IOException {
+        Path log = directory.resolve("games.log");
+        writeGames(log, 3);
+        GameLogIndex index = GameLogIndex.build(log, directory.resolve("games.idx"), 8);
+        int numberMoves = index.getNumberMoves(0);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> index.getNumberMoves(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> index.getWinner(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> index.getRecord(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> index.getState(3, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> index.getState(0, -1));
+        assertThrows(IndexOutOfBoundsException.class, () -> index.getState(0, numberMoves + 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> index.getMove(0, -1));
+        assertThrows(IndexOutOfBoundsException.class, () -> index.getMove(0, numberMoves));
+    }
+
+    // Asserts that the index holds the games of the records, and rebuilds the states of their records at every ply
+    private static void assertMatches(GameLogIndex index, List<GameRecord> records) throws IOException {
+        assertEquals(records.size(), index.getNumberGames());
+        for(int game = 0; game < records.size(); game ++) {
+            GameRecord record = records.get(game);
+            assertEquals(record.getNumberMoves(), index.getNumberMoves(game));
+            assertEquals(record.getWinner(), index.getWinner(game));
+            RecordedGames.assertSameGame(record, index.getRecord(game));
+            for(int ply = 0; ply < record.getNumberMoves(); ply ++)
+                assertEquals(record.getMove(ply), index.getMove(game, ply));
+
+            for(int ply = 0; ply <= record.getNumberMoves(); ply ++) {
+                GameState expected = record.getState(ply), state = index.getState(game, ply);
+                assertEquals(new PackedGameState(expected), new PackedGameState(state));
+                assertEquals(expected.getTurnNumber(), state.getTurnNumber());
+            }
+        }
+    }
+
+    private static ArrayList<GameRecord> writeGames(Path log, int numberGames) throws IOException {
+        ArrayList<GameRecord> records = new ArrayList<>();
+        try(GameRecordWriter writer = new GameRecordWriter(log)) {
+            for(int game = 0; game < numberGames; game ++) {
+                records.add(RecordedGames.play(game));
+                writer.write(records.get(game));
+            }
+        }
+        return records;
+    }
+}
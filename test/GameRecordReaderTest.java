@@ -0,0 +1,63 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GameRecordReaderTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsRecordsInOrderWritten() throws IOException {
+        Path log = directory.resolve("games.log");
+        ArrayList<GameRecord> records = writeGames(log, 10);
+
+        try(GameRecordReader reader = new GameRecordReader(log)) {
+            for(GameRecord record : records)
+                RecordedGames.assertSameGame(record, reader.read());
+            assertNull(reader.read());
+        }
+    }
+
+    @Test
+    void readsWholeRecordsBeforeTruncatedTrailingRecord() throws IOException {
+        Path log = directory.resolve("games.log");
+        ArrayList<GameRecord> records = writeGames(log, 3);
+        try(FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 50);
+        }
+
+        try(GameRecordReader reader = new GameRecordReader(log)) {
+            RecordedGames.assertSameGame(records.get(0), reader.read());
+            RecordedGames.assertSameGame(records.get(1), reader.read());
+            assertThrows(EOFException.class, reader::read);
+        }
+    }
+
+    @Test
+    void rejectsFileThatIsNotGameLog() throws IOException {
+        Path file = directory.resolve("games.log");
+        Files.write(file, new byte[] {1, 2, 3, 4, 5, 6});
+        assertThrows(IOException.class, () -> new GameRecordReader(file).close());
+    }
+
+    private static ArrayList<GameRecord> writeGames(Path log, int numberGames) throws IOException {
+        ArrayList<GameRecord> records = new ArrayList<>();
+        try(GameRecordWriter writer = new GameRecordWriter(log)) {
+            for(int game = 0; game < numberGames; game ++) {
+                records.add(RecordedGames.play(game));
+                writer.write(records.get(game));
+            }
+        }
+        return records;
+    }
+}
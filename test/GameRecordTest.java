@@ -0,0 +1,72 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GameRecordTest {
+    // Offsets in a record of its first card id and of its first move
+    private static final int FIRST_CARD = 3 + 4;
+    private static final int FIRST_MOVE = GameRecord.HEADER_BYTES;
+
+    @Test
+    void writeThenReadKeepsDealMovesAndWinner() throws IOException {
+        for(long seed = 0; seed < 20; seed ++) {
+            GameRecord record = RecordedGames.play(seed);
+            ByteBuffer buffer = write(record);
+            assertEquals(record.getSize(), buffer.remaining());
+
+            GameRecord read = GameRecord.read(buffer);
+            assertEquals(0, buffer.remaining());
+            RecordedGames.assertSameGame(record, read);
+            for(int ply = 0; ply < record.getNumberMoves(); ply ++)
+                assertEquals(record.getMove(ply), GameRecord.getMove(buffer, 0, ply));
+        }
+    }
+
+    @Test
+    void replayMatchesRecordedGame() {
+        for(long seed = 0; seed < 20; seed ++) {
+            ArrayList<PackedGameState> states = new ArrayList<>();
+            GameRecord record = RecordedGames.play(seed, states);
+            for(int ply = 0; ply <= record.getNumberMoves(); ply ++)
+                assertEquals(states.get(ply), new PackedGameState(record.getState(ply)));
+            assertEquals(record.getWinner(), record.getState(record.getNumberMoves()).getWinner());
+        }
+    }
+
+    @Test
+    void readRejectsCorruptRecords() {
+        GameRecord record = RecordedGames.play(1);
+
+        ByteBuffer badMove = write(record);
+        badMove.putShort(FIRST_MOVE, (short) MoveEncoding.NUMBER_INDICES);
+        assertThrows(IOException.class, () -> GameRecord.read(badMove));
+        assertThrows(IOException.class, () -> GameRecord.getMove(badMove, 0, 0));
+
+        ByteBuffer badCard = write(record);
+        badCard.put(FIRST_CARD, (byte) (CardCatalog.NUMBER_CARDS - 1));
+        assertThrows(IOException.class, () -> GameRecord.read(badCard));
+
+        ByteBuffer repeatedCard = write(record);
+        repeatedCard.put(FIRST_CARD, repeatedCard.get(FIRST_CARD + 1));
+        assertThrows(IOException.class, () -> GameRecord.read(repeatedCard));
+
+        ByteBuffer badNoble = write(record);
+        badNoble.put(4, (byte) CardCatalog.NUMBER_NOBLES);
+        assertThrows(IOException.class, () -> GameRecord.read(badNoble));
+
+        ByteBuffer badWinner = write(record);
+        badWinner.put(2, (byte) 3);
+        assertThrows(IOException.class, () -> GameRecord.read(badWinner));
+    }
+
+    private static ByteBuffer write(GameRecord record) {
+        ByteBuffer buffer = ByteBuffer.allocate(record.getSize());
+        record.write(buffer);
+        return buffer.flip();
+    }
+}
@@ -0,0 +1,91 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GameRecordWriterTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void appendsToExistingLog() throws IOException {
+        Path log = directory.resolve("games.log");
+        ArrayList<GameRecord> records = new ArrayList<>();
+        for(int run = 0; run < 3; run ++)
+            try(GameRecordWriter writer = new GameRecordWriter(log)) {
+                for(int game = 0; game < 2; game ++) {
+                    GameRecord record = RecordedGames.play(records.size());
+                    writer.write(record);
+                    records.add(record);
+                }
+                assertEquals(2, writer.getGamesWritten());
+            }
+
+        assertReadsBack(log, records);
+    }
+
+    @Test
+    void cutsOffTruncatedTrailingRecordBeforeAppending() throws IOException {
+        Path log = directory.resolve("games.log");
+        GameRecord first = RecordedGames.play(1), second = RecordedGames.play(2);
+        try(GameRecordWriter writer = new GameRecordWriter(log)) {
+            writer.write(first);
+            writer.write(second);
+        }
+        try(FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 50);
+        }
+
+        GameRecord third = RecordedGames.play(3), fourth = RecordedGames.play(4);
+        try(GameRecordWriter writer = new GameRecordWriter(log)) {
+            assertEquals(GameRecordWriter.FILE_HEADER_BYTES + first.getSize(), Files.size(log));
+            writer.write(third);
+            writer.write(fourth);
+        }
+
+        assertReadsBack(log, List.of(first, third, fourth));
+    }
+
+    @Test
+    void cutsOffTruncatedRecordHeader() throws IOException {
+        Path log = directory.resolve("games.log");
+        GameRecord first = RecordedGames.play(1);
+        try(GameRecordWriter writer = new GameRecordWriter(log)) {
+            writer.write(first);
+        }
+        // A single byte of the next record, too short to hold its number of moves
+        Files.write(log, new byte[] {0}, StandardOpenOption.APPEND);
+
+        GameRecord second = RecordedGames.play(2);
+        try(GameRecordWriter writer = new GameRecordWriter(log)) {
+            writer.write(second);
+        }
+
+        assertReadsBack(log, List.of(first, second));
+    }
+
+    @Test
+    void rejectsWritesOnceClosed() throws IOException {
+        GameRecordWriter writer = new GameRecordWriter(directory.resolve("games.log"));
+        writer.close();
+        assertThrows(IOException.class, () -> writer.write(RecordedGames.play(1)));
+    }
+
+    private static void assertReadsBack(Path log, List<GameRecord> records) throws IOException {
+        try(GameRecordReader reader = new GameRecordReader(log)) {
+            for(GameRecord record : records)
+                RecordedGames.assertSameGame(record, reader.read());
+            assertNull(reader.read());
+        }
+    }
+}
@@ -0,0 +1,43 @@
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Seeded games between random agents, recorded move by move, for the tests of GameRecord and the game log
+class RecordedGames {
+    private RecordedGames() {
+    }
+
+    // Plays a whole game and returns its record
+    static GameRecord play(long seed) {
+        return play(seed, null);
+    }
+
+    // Plays a whole game and returns its record, adding to states the state of the game before each move and after
+    // the last one, if it is not null
+    static GameRecord play(long seed, ArrayList<PackedGameState> states) {
+        GameState state = new GameState(seed);
+        GameRecord record = new GameRecord(state);
+        RandomMoveAgent agent = new RandomMoveAgent();
+        agent.setSeed(seed);
+        if(states != null)
+            states.add(new PackedGameState(state));
+        while(!state.isGameOver()) {
+            Move move = agent.generateMove(state);
+            state.handleMove(move);
+            record.addMove(move);
+            if(states != null)
+                states.add(new PackedGameState(state));
+        }
+        record.setWinner(state.getWinner());
+        return record;
+    }
+
+    // Asserts that the records hold the same deal, moves and winner
+    static void assertSameGame(GameRecord expected, GameRecord actual) {
+        assertEquals(new PackedGameState(expected.getInitialState()), new PackedGameState(actual.getInitialState()));
+        assertEquals(expected.getNumberMoves(), actual.getNumberMoves());
+        for(int ply = 0; ply < expected.getNumberMoves(); ply ++)
+            assertEquals(expected.getMove(ply), actual.getMove(ply));
+        assertEquals(expected.getWinner(), actual.getWinner());
+    }
+}